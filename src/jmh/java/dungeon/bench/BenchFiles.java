@@ -0,0 +1,33 @@
+package dungeon.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Temporary file helpers shared by the benchmarks
+ */
+final class BenchFiles {
+    private BenchFiles() {
+    }
+
+    /**
+     * Deletes a directory and everything in it
+     *
+     * @param dir directory to delete, ignored if null
+     * @throws IOException if a file cannot be deleted
+     */
+    static void deleteTree(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) {
+            return;
+        }
+
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package dungeon.bench;
+
+import dungeon.engine.GameHistory;
+import dungeon.engine.GameRecord;
+import dungeon.engine.HistoryStats;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Game history appends, and parallel aggregate scans over logs of different sizes
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HistoryBenchmark {
+    @Param({"1000000", "10000000"})
+    public int records;
+
+    private Path dir;
+    private GameHistory history;
+    private GameRecord record;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("md-bench");
+        history = new GameHistory(dir);
+        for (int i = 0; i < records; i++) {
+            boolean win = i % 3 == 0;
+            history.append(new GameRecord(win ? 30 : -1, win ? -1 : i & 1, 2, 40 + i % 60, 5, i % 11, i, i));
+        }
+        history.sync();
+        record = new GameRecord(30, -1, 2, 50, 7, 5, 1L, 0L);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        history.close();
+        BenchFiles.deleteTree(dir);
+    }
+
+    @Benchmark
+    public HistoryStats scan() throws IOException {
+        return history.scan();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void append() throws IOException {
+        history.append(record);
+    }
+}
@@ -0,0 +1,30 @@
+package dungeon.bench;
+
+import dungeon.engine.GameConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap allocated per default size level, by difficulty
+ * Run with the GC profiler, bytes per level are reported as gc.alloc.rate.norm:
+ * ./gradlew jmh -PjmhIncludes=LevelAllocationBenchmark -PjmhProfilers=gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LevelAllocationBenchmark {
+    @Param({"0", "3", "10"})
+    public int difficulty;
+
+    private long seed;
+
+    @Benchmark
+    public dungeon.engine.Level construct() {
+        // new seed per level, the same layout every run
+        return new dungeon.engine.Level(1, difficulty, GameConfig.DEFAULT, seed++);
+    }
+}
@@ -0,0 +1,43 @@
+package dungeon.bench;
+
+import dungeon.engine.GameConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Level construction time across map sizes and item densities
+ * Density is the share of interior tiles filled with gold (capped at 2,000,000 items),
+ * density 0 uses the default spawn counts
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class LevelBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    public int size;
+
+    @Param({"0", "0.25", "0.9"})
+    public double density;
+
+    private GameConfig config;
+    private long seed;
+
+    @Setup
+    public void setUp() {
+        config = GameConfig.DEFAULT.withMapSize(size);
+        if (density > 0) {
+            long interior = (long) (size - 2) * (size - 2);
+            config = config.withSpawns((int) Math.min(interior * density, 2_000_000), 0, 0, 0, 0);
+        }
+    }
+
+    @Benchmark
+    public dungeon.engine.Level construct() {
+        // new seed per level, the same layout every run
+        return new dungeon.engine.Level(1, 3, config, seed++);
+    }
+}
@@ -0,0 +1,71 @@
+package dungeon.bench;
+
+import dungeon.engine.*;
+import dungeon.engine.cells.set.Empty;
+import dungeon.engine.cells.set.Wall;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single move latency by direction and by the cell moved onto
+ * Every invocation resets the player and places a fresh target cell next to it,
+ * so the EMPTY target is the baseline for the interaction costs
+ * Ladder moves are left out, they change level or end the game
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveBenchmark {
+    @Param({"UP", "DOWN", "LEFT", "RIGHT"})
+    public Direction direction;
+
+    @Param({"EMPTY", "WALL", "GOLD", "HEALTH_POTION", "TRAP", "MELEE_MUTANT", "RANGED_MUTANT"})
+    public CellType target;
+
+    private Path dir;
+    private GameEngine engine;
+    private dungeon.engine.Level level;
+    private Player start;
+    private Position targetPos;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("md-bench");
+        engine = new GameEngine(0, new Score(dir.resolve("scores.dat").toString()),
+                dir.resolve("save.dat").toString(), GameConfig.DEFAULT, 1L);
+        level = engine.getCurrentLevel();
+
+        // open map with boundary walls and the ladder out of the way
+        int size = level.getSize();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                boolean edge = x == 0 || y == 0 || x == size - 1 || y == size - 1;
+                level.setCell(new Position(x, y), edge ? Wall.INSTANCE : Empty.INSTANCE);
+            }
+        }
+        level.setLadderPos(new Position(size - 2, size - 2));
+
+        start = new Player(GameConfig.DEFAULT.getMaxHp(), GameConfig.DEFAULT.getMaxSteps());
+        start.startPos(4, 4);
+        targetPos = new Position(4 + direction.getDx(), 4 + direction.getDy());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchFiles.deleteTree(dir);
+    }
+
+    @Benchmark
+    public MoveResult move() {
+        engine.getPlayer().copyFrom(start);
+        level.setCell(targetPos, target.cell());
+        return engine.move(direction);
+    }
+}
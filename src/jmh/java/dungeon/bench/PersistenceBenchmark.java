@@ -0,0 +1,57 @@
+package dungeon.bench;
+
+import dungeon.engine.GameConfig;
+import dungeon.engine.GameEngine;
+import dungeon.engine.Score;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Save and load times for a game in progress across map sizes
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PersistenceBenchmark {
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private Path dir;
+    private GameEngine engine;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("md-bench");
+        engine = new GameEngine(3, new Score(dir.resolve("scores.dat").toString()),
+                dir.resolve("save.dat").toString(), GameConfig.DEFAULT.withMapSize(size), 1L);
+        engine.saveGame(); // load needs an existing save
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchFiles.deleteTree(dir);
+    }
+
+    @Benchmark
+    public String save() {
+        return engine.saveGame();
+    }
+
+    @Benchmark
+    public boolean load() {
+        return engine.loadGame();
+    }
+
+    @Benchmark
+    public boolean roundTrip() {
+        engine.saveGame();
+        return engine.loadGame();
+    }
+}
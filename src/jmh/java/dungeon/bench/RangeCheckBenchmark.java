@@ -0,0 +1,55 @@
+package dungeon.bench;
+
+import dungeon.engine.GameConfig;
+import dungeon.engine.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ranged attack check time as the number of ranged mutants on a 100x100 map grows
+ * The player visits a fixed set of random interior tiles, one per invocation
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RangeCheckBenchmark {
+    private static final int SIZE = 100;
+    private static final int POSITIONS = 1024; // power of two
+
+    @Param({"0", "1", "10", "100", "1000", "5000"})
+    public int mutants;
+
+    private dungeon.engine.Level level;
+    private Player player;
+    private int[] xs;
+    private int[] ys;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        // difficulty 1, so the per-difficulty ranged count is the mutant count
+        GameConfig config = GameConfig.DEFAULT.withMapSize(SIZE).withSpawns(0, 0, 0, 0, mutants);
+        level = new dungeon.engine.Level(1, 1, config, 7L);
+        player = new Player(Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+        Random random = new Random(11);
+        xs = new int[POSITIONS];
+        ys = new int[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            xs[i] = random.nextInt(SIZE - 2) + 1;
+            ys[i] = random.nextInt(SIZE - 2) + 1;
+        }
+    }
+
+    @Benchmark
+    public int checkRange() {
+        int i = next++ & (POSITIONS - 1);
+        player.startPos(xs[i], ys[i]);
+        return level.checkRange(player);
+    }
+}
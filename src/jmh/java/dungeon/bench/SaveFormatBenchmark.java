@@ -0,0 +1,79 @@
+package dungeon.bench;
+
+import dungeon.engine.GameConfig;
+import dungeon.engine.GameEngine;
+import dungeon.engine.SaveCodec;
+import dungeon.engine.Score;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory encode/decode times of the binary save format against Java serialization of the engine
+ * (the save format before version 1), without disk I/O
+ * Encoded sizes are printed once per trial
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SaveFormatBenchmark {
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private Path dir;
+    private GameEngine engine;
+    private byte[] binary;
+    private byte[] serialized;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("md-bench");
+        Score score = new Score(dir.resolve("scores.dat").toString());
+        for (int i = 1; i <= 5; i++) {
+            score.addScore(i * 10); // full high score table, as saved with the engine before
+        }
+        engine = new GameEngine(3, score, dir.resolve("save.dat").toString(), GameConfig.DEFAULT.withMapSize(size), 1L);
+
+        binary = binaryEncode();
+        serialized = serializedEncode();
+        System.out.printf("%nsize %d: binary %d bytes, serialized %d bytes%n", size, binary.length, serialized.length);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchFiles.deleteTree(dir);
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        return SaveCodec.encode(engine);
+    }
+
+    @Benchmark
+    public GameEngine binaryDecode() throws IOException {
+        SaveCodec.decode(binary, engine);
+        return engine;
+    }
+
+    @Benchmark
+    public byte[] serializedEncode() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+            out.writeObject(engine);
+        }
+        return buffer.toByteArray();
+    }
+
+    @Benchmark
+    public Object serializedDecode() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return in.readObject();
+        }
+    }
+}
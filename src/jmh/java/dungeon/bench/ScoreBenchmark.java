@@ -0,0 +1,55 @@
+package dungeon.bench;
+
+import dungeon.engine.Score;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * High score insertion (including the write to disk) and formatting for different table sizes
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ScoreBenchmark {
+    @Param({"5", "100", "1000"})
+    public int maxStore;
+
+    private Path dir;
+    private Score score;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("md-bench");
+        score = new Score(dir.resolve("scores.dat").toString(), maxStore);
+
+        // full table, so new scores replace the lowest entry
+        for (int i = 1; i <= maxStore; i++) {
+            score.addScore(i * 10);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchFiles.deleteTree(dir);
+    }
+
+    @Benchmark
+    public boolean addScore() {
+        // cycling through values that land anywhere in the table
+        next = (next + 7919) % (maxStore * 10);
+        return score.addScore(next + 1);
+    }
+
+    @Benchmark
+    public String formatScores() {
+        return score.formatScores();
+    }
+}
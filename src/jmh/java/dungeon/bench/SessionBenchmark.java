@@ -0,0 +1,119 @@
+package dungeon.bench;
+
+import dungeon.engine.Direction;
+import dungeon.engine.GameConfig;
+import dungeon.engine.MoveResult;
+import dungeon.engine.Score;
+import dungeon.engine.SessionManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hosted session creation, moves on live and hibernated sessions, and sessions per GB of heap
+ * sessionsPerGb reports the estimate (GameEngine.estimateBytes) and the measured heap growth as counters
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SessionBenchmark {
+    // sessions hosted for the footprint measurement
+    private static final int SESSIONS = 2000;
+    private static final long GB = 1L << 30;
+
+    @Param({"10", "100"})
+    public int size;
+
+    private Path dir;
+    private GameConfig config;
+    private Score scores;
+    private SessionManager sessions;
+    private String session;
+    private int moves;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("md-bench");
+        config = GameConfig.DEFAULT.withMapSize(size);
+        scores = new Score(dir.resolve("scores.dat").toString());
+        sessions = new SessionManager(dir.resolve("sessions"), config, scores, Long.MAX_VALUE, Integer.MAX_VALUE, 16);
+        sessions.prefill(3);
+        session = sessions.create(3);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchFiles.deleteTree(dir);
+    }
+
+    @Benchmark
+    public boolean createAndEnd() {
+        return sessions.end(sessions.create(3));
+    }
+
+    @Benchmark
+    public MoveResult moveLive() {
+        return sessions.move(session, (moves++ & 1) == 0 ? Direction.LEFT : Direction.RIGHT);
+    }
+
+    @Benchmark
+    public MoveResult moveHibernated() {
+        sessions.hibernate(session);
+        return sessions.move(session, (moves++ & 1) == 0 ? Direction.LEFT : Direction.RIGHT);
+    }
+
+    /**
+     * Sessions per GB of heap, set once per iteration
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long estimatedPerGb;
+        public long measuredPerGb;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 3)
+    public SessionManager sessionsPerGb(Footprint footprint) throws InterruptedException {
+        SessionManager hosted = new SessionManager(dir.resolve("footprint"), config, scores, Long.MAX_VALUE,
+                Integer.MAX_VALUE, 0);
+        long before = usedHeap();
+        List<String> ids = new ArrayList<>(SESSIONS);
+        for (int i = 0; i < SESSIONS; i++) {
+            ids.add(hosted.create(3));
+        }
+        for (String id : ids) {
+            while (!hosted.view(id, engine -> engine.getPreloader().isReady())) {
+                Thread.sleep(1); // next level still generating, counted once held
+            }
+        }
+
+        long used = Math.max(1, usedHeap() - before);
+        footprint.measuredPerGb = SESSIONS * GB / used;
+        footprint.estimatedPerGb = GB / Math.max(1, hosted.getBytesPerSession());
+        return hosted; // kept reachable until measured
+    }
+
+    /**
+     * Gets the heap in use after collecting garbage
+     * @return used heap bytes
+     */
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -10,6 +10,7 @@ import java.io.Serializable;
  * - Cell symbol for display
  * - Cell positioning
  * Unique cell behaviours are handled through subclasses
+ * Subclasses pin the serialVersionUID of their original class, games saved with Java serialization hold cells
  */
 public abstract class Cell implements Serializable {
     // Cell text symbol
@@ -0,0 +1,120 @@
+package dungeon.engine;
+
+import dungeon.engine.cells.set.Empty;
+import dungeon.engine.cells.set.Wall;
+import dungeon.engine.cells.interactable.Entry;
+import dungeon.engine.cells.interactable.*;
+
+import java.util.function.Supplier;
+
+/**
+ * Primitive type codes for each cell type
+ * Handles:
+ * - Byte codes used by packed tile storage
+ * - Cell symbols for display
+ * - Cell/type conversion
+ * - Cell registry (shared instances for stateless types, new instances for stateful types)
+ * Stateful types (mutants) keep their cell objects in a side table, all others are stored as codes only
+ */
+public enum CellType {
+    EMPTY(' ', true, false, () -> Empty.INSTANCE),
+    WALL('#', false, false, () -> Wall.INSTANCE),
+    ENTRY('E', true, false, () -> Entry.INSTANCE),
+    LADDER('L', true, false, () -> Ladder.INSTANCE),
+    GOLD('G', true, false, () -> Gold.INSTANCE),
+    HEALTH_POTION('H', true, false, () -> HealthPotion.INSTANCE),
+    TRAP('T', true, false, () -> Trap.INSTANCE),
+    MELEE_MUTANT('M', true, true, MeleeMutant::new),
+    RANGED_MUTANT('R', true, true, RangedMutant::new);
+
+    // cached values array for code lookups
+    private static final CellType[] VALUES = values();
+
+    private final char symbol;
+    private final boolean canWalk;
+    private final boolean stateful;
+    private final Supplier<Cell> factory;
+
+    CellType(char symbol, boolean canWalk, boolean stateful, Supplier<Cell> factory) {
+        this.symbol = symbol;
+        this.canWalk = canWalk;
+        this.stateful = stateful;
+        this.factory = factory;
+    }
+
+    /**
+     * Gets the type of a cell
+     *
+     * @param cell cell to check
+     * @return matching cell type
+     */
+    public static CellType of(Cell cell) {
+        if (cell instanceof Empty) return EMPTY;
+        if (cell instanceof Wall) return WALL;
+        if (cell instanceof Entry) return ENTRY;
+        if (cell instanceof Ladder) return LADDER;
+        if (cell instanceof Gold) return GOLD;
+        if (cell instanceof HealthPotion) return HEALTH_POTION;
+        if (cell instanceof Trap) return TRAP;
+        if (cell instanceof MeleeMutant) return MELEE_MUTANT;
+        if (cell instanceof RangedMutant) return RANGED_MUTANT;
+
+        throw new IllegalArgumentException("Unknown cell type: " + cell);
+    }
+
+    /**
+     * Gets the type of a byte code
+     *
+     * @param code packed type code
+     * @return matching cell type
+     */
+    public static CellType fromCode(byte code) {
+        return VALUES[code];
+    }
+
+    /**
+     * Gets a cell of this type
+     * Stateless types return their shared instance, stateful types return a new instance
+     *
+     * @return cell of this type
+     */
+    public Cell cell() {
+        return factory.get();
+    }
+
+    /**
+     * Gets the packed byte code
+     *
+     * @return type code
+     */
+    public byte code() {
+        return (byte) ordinal();
+    }
+
+    /**
+     * Gets the cell text symbol
+     *
+     * @return cell symbol
+     */
+    public char symbol() {
+        return symbol;
+    }
+
+    /**
+     * Checks cell player movement conditions
+     *
+     * @return true if player can walk onto cells of this type
+     */
+    public boolean canWalk() {
+        return canWalk;
+    }
+
+    /**
+     * Checks if cells of this type carry per-tile state
+     *
+     * @return true if cell objects must be kept in the side table
+     */
+    public boolean isStateful() {
+        return stateful;
+    }
+}
@@ -1,7 +1,11 @@
 package dungeon.engine;
 
 import java.io.File;
-import java.util.Scanner;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * Console-based UI for gameplay
@@ -10,14 +14,35 @@ import java.util.Scanner;
  * - Command processing
  * - Map display
  * - Game status outputs
- * - Save / load functionality
+ * - Save / load functionality (autosaved through the move journal)
  * - Basic help guide
  * - Game over results
+ * Runs over any input/output streams (the terminal, or a network connection, see ConsoleServer)
+ * Output is collected per frame and written in one go before each prompt, input ending quits the game
  */
 public class ConsoleUI {
-    private final Scanner scanner;
-    private GameEngine engine;
+    // largest map section displayed around the player
+    private static final int VIEW_SIZE = 21;
+
+    // input buffer and longest command line kept (the rest of a longer line is dropped), small as
+    // a network server holds one per idle connection
+    private static final int INPUT_BUFFER = 128;
+    private static final int MAX_LINE = 256;
+
+    private final InputStream in;
+    private final OutputStream out;
+    private final String newline;
     private final String savePath;
+    private final ScoreHandler scores;
+    private final GameHistory history;
+
+    private final StringBuilder frame = new StringBuilder(); // output since the last prompt
+    private final byte[] input = new byte[INPUT_BUFFER];
+    private int inputPos;
+    private int inputLen;
+    private boolean ended; // input ended or output failed, the game quits
+
+    private GameEngine engine;
 
     /**
      * Creates a ConsoleUI instance with the default save path
@@ -27,33 +52,52 @@ public class ConsoleUI {
     }
 
     /**
-     * Creates a ConsoleUI with the default save path
+     * Creates a ConsoleUI on the terminal, with the shared score service and history log
      *
      * @param savePath save game file path
      */
     public ConsoleUI(String savePath) {
+        this(System.in, System.out, System.lineSeparator(), savePath, ScoreService.shared(), GameHistory.shared());
+    }
+
+    /**
+     * Creates a ConsoleUI over streams, which are left open
+     *
+     * @param in command input
+     * @param out game output
+     * @param newline line separator written ("\r\n" for network clients)
+     * @param savePath save game file path
+     * @param scores score handler of the game
+     * @param history log finished games are appended to, null for none
+     */
+    public ConsoleUI(InputStream in, OutputStream out, String newline, String savePath, ScoreHandler scores,
+                     GameHistory history) {
+        this.in = in;
+        this.out = out;
+        this.newline = newline;
         this.savePath = savePath;
-        this.scanner = new Scanner(System.in);
+        this.scores = scores;
+        this.history = history;
     }
 
     /**
      * Starts and maintains a console based game
      */
     public void start() {
-        System.out.println("Welcome to the Mini Dungeon! Mwahaha...");
+        println("Welcome to the Mini Dungeon! Mwahaha...");
 
         // checking for saved game
         File saveFile = new File(savePath);
         if (saveFile.exists()) {
-            System.out.print("A saved game was found. Would you like to load it? (y/n): ");
-            String loadInput = scanner.nextLine().toLowerCase();
+            print("A saved game was found. Would you like to load it? (y/n): ");
+            String loadInput = readLine().toLowerCase();
 
             if (loadInput.equals("y")) {
-                engine = new GameEngine(0, new Score("md_highscores.dat"), savePath);
+                engine = new GameEngine(0, scores, savePath);
                 if (engine.loadGame()) {
-                    System.out.println("Game loaded!");
+                    println("Game loaded!");
                 } else {
-                    System.out.println("Failed to load game. Starting a new game...");
+                    println("Failed to load game. Starting a new game...");
                     engine = newGame();
                 }
             } else {
@@ -63,9 +107,24 @@ public class ConsoleUI {
             engine = newGame();
         }
 
+        if (ended) {
+            flush(); // left before playing, an existing save is kept as it was
+            return;
+        }
+
+        // finished games are logged for balance analysis
+        engine.setHistory(history);
+
+        // continuous autosave, a crashed session can be loaded on the next start
+        String journalOutput = engine.enableJournal(MoveJournal.DEFAULT_SNAPSHOT_INTERVAL);
+        if (!journalOutput.equals("Game saved!")) {
+            println(journalOutput);
+        }
+
         runGameLoop();
 
-        scanner.close();
+        engine.closeJournal();
+        flush();
     }
 
     /**
@@ -74,31 +133,31 @@ public class ConsoleUI {
      * @return instance with desired difficulty, 3 (default) if invalid
      */
     private GameEngine newGame() {
-        System.out.print("Please enter your preferred difficulty (0-10, default 3): ");
-        String inputDifficulty = scanner.nextLine().trim();
+        print("Please enter your preferred difficulty (0-10, default 3): ");
+        String inputDifficulty = readLine().trim();
 
         int difficulty = 3;
         if (!inputDifficulty.isEmpty()) {
             try {
                 difficulty = Integer.parseInt(inputDifficulty);
                 if (difficulty < 0 || difficulty > 10) {
-                    System.out.println("Invalid input, using default difficulty...");
+                    println("Invalid input, using default difficulty...");
                     difficulty = 3;
                 }
             } catch (NumberFormatException e) {
-                System.out.println("Invalid input, using default difficulty...");
+                println("Invalid input, using default difficulty...");
             }
         }
 
-        return new GameEngine(difficulty, new Score("md_highscores.dat"), savePath);
+        return new GameEngine(difficulty, scores, savePath);
     }
 
     /**
      * Main game loop
      */
     private void runGameLoop() {
-        System.out.println("The Basics: 'u' for up, 'd' for down, 'l' for left, 'r' for right, 'q' to quit, 'h' for help and 's' to save the game.");
-        System.out.println("Current level: " + engine.getLevel());
+        println("The Basics: 'u' for up, 'd' for down, 'l' for left, 'r' for right, 'q' to quit, 'h' for help and 's' to save the game.");
+        println("Current level: " + engine.getLevel());
 
         boolean quit = false;
         while (!quit && !engine.isGameOver()) {
@@ -107,14 +166,14 @@ public class ConsoleUI {
             displayPlayerInfo();
 
             // grabbing input
-            System.out.print("Enter command: ");
-            String input = scanner.nextLine().toLowerCase();
+            print("Enter command: ");
+            String input = readLine().toLowerCase();
 
-            if (input.equals("q")) {
+            if (input.equals("q") || ended) {
                 quit = true;
             } else if (input.equals("s")) {
                 String saveOutput = engine.saveGame();
-                System.out.println(saveOutput);
+                println(saveOutput);
             } else {
                 processInput(input);
             }
@@ -126,20 +185,28 @@ public class ConsoleUI {
 
     /**
      * Displays current game map with cell positioning
+     * Large maps are displayed as a window around the player, read row by row from the tile chunks
      */
     private void displayMap() {
-        Cell[][] map = engine.getMap();
+        TileGrid tiles = engine.getTiles();
         Position playerPos = engine.getPlayer().getPosition();
 
-        for (int y = 0; y < engine.getSize(); y++) {
-            for (int x = 0; x < engine.getSize(); x++) {
-                if (x== playerPos.getX() && y == playerPos.getY()) {
-                    System.out.print('P');
+        // view window (whole map for small maps)
+        int view = Math.min(engine.getSize(), VIEW_SIZE);
+        int startX = TileGrid.viewStart(playerPos.getX(), engine.getSize(), view);
+        int startY = TileGrid.viewStart(playerPos.getY(), engine.getSize(), view);
+        byte[] row = new byte[view];
+
+        for (int y = startY; y < startY + view; y++) {
+            tiles.copyRow(y, startX, row, view);
+            for (int i = 0; i < view; i++) {
+                if (startX + i == playerPos.getX() && y == playerPos.getY()) {
+                    frame.append('P');
                 } else {
-                    System.out.print(map[y][x].cellGetSymbol());
+                    frame.append(CellType.fromCode(row[i]).symbol());
                 }
             }
-            System.out.println();
+            frame.append(newline);
         }
     }
 
@@ -148,9 +215,9 @@ public class ConsoleUI {
      */
     private void displayPlayerInfo() {
         Player player = engine.getPlayer();
-        System.out.println("HP: " + player.getHp());
-        System.out.println("Steps: " + player.getSteps());
-        System.out.println("Score: " + player.getScore());
+        println("HP: " + player.getHp());
+        println("Steps: " + player.getSteps());
+        println("Score: " + player.getScore());
     }
 
     /**
@@ -159,36 +226,36 @@ public class ConsoleUI {
      * @param input user-input
      */
     private void processInput(String input) {
-        String result;
+        MoveResult result;
         switch (input) {
             case "u":
-                result = engine.moveUp();
+                result = engine.move(Direction.UP);
                 break;
             case "d":
-                result = engine.moveDown();
+                result = engine.move(Direction.DOWN);
                 break;
             case "l":
-                result = engine.moveLeft();
+                result = engine.move(Direction.LEFT);
                 break;
             case "r":
-                result = engine.moveRight();
+                result = engine.move(Direction.RIGHT);
                 break;
             case "h":
                 displayHelp();
                 return;
             default:
-                System.out.println("Invalid command.");
+                println("Invalid command.");
                 return;
         }
 
-        System.out.println(result);
+        println(result.getMessage());
     }
 
     /**
      * Displays basic game help information
      */
     private void displayHelp() {
-        System.out.println("""
+        println("""
                 ---Help---
                 Commands:
                 u - move up
@@ -198,7 +265,7 @@ public class ConsoleUI {
                 s - save game
                 q - quit game
                 h - help
-                
+
                 Cells:
                 P - player
                 # - wall
@@ -209,10 +276,10 @@ public class ConsoleUI {
                 R - ranged mutant
                 E - entry
                 L - ladder
-                
+
                 Goal:
                 Find the ladder in each level and keep progressing until you are done.
-                """);
+                """.replace("\n", newline));
     }
 
     /**
@@ -222,23 +289,105 @@ public class ConsoleUI {
         if (engine.isGameOver()){
             int deathType = engine.getDeathType();
             if (deathType == 0) {
-                System.out.println("Game Over. You died.");
+                println("Game Over. You died.");
             } else if (deathType == 1) {
-                System.out.println("Game Over. You walked your last step.");
+                println("Game Over. You walked your last step.");
             }
         }
     }
 
     /**
-     * Displays formatted high scores and closing message
+     * Displays formatted high scores, the percentile rank of a win and closing message
      */
     private void displayHighScores() {
         String highScores = engine.getHighscores();
         if (!highScores.isEmpty()) {
-            System.out.println("\n--High Scores--");
-            System.out.println(highScores);
+            println(newline + "--High Scores--");
+            println(highScores.replace("\n", newline));
         }
 
-        System.out.println("Thanks for playing! (until next time...)");
+        double beaten = engine.getPercentBeaten();
+        if (!Double.isNaN(beaten)) {
+            println(String.format("You beat %.0f%% of winning runs", beaten));
+        }
+
+        println("Thanks for playing! (until next time...)");
+    }
+
+    //------------------------------------------------------------------------------------------- STREAMS
+
+    /**
+     * Adds text to the current frame
+     * @param text text to write
+     */
+    private void print(String text) {
+        frame.append(text);
+    }
+
+    /**
+     * Adds a line to the current frame
+     * @param text line to write
+     */
+    private void println(String text) {
+        frame.append(text).append(newline);
+    }
+
+    /**
+     * Writes the current frame in one go
+     * A failed write ends the game, the player has gone
+     */
+    private void flush() {
+        if (frame.isEmpty()) {
+            return;
+        }
+        byte[] data = frame.toString().getBytes(StandardCharsets.UTF_8);
+        frame.setLength(0);
+        try {
+            out.write(data);
+            out.flush();
+        } catch (IOException e) {
+            ended = true;
+        }
+    }
+
+    /**
+     * Writes the current frame, then reads a line of input
+     * @return line without its line break, empty once input has ended
+     */
+    private String readLine() {
+        flush();
+        frame.trimToSize(); // released while waiting, a connection may idle for a long time
+        if (ended) {
+            return "";
+        }
+
+        byte[] line = new byte[32];
+        int length = 0;
+        while (true) {
+            if (inputPos == inputLen) {
+                try {
+                    inputLen = in.read(input);
+                } catch (IOException e) {
+                    inputLen = -1;
+                }
+                inputPos = 0;
+                if (inputLen <= 0) {
+                    inputLen = 0;
+                    ended = true;
+                    return "";
+                }
+            }
+
+            byte b = input[inputPos++];
+            if (b == '\n') {
+                return new String(line, 0, length, StandardCharsets.UTF_8);
+            }
+            if (b != '\r' && length < MAX_LINE) {
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, length * 2);
+                }
+                line[length++] = b;
+            }
+        }
     }
 }
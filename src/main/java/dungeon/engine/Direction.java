@@ -0,0 +1,68 @@
+package dungeon.engine;
+
+/**
+ * Movement directions
+ * Handles:
+ * - Coordinate offsets for each direction
+ * - Pre-built movement messages (no string building per move)
+ */
+public enum Direction {
+    UP(0, -1, "up"),
+    DOWN(0, 1, "down"),
+    LEFT(-1, 0, "left"),
+    RIGHT(1, 0, "right");
+
+    private final int dx;
+    private final int dy;
+    private final String label;
+    private final String movedMessage;
+    private final String blockedMessage;
+
+    Direction(int dx, int dy, String label) {
+        this.dx = dx;
+        this.dy = dy;
+        this.label = label;
+        this.movedMessage = "Moved " + label + " one step.";
+        this.blockedMessage = "Moved " + label + " hit a wall.";
+    }
+
+    /**
+     * Gets the x-coordinate offset
+     * @return x offset (-1, 0 or 1)
+     */
+    public int getDx() {
+        return dx;
+    }
+
+    /**
+     * Gets the y-coordinate offset
+     * @return y offset (-1, 0 or 1)
+     */
+    public int getDy() {
+        return dy;
+    }
+
+    /**
+     * Gets the lowercase direction name
+     * @return direction label
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Gets the message for a successful move
+     * @return movement message
+     */
+    public String getMovedMessage() {
+        return movedMessage;
+    }
+
+    /**
+     * Gets the message for a move into a wall
+     * @return blocked message
+     */
+    public String getBlockedMessage() {
+        return blockedMessage;
+    }
+}
@@ -0,0 +1,162 @@
+package dungeon.engine;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Random sampler of distinct free tiles inside the wall perimeter
+ * Handles:
+ * - Few cells: picks the n-th free tile by rank, skipping a sorted list of taken tiles
+ * - Many cells: draws every rank up front (Floyd's sampling) and shuffles them
+ * - Clean failure when there are not enough free tiles
+ * Neither mode uses rejection sampling, work is bounded by the number of cells placed
+ */
+class FreeTiles {
+    private final TileGrid map;
+    private final int inner;
+    private final Random random;
+
+    // interior indexes already taken (sorted), only the occupied tiles when sampling up front
+    private int[] taken;
+    private int takenCount;
+    private long freeCount;
+
+    // free tile ranks drawn up front in random order, null for rank sampling
+    private int[] samples;
+    private int drawn;
+
+    /**
+     * Creates a sampler for a freshly walled map
+     *
+     * @param map map to place on (only the perimeter and listed tiles may be occupied)
+     * @param required number of tiles that will be drawn
+     * @param random random number generator
+     * @param occupied distinct positions inside the walls that are already occupied
+     * @throws IllegalStateException if there are fewer free tiles than required
+     */
+    FreeTiles(TileGrid map, int required, Random random, Position... occupied) {
+        this.map = map;
+        this.inner = map.getSize() - 2;
+        this.random = random;
+
+        long interior = (long) inner * inner;
+        boolean sparse = (long) required * required <= interior;
+
+        this.freeCount = interior;
+        this.taken = new int[Math.max(4, occupied.length + (sparse ? required : 0))];
+        for (Position position : occupied) {
+            take((position.getY() - 1) * inner + (position.getX() - 1));
+        }
+
+        if (required > freeCount) {
+            throw new IllegalStateException("Not enough free tiles to place " + required + " cells (" + freeCount + " free)");
+        }
+
+        if (!sparse) {
+            // many cells compared to map area, inserting into the taken list would be quadratic
+            samples = sample(required, (int) freeCount);
+        }
+    }
+
+    /**
+     * Draws a random free tile and marks it as taken
+     *
+     * @return row-major map index of the tile
+     * @throws IllegalStateException if no free tiles remain
+     */
+    int next() {
+        if (samples != null) {
+            if (drawn >= samples.length) {
+                throw new IllegalStateException("No free tiles remaining");
+            }
+
+            return toMapIndex(skipTaken(samples[drawn++]));
+        }
+
+        if (freeCount <= 0) {
+            throw new IllegalStateException("No free tiles remaining");
+        }
+
+        int tile = skipTaken(random.nextInt((int) freeCount));
+        take(tile);
+        return toMapIndex(tile);
+    }
+
+    /**
+     * Draws distinct free tile ranks in random order
+     *
+     * @param count number of ranks to draw
+     * @param bound exclusive upper bound of the ranks
+     * @return shuffled array of distinct ranks
+     */
+    private int[] sample(int count, int bound) {
+        BitSet chosen = new BitSet(bound);
+        int[] ranks = new int[count];
+
+        // Floyd's algorithm, one draw per rank with no retries
+        for (int i = 0, j = bound - count; i < count; i++, j++) {
+            int rank = random.nextInt(j + 1);
+            if (chosen.get(rank)) {
+                rank = j;
+            }
+            chosen.set(rank);
+            ranks[i] = rank;
+        }
+
+        // the chosen set is uniform but its order is not, shuffling so cell types are spread evenly
+        for (int i = count - 1; i > 0; i--) {
+            int pick = random.nextInt(i + 1);
+            int rank = ranks[pick];
+            ranks[pick] = ranks[i];
+            ranks[i] = rank;
+        }
+
+        return ranks;
+    }
+
+    /**
+     * Converts a rank among free tiles to an interior index by skipping taken tiles
+     *
+     * @param rank rank among free tiles
+     * @return interior index
+     */
+    private int skipTaken(int rank) {
+        int tile = rank;
+        for (int i = 0; i < takenCount && taken[i] <= tile; i++) {
+            tile++;
+        }
+        return tile;
+    }
+
+    /**
+     * Inserts an interior index into the sorted taken list
+     *
+     * @param tile interior index
+     */
+    private void take(int tile) {
+        if (takenCount == taken.length) {
+            int[] grown = new int[taken.length * 2];
+            System.arraycopy(taken, 0, grown, 0, takenCount);
+            taken = grown;
+        }
+
+        int at = takenCount;
+        while (at > 0 && taken[at - 1] > tile) {
+            taken[at] = taken[at - 1];
+            at--;
+        }
+        taken[at] = tile;
+        takenCount++;
+        freeCount--;
+    }
+
+    /**
+     * Converts an interior index (inside the walls) to a map index
+     *
+     * @param tile interior index
+     * @return row-major map index
+     */
+    private int toMapIndex(int tile) {
+        return map.index(tile % inner + 1, tile / inner + 1);
+    }
+}
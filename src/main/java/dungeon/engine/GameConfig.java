@@ -0,0 +1,206 @@
+package dungeon.engine;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Immutable game configuration
+ * Handles:
+ * - Map size (10x10 default, up to 10,000x10,000)
+ * - Player hp and step budget
+ * - Item and mutant spawn counts
+ * Values are changed through with* methods, each returning a new configuration
+ */
+public final class GameConfig implements Serializable {
+    // smallest map with room for an entry, ladder and items inside the walls
+    public static final int MIN_MAP_SIZE = 4;
+
+    // largest supported map
+    public static final int MAX_MAP_SIZE = 10_000;
+
+    // default game settings
+    public static final GameConfig DEFAULT = new GameConfig(10, 10, 100, 5, 2, 5, 3, 1);
+
+    private final int mapSize;
+    private final int maxHp;
+    private final int maxSteps;
+    private final int goldCount;
+    private final int potionCount;
+    private final int trapCount;
+    private final int meleeCount;
+    private final int rangedPerDifficulty;
+
+    // serial version UID
+    @Serial
+    private static final long serialVersionUID = 0L;
+
+    private GameConfig(int mapSize, int maxHp, int maxSteps, int goldCount, int potionCount,
+                       int trapCount, int meleeCount, int rangedPerDifficulty) {
+        if (mapSize < MIN_MAP_SIZE || mapSize > MAX_MAP_SIZE) {
+            throw new IllegalArgumentException("Map size must be between " + MIN_MAP_SIZE + " and " + MAX_MAP_SIZE + ": " + mapSize);
+        }
+        if (maxHp <= 0 || maxSteps <= 0) {
+            throw new IllegalArgumentException("Max hp and max steps must be positive");
+        }
+        if (goldCount < 0 || potionCount < 0 || trapCount < 0 || meleeCount < 0 || rangedPerDifficulty < 0) {
+            throw new IllegalArgumentException("Spawn counts cannot be negative");
+        }
+
+        this.mapSize = mapSize;
+        this.maxHp = maxHp;
+        this.maxSteps = maxSteps;
+        this.goldCount = goldCount;
+        this.potionCount = potionCount;
+        this.trapCount = trapCount;
+        this.meleeCount = meleeCount;
+        this.rangedPerDifficulty = rangedPerDifficulty;
+    }
+
+    //------------------------------------------------------------------------------------------- WITHERS
+
+    /**
+     * Copies the configuration with a new map size
+     *
+     * @param mapSize map size (width/height)
+     * @return copy with the new map size
+     */
+    public GameConfig withMapSize(int mapSize) {
+        return new GameConfig(mapSize, maxHp, maxSteps, goldCount, potionCount, trapCount, meleeCount, rangedPerDifficulty);
+    }
+
+    /**
+     * Copies the configuration with a new max hp
+     *
+     * @param maxHp maximum player hp
+     * @return copy with the new max hp
+     */
+    public GameConfig withMaxHp(int maxHp) {
+        return new GameConfig(mapSize, maxHp, maxSteps, goldCount, potionCount, trapCount, meleeCount, rangedPerDifficulty);
+    }
+
+    /**
+     * Copies the configuration with a new step budget
+     *
+     * @param maxSteps player step budget
+     * @return copy with the new step budget
+     */
+    public GameConfig withMaxSteps(int maxSteps) {
+        return new GameConfig(mapSize, maxHp, maxSteps, goldCount, potionCount, trapCount, meleeCount, rangedPerDifficulty);
+    }
+
+    /**
+     * Copies the configuration with new spawn counts
+     *
+     * @param gold gold cells per level
+     * @param potions health potion cells per level
+     * @param traps trap cells per level
+     * @param melee melee mutant cells per level
+     * @param rangedPerDifficulty ranged mutant cells per level per difficulty point
+     * @return copy with the new spawn counts
+     */
+    public GameConfig withSpawns(int gold, int potions, int traps, int melee, int rangedPerDifficulty) {
+        return new GameConfig(mapSize, maxHp, maxSteps, gold, potions, traps, melee, rangedPerDifficulty);
+    }
+
+    //------------------------------------------------------------------------------------------- GETTERS
+
+    /**
+     * Gets the map size
+     * @return map size (width/height)
+     */
+    public int getMapSize() {
+        return mapSize;
+    }
+
+    /**
+     * Gets the maximum player hp
+     * @return maximum player hp
+     */
+    public int getMaxHp() {
+        return maxHp;
+    }
+
+    /**
+     * Gets the player step budget
+     * @return player step budget
+     */
+    public int getMaxSteps() {
+        return maxSteps;
+    }
+
+    /**
+     * Gets the gold cells per level
+     * @return gold cells per level
+     */
+    public int getGoldCount() {
+        return goldCount;
+    }
+
+    /**
+     * Gets the health potion cells per level
+     * @return health potion cells per level
+     */
+    public int getPotionCount() {
+        return potionCount;
+    }
+
+    /**
+     * Gets the trap cells per level
+     * @return trap cells per level
+     */
+    public int getTrapCount() {
+        return trapCount;
+    }
+
+    /**
+     * Gets the melee mutant cells per level
+     * @return melee mutant cells per level
+     */
+    public int getMeleeCount() {
+        return meleeCount;
+    }
+
+    /**
+     * Gets the ranged mutant count for a difficulty
+     * @param difficulty level difficulty
+     * @return ranged mutant cells for a level of the given difficulty
+     */
+    public int getRangedCount(int difficulty) {
+        return difficulty * rangedPerDifficulty;
+    }
+
+    /**
+     * Gets the ranged mutant cells per level per difficulty point
+     * @return ranged mutant cells per level per difficulty point
+     */
+    public int getRangedPerDifficulty() {
+        return rangedPerDifficulty;
+    }
+
+    //------------------------------------------------------------------------------------------- EQUALITY
+
+    /**
+     * Compares configurations by value
+     *
+     * @param o object to compare
+     * @return true if every setting matches
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GameConfig other)) return false;
+        return mapSize == other.mapSize && maxHp == other.maxHp && maxSteps == other.maxSteps
+                && goldCount == other.goldCount && potionCount == other.potionCount && trapCount == other.trapCount
+                && meleeCount == other.meleeCount && rangedPerDifficulty == other.rangedPerDifficulty;
+    }
+
+    /**
+     * Hashes every setting
+     * @return hash code
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(mapSize, maxHp, maxSteps, goldCount, potionCount, trapCount, meleeCount, rangedPerDifficulty);
+    }
+}
@@ -4,6 +4,9 @@ import dungeon.engine.cells.Interaction;
 import dungeon.engine.cells.set.Empty;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Main class for handling game functionality
@@ -11,8 +14,9 @@ import java.io.*;
  * Handles:
  * - Game state management (level, player, difficulty and game status updates)
  * - Movement processing
- * - Level progression
- * - Save/load functionality
+ * - Level progression (next level generated in the background)
+ * - Deterministic games from a master seed
+ * - Save/load functionality (background atomic saves, optional move journal between snapshots)
  * - Score tracking
  */
 public class GameEngine implements Serializable {
@@ -22,8 +26,22 @@ public class GameEngine implements Serializable {
     private int level;
     private boolean gameOver;
     private int deathType;
-    private final Score scoreImport;
+    private final transient ScoreHandler scoreImport; // high scores are kept in their own file, not saved
     private boolean isNewHS;
+    private final GameConfig config;
+    private long seed;
+
+    // next level generated in the background, not saved
+    private transient LevelPreloader preloader;
+    private transient boolean seeded; // seed chosen by the caller, levels are shared through the level cache
+
+    // moves since the last save, null when journaling is off
+    private transient MoveJournal journal;
+    private transient volatile boolean snapshotPending;
+    private transient boolean manualSave; // the last save was asked for, not a journal snapshot
+
+    // log of finished games, null when not recording
+    private transient GameHistory history;
 
     // serial version UID
     @Serial
@@ -34,22 +52,86 @@ public class GameEngine implements Serializable {
 
     /**
      * Constructor with full dependencies
+     * Games with the same seed, difficulty and configuration are identical, their levels are generated once and
+     * copied from the shared level cache
      *
      * @param difficulty initial game difficulty (0-10)
      * @param scoreHandler communicates with the ScoreHandler interface for score-related tasks
      * @param savePath gamesave file storage path
+     * @param config game configuration (map size, hp, step budget and spawn counts)
+     * @param seed master seed for level generation and combat
      */
-    public GameEngine(int difficulty, ScoreHandler scoreHandler, String savePath) {
+    public GameEngine(int difficulty, ScoreHandler scoreHandler, String savePath, GameConfig config, long seed) {
+        this(difficulty, scoreHandler, savePath, config, seed, true);
+    }
+
+    /**
+     * Constructor generating level 1 from a master seed
+     *
+     * @param difficulty initial game difficulty (0-10)
+     * @param scoreHandler communicates with the ScoreHandler interface for score-related tasks
+     * @param savePath gamesave file storage path
+     * @param config game configuration (map size, hp, step budget and spawn counts)
+     * @param seed master seed for level generation and combat
+     * @param seeded true if the seed was chosen (levels go through the level cache), false for a random seed
+     */
+    private GameEngine(int difficulty, ScoreHandler scoreHandler, String savePath, GameConfig config, long seed,
+                       boolean seeded) {
+        this(difficulty, scoreHandler, savePath, config, seed, null);
+        this.seeded = seeded;
+        initLevel(seeded
+                ? LevelCache.shared().get(seed, level, this.difficulty, config)
+                : LevelCache.generate(seed, level, this.difficulty, config));
+    }
+
+    /**
+     * Constructor starting on a level generated ahead of time (see SessionManager)
+     *
+     * @param difficulty initial game difficulty (0-10)
+     * @param scoreHandler communicates with the ScoreHandler interface for score-related tasks
+     * @param savePath gamesave file storage path
+     * @param config game configuration (map size, hp, step budget and spawn counts)
+     * @param seed master seed for level generation and combat
+     * @param first level 1 generated from the seed, null for a game restored from a save straight after
+     */
+    GameEngine(int difficulty, ScoreHandler scoreHandler, String savePath, GameConfig config, long seed, Level first) {
+        this.seed = seed;
         this.difficulty = Math.min(10, Math.max(0, difficulty)); // difficulty between 0 and 10
         this.level = 1;
-        this.player = new Player(10, 100); // Injecting max health and steps
+        this.config = config;
+        this.player = new Player(config.getMaxHp(), config.getMaxSteps()); // Injecting max health and steps
         this.gameOver = false;
         this.deathType = -1; // represents no death, 0 is death due to no hp, 1 is death due to max steps reached, etc...
-        this.scoreImport = (Score) scoreHandler;
+        this.scoreImport = scoreHandler;
         this.isNewHS = false;
         this.savePath = savePath;
 
-        initLevel();
+        if (first != null) {
+            initLevel(first);
+        }
+    }
+
+    /**
+     * Constructor with a random master seed
+     *
+     * @param difficulty initial game difficulty (0-10)
+     * @param scoreHandler communicates with the ScoreHandler interface for score-related tasks
+     * @param savePath gamesave file storage path
+     * @param config game configuration (map size, hp, step budget and spawn counts)
+     */
+    public GameEngine(int difficulty, ScoreHandler scoreHandler, String savePath, GameConfig config) {
+        this(difficulty, scoreHandler, savePath, config, Seeds.randomSeed(), false);
+    }
+
+    /**
+     * Constructor with the default game configuration
+     *
+     * @param difficulty initial game difficulty (0-10)
+     * @param scoreHandler communicates with the ScoreHandler interface for score-related tasks
+     * @param savePath gamesave file storage path
+     */
+    public GameEngine(int difficulty, ScoreHandler scoreHandler, String savePath) {
+        this(difficulty, scoreHandler, savePath, GameConfig.DEFAULT);
     }
 
     /**
@@ -58,19 +140,32 @@ public class GameEngine implements Serializable {
      * @param difficulty initial game difficulty (0-10)
      */
     public GameEngine(int difficulty) {
-        this(difficulty, new Score("md_highscores.dat"), "saves.dat");
+        this(difficulty, ScoreService.shared(), "saves.dat");
     }
 
     /**
-     * - Initialises a new level with initial difficulty
+     * - Starts the game on its first level
      * - Places player at the default entry point
+     *
+     * @param first level 1 of the game
      */
-    private void initLevel() {
-        currentLevel = new Level(level, difficulty, 10);
+    private void initLevel(Level first) {
+        currentLevel = first;
 
         // setting player pos to entry
         Position entryPos = currentLevel.getEntryPos();
         player.startPos(entryPos.getX(), entryPos.getY());
+
+        preloadNextLevel();
+    }
+
+    /**
+     * Starts generating the next level in the background when there is one
+     */
+    private void preloadNextLevel() {
+        if (level == 1) {
+            preloader().request(seed, 2, difficulty + 2, config);
+        }
     }
 
     //------------------------------------------------------------------------------------------- MOVEMENT
@@ -80,7 +175,7 @@ public class GameEngine implements Serializable {
      * @return string of movement result
      */
     public String moveUp() {
-        return processMove("up");
+        return move(Direction.UP).getMessage();
     }
 
     /**
@@ -88,7 +183,7 @@ public class GameEngine implements Serializable {
      * @return string of movement result
      */
     public String moveDown() {
-        return processMove("down");
+        return move(Direction.DOWN).getMessage();
     }
 
     /**
@@ -96,7 +191,7 @@ public class GameEngine implements Serializable {
      * @return string of movement result
      */
     public String moveLeft() {
-        return processMove("left");
+        return move(Direction.LEFT).getMessage();
     }
 
     /**
@@ -104,7 +199,7 @@ public class GameEngine implements Serializable {
      * @return string of movement result
      */
     public String moveRight() {
-        return processMove("right");
+        return move(Direction.RIGHT).getMessage();
     }
 
     /**
@@ -112,108 +207,137 @@ public class GameEngine implements Serializable {
      *
      * Handles position calculation, collision checks, player/cell interactions,
      * level transitions and ranged attack checks
+     * Plain moves (no interaction, no damage, no level change) allocate nothing
+     * With journaling on, each move is appended to the journal and a snapshot is saved every few moves
+     * With a history log set, the move that ends the game appends it to the log
      *
      * @param direction to move
-     * @return string of movement results (output)
-     */
-    private String processMove(String direction) {
-        Position oldPos = new Position(player.getPosition());
-        Position newPos = new Position(oldPos);
-        String output = "Moved " + direction;
-
-        // movement calculations
-        switch (direction.toLowerCase()) {
-            case "up":
-                newPos.setY(oldPos.getY() - 1);
-                break;
-            case "down":
-                newPos.setY(oldPos.getY() + 1);
-                break;
-            case "left":
-                newPos.setX(oldPos.getX() - 1);
-                break;
-            case "right":
-                newPos.setX(oldPos.getX() + 1);
-                break;
-            default:
-                return "Invalid move.";
+     * @return structured move result, message text is rendered on request
+     */
+    public MoveResult move(Direction direction) {
+        boolean wasOver = gameOver;
+        MoveResult result = applyMove(direction);
+        if (journal != null && !result.isBlocked()) {
+            journalMove(direction);
         }
+        if (history != null && gameOver && !wasOver) {
+            recordGame();
+        }
+        return result;
+    }
+
+    /**
+     * Appends the finished game to the history log
+     */
+    private void recordGame() {
+        try {
+            history.append(new GameRecord(player.getScore(), deathType, level, player.getSteps(), player.getHp(),
+                    difficulty, seed, System.currentTimeMillis()));
+        } catch (IOException e) {
+            System.err.println("Error writing game history: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Applies a move to the game state (shared by play and journal replay)
+     *
+     * @param direction to move
+     * @return structured move result
+     */
+    private MoveResult applyMove(Direction direction) {
+        Position position = player.getPosition();
+        int x = position.getX() + direction.getDx();
+        int y = position.getY() + direction.getDy();
+        TileGrid tiles = currentLevel.getTiles();
 
         // checking if move is valid
-        Cell targetCell = currentLevel.getCell(newPos);
-        if (targetCell.cellCanWalk()) {
-            output += " one step.";
-
-            // updating player position
-            switch (direction.toLowerCase()) {
-                case "up":
-                    player.moveUp();
-                    break;
-                case "down":
-                    player.moveDown();
-                    break;
-                case "left":
-                    player.moveLeft();
-                    break;
-                case "right":
-                    player.moveRight();
-                    break;
-            }
+        if (!tiles.canWalk(x, y)) {
+            return MoveResult.blocked(direction);
+        }
 
-            // player-cell interaction
-            if (targetCell instanceof Interaction interaction) {
-                String interactionResult = player.interact(interaction);
-                output += " " + interactionResult;
+        // updating player position
+        player.move(direction);
 
-                if (interaction.cellRemoveOnUse()) {
-                    // replaces cell with empty cell
-                    currentLevel.setCell(newPos, new Empty());
-                }
+        // player-cell interaction
+        CellType interacted = null;
+        String interactionText = null;
+        Cell targetCell = tiles.getCell(x, y);
+        if (targetCell instanceof Interaction interaction) {
+            interacted = CellType.of(targetCell);
+            interactionText = player.interact(interaction);
+
+            if (interaction.cellRemoveOnUse()) {
+                // replaces cell with the shared empty cell
+                currentLevel.setCell(position, Empty.INSTANCE);
             }
+        }
 
-            if (currentLevel.isLadder(player.getPosition())) {
-                if (level == 1) {
-                    // next level
-                    level = 2;
-                    difficulty += 2;
-                    Position ladderPos = currentLevel.getLadderPos();
+        if (currentLevel.isLadder(position)) {
+            if (level == 1) {
+                // next level
+                level = 2;
+                difficulty += 2;
+                Position ladderPos = currentLevel.getLadderPos();
 
-                    currentLevel = new Level(level, difficulty, 10);
+                currentLevel = preloader().take(seed, level, difficulty, config);
 
-                    currentLevel.setEntryPos(ladderPos);
+                currentLevel.setEntryPos(ladderPos);
 
-                    player.startPos(ladderPos.getX(), ladderPos.getY());
+                player.startPos(ladderPos.getX(), ladderPos.getY());
 
-                    output += " Moving onto level " + level + ". ";
-                } else {
-                    // player win
-                    gameOver = true;
-                    output += " Hey, that's the exit to the dungeon! You win!";
+                return MoveResult.moved(direction, interacted, interactionText, 0, level, false, false, -1);
+            }
 
-                    // checking if score is a new high score
-                    isNewHS = scoreImport.addScore(player.getScore());
-                    if (isNewHS) {
-                        output += " Congratulations! You got a new high score!";
-                    }
-                }
+            // player win
+            gameOver = true;
 
-                return output; // early output to skip ranged attack checks on level transitions
-            }
+            // checking if score is a new high score
+            isNewHS = scoreImport.addScore(player.getScore(), difficulty, seed);
 
-            // check for ranged attacks
-            int rangedDamage = currentLevel.checkRange(player);
-            if (rangedDamage > 0) {
-                player.hurt(rangedDamage);
-                output += " A flurry of arrows approached you and dealt " + rangedDamage + " damage, ouch!";
-            }
+            // early return to skip ranged attack checks on level transitions
+            return MoveResult.moved(direction, interacted, interactionText, 0, 0, true, isNewHS, -1);
+        }
 
-            // check game over conditions
-            checkGameOver();
-        } else {
-            output += " hit a wall.";
+        // check for ranged attacks
+        int rangedDamage = currentLevel.checkRange(player);
+        if (rangedDamage > 0) {
+            player.hurt(rangedDamage);
         }
 
-        return output;
+        // check game over conditions, only reporting a death on the move that caused it
+        boolean wasOver = gameOver;
+        checkGameOver();
+        int moveDeathType = gameOver && !wasOver ? deathType : -1;
+
+        return MoveResult.moved(direction, interacted, interactionText, rangedDamage, 0, false, false, moveDeathType);
+    }
+
+    /**
+     * Appends a move to the journal, saving a snapshot when one is due
+     * A finished game has nothing left to resume, so its journal is removed, along with the save if the journal
+     * wrote it (a save the player asked for is kept)
+     *
+     * @param direction direction moved
+     */
+    private void journalMove(Direction direction) {
+        if (gameOver) {
+            journal.closeAsync();
+            journal = null;
+            Path journalPath = MoveJournal.pathFor(savePath);
+            if (manualSave) {
+                SaveService.shared().delete(journalPath); // after pending saves
+            } else {
+                SaveService.shared().delete(journalPath, Path.of(savePath));
+            }
+        } else if (journal.append(direction) && !snapshotPending) {
+            snapshotPending = true;
+            save(false).thenAccept(result -> {
+                snapshotPending = false;
+                if (!result.equals("Game saved!")) {
+                    System.err.println(result);
+                }
+            });
+        }
     }
 
     /**
@@ -242,13 +366,21 @@ public class GameEngine implements Serializable {
     }
 
     /**
-     * Gets the 2d cell array level representation of the current level
+     * Gets a 2d cell array snapshot of the current level
      * @return 2d array of cells
      */
     public Cell[][] getMap() {
         return currentLevel.getMap();
     }
 
+    /**
+     * Gets the packed tile grid of the current level (used for rendering)
+     * @return tile grid
+     */
+    public TileGrid getTiles() {
+        return currentLevel.getTiles();
+    }
+
     /**
      * Gets the player
      * @return player instance
@@ -281,6 +413,78 @@ public class GameEngine implements Serializable {
         return scoreImport.formatScores();
     }
 
+    /**
+     * Gets the game configuration
+     * @return game configuration
+     */
+    public GameConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Gets the next level preloader and its hit/miss metrics
+     * @return level preloader
+     */
+    public LevelPreloader getPreloader() {
+        return preloader();
+    }
+
+    /**
+     * Gets the next level preloader, creating it on first use
+     * @return level preloader
+     */
+    private LevelPreloader preloader() {
+        if (preloader == null) {
+            // transient, missing after deserialisation, random-seed and loaded games skip the cache
+            preloader = new LevelPreloader(seeded ? LevelCache.shared() : null);
+        }
+        return preloader;
+    }
+
+    /**
+     * Estimates the heap memory held by the game, including a preloaded next level
+     * @return estimated bytes
+     */
+    public long estimateBytes() {
+        Level next = preloader == null ? null : preloader.peek();
+        return 256 + currentLevel.estimateBytes() + (next == null ? 0 : next.estimateBytes());
+    }
+
+    /**
+     * Gets the current difficulty
+     * @return difficulty (0-10, +2 on level 2)
+     */
+    public int getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * Checks if the winning score was a new high score
+     * @return true if new high score
+     */
+    public boolean isNewHighScore() {
+        return isNewHS;
+    }
+
+    /**
+     * Gets the share of wins on the final difficulty the winning score beats
+     * @return percentage between 0 and 100, NaN if the game was not won or the score handler keeps no distribution
+     */
+    public double getPercentBeaten() {
+        if (!gameOver || deathType >= 0) {
+            return Double.NaN;
+        }
+        return scoreImport.percentBeaten(player.getScore(), difficulty);
+    }
+
+    /**
+     * Gets the master seed of the game
+     * @return master seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
     /**
      * Gets the current level number
      * @return current level
@@ -292,22 +496,108 @@ public class GameEngine implements Serializable {
     //------------------------------------------------------------------------------------------- SAVE/LOAD
 
     /**
-     * Saves the current game to file
+     * Saves the current game to file, waiting until it is on disk
      *
      * @return String of save result status
      */
     public String saveGame() {
-        try (ObjectOutputStream out = new ObjectOutputStream(
-                new BufferedOutputStream(new FileOutputStream(savePath)))) {
-            out.writeObject(this);
-            return "Game saved!";
+        return saveGameAsync().join();
+    }
+
+    /**
+     * Saves the current game to file in the background in the binary save format (see SaveCodec)
+     * The game is encoded on the calling thread, so play can continue straight away
+     * The file is replaced atomically, with journaling on the journal moves over to the new save once written
+     *
+     * @return future completing with the save result status once the save is on disk
+     */
+    public CompletableFuture<String> saveGameAsync() {
+        return save(true);
+    }
+
+    /**
+     * Saves the current game in the background
+     *
+     * @param manual true if the player asked for the save, false for journal snapshots
+     * @return future completing with the save result status once the save is on disk
+     */
+    private CompletableFuture<String> save(boolean manual) {
+        byte[] snapshot = SaveCodec.encode(this);
+        MoveJournal snapshotJournal = journal;
+        long mark = snapshotJournal == null ? 0 : snapshotJournal.getMark();
+        manualSave = manual;
+
+        return SaveService.shared().submit(() -> {
+            SaveService.writeAtomically(Path.of(savePath), snapshot);
+            if (snapshotJournal != null) {
+                snapshotJournal.rebase(snapshot, mark);
+            }
+        }).handle((done, error) -> error == null ? "Game saved!" : "Error saving game: " + SaveService.ioMessage(error));
+    }
+
+    /**
+     * Turns on crash-safe autosaving, waiting until the base snapshot is on disk
+     *
+     * @param snapshotInterval moves between snapshots
+     * @return String of save result status
+     */
+    public String enableJournal(int snapshotInterval) {
+        return enableJournalAsync(snapshotInterval).join();
+    }
+
+    /**
+     * Turns on crash-safe autosaving
+     * Each move is appended to a journal next to the save file and a full snapshot is saved every few moves,
+     * loading restores the snapshot and replays the journal
+     * Saves a snapshot in the background straight away, so the journal always has a base, moves made before it is
+     * on disk are kept and journaled after it
+     *
+     * @param snapshotInterval moves between snapshots
+     * @return future completing with the save result status once the base snapshot and journal are on disk
+     */
+    public CompletableFuture<String> enableJournalAsync(int snapshotInterval) {
+        if (journal != null) {
+            journal.closeAsync();
+        }
+        journal = new MoveJournal(MoveJournal.pathFor(savePath), snapshotInterval);
+        return save(false);
+    }
+
+    /**
+     * Turns off journaling, waiting until any moves not yet on disk are synced
+     */
+    public void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
         } catch (IOException e) {
-            return "Error saving game: " + e.getMessage();
+            System.err.println("Error closing move journal: " + e.getMessage());
         }
+        journal = null;
+    }
+
+    /**
+     * Sets the log finished games are appended to
+     * @param history history log, null to stop recording
+     */
+    public void setHistory(GameHistory history) {
+        this.history = history;
+    }
+
+    /**
+     * Checks if moves are being journaled
+     * @return true if journaling is on
+     */
+    public boolean isJournaling() {
+        return journal != null;
     }
 
     /**
      * Loads a saved game instance from file
+     * Reads the binary save format and saves written with Java serialization by older versions
+     * Moves journaled after the save are replayed, with journaling on the result is saved as a new snapshot
      *
      * @return true if load successful
      */
@@ -316,18 +606,20 @@ public class GameEngine implements Serializable {
             return false; // no save file
         }
 
-        try (ObjectInputStream in = new ObjectInputStream(
-                new BufferedInputStream(new FileInputStream(savePath)))) {
-            GameEngine loaded = (GameEngine) in.readObject();
-
-            this.currentLevel = loaded.currentLevel;
-            this.player.copyFrom(loaded.player);
-            this.difficulty = loaded.difficulty;
-            this.level = loaded.level;
-            this.gameOver = loaded.gameOver;
-            this.deathType = loaded.deathType;
-            this.isNewHS = loaded.isNewHS;
+        try {
+            byte[] data = Files.readAllBytes(Path.of(savePath));
+            if (SaveCodec.isLegacy(data)) {
+                loadLegacy(data);
+            } else {
+                SaveCodec.decode(data, this);
+                for (Direction direction : MoveJournal.read(MoveJournal.pathFor(savePath), data)) {
+                    applyMove(direction);
+                }
+            }
 
+            if (journal != null) {
+                save(false).join(); // compacts the replayed moves into a snapshot
+            }
             return true;
         } catch (IOException | ClassNotFoundException e) {
             System.err.println("Error loading game: " + e.getMessage());
@@ -335,6 +627,47 @@ public class GameEngine implements Serializable {
         }
     }
 
+    /**
+     * Loads a save written with Java serialization (save format version 0)
+     *
+     * @param data saved data
+     * @throws IOException if the save cannot be read
+     * @throws ClassNotFoundException if the save refers to unknown classes
+     */
+    private void loadLegacy(byte[] data) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            GameEngine loaded = (GameEngine) in.readObject();
+            restore(loaded.currentLevel, loaded.player, loaded.difficulty, loaded.level,
+                    loaded.gameOver, loaded.deathType, loaded.isNewHS, loaded.seed);
+        }
+    }
+
+    /**
+     * Replaces the game state with loaded state
+     *
+     * @param currentLevel loaded level
+     * @param player loaded player (stats and position are copied)
+     * @param difficulty current difficulty
+     * @param level current level number
+     * @param gameOver true if the game has ended
+     * @param deathType death type (-1 = no death, 0 = no hp, 1 = max steps)
+     * @param isNewHS true if the winning score was a new high score
+     * @param seed master seed
+     */
+    void restore(Level currentLevel, Player player, int difficulty, int level,
+                 boolean gameOver, int deathType, boolean isNewHS, long seed) {
+        this.currentLevel = currentLevel;
+        this.player.copyFrom(player);
+        this.difficulty = difficulty;
+        this.level = level;
+        this.gameOver = gameOver;
+        this.deathType = deathType;
+        this.isNewHS = isNewHS;
+        this.seed = seed;
+
+        preloadNextLevel();
+    }
+
     /**
      * Checks if a save instance exists
      *
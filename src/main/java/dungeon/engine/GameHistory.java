@@ -0,0 +1,360 @@
+package dungeon.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only log of every finished game, for balance analysis
+ * Handles:
+ * - One fixed-width record per game in memory-mapped segment files (history-000000.log, ...) in a directory,
+ *   a full segment is synced and the log rolls over to the next one
+ * - Appends from several processes: the record count is read and bumped under a lock on the segment header
+ * - Parallel scans, one task per segment, computing win rate, mean steps and death causes (HistoryStats)
+ * Use one instance per directory in a JVM (GameHistory.shared() for md_history)
+ *
+ * Segment format (big-endian):
+ *   header:  magic "MDGH" | version u16 | record size u16 | capacity u32 | record count u32
+ *   records: score i32 | death type i32 | level i32 | steps i32 | hp i32 | difficulty i32 | seed i64 | time (epoch ms) i64
+ *   A record is only counted once it is fully written
+ */
+public final class GameHistory {
+    // segment magic ("MDGH"), version and sizes
+    private static final int MAGIC = 0x4D444748;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 40;
+    private static final int COUNT_OFFSET = 12;
+
+    // records per new segment (10 MB)
+    public static final int DEFAULT_SEGMENT_RECORDS = 1 << 18;
+
+    private final Path directory;
+    private final int segmentRecords;
+
+    // segment being appended to, opened on the first append
+    private int segment = -1;
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private int capacity;
+
+    /**
+     * Creates a history log with the default segment size
+     *
+     * @param directory log directory, created on the first append
+     */
+    public GameHistory(Path directory) {
+        this(directory, DEFAULT_SEGMENT_RECORDS);
+    }
+
+    /**
+     * Creates a history log
+     *
+     * @param directory log directory, created on the first append
+     * @param segmentRecords records per new segment (existing segments keep their own size)
+     */
+    public GameHistory(Path directory, int segmentRecords) {
+        if (segmentRecords <= 0 || segmentRecords > (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE) {
+            throw new IllegalArgumentException("Invalid segment size " + segmentRecords);
+        }
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+    }
+
+    /**
+     * Gets the md_history log shared by every game in the JVM
+     * @return shared history log
+     */
+    public static GameHistory shared() {
+        return Shared.INSTANCE;
+    }
+
+    /**
+     * Lazily created shared log
+     */
+    private static final class Shared {
+        private static final GameHistory INSTANCE = new GameHistory(Path.of("md_history"));
+    }
+
+    //------------------------------------------------------------------------------------------- WRITING
+
+    /**
+     * Appends a finished game
+     *
+     * @param record game to append
+     * @throws IOException if the segment cannot be opened or locked
+     */
+    public synchronized void append(GameRecord record) throws IOException {
+        if (map == null) {
+            openSegment(Math.max(0, lastSegment()));
+        }
+
+        while (true) {
+            FileLock lock = channel.lock(0, HEADER_SIZE, false);
+            try {
+                int count = map.getInt(COUNT_OFFSET); // may have been bumped by another process
+                if (count < capacity) {
+                    int position = HEADER_SIZE + count * RECORD_SIZE;
+                    map.putInt(position, record.getScore())
+                            .putInt(position + 4, record.getDeathType())
+                            .putInt(position + 8, record.getLevel())
+                            .putInt(position + 12, record.getSteps())
+                            .putInt(position + 16, record.getHp())
+                            .putInt(position + 20, record.getDifficulty())
+                            .putLong(position + 24, record.getSeed())
+                            .putLong(position + 32, record.getEpochMillis());
+                    map.putInt(COUNT_OFFSET, count + 1);
+                    return;
+                }
+            } finally {
+                lock.release();
+            }
+            map.force(); // full, synced before rolling over
+            openSegment(segment + 1);
+        }
+    }
+
+    /**
+     * Writes appended records through to disk (the OS writes them in any case, even if the JVM exits)
+     */
+    public synchronized void sync() {
+        if (map != null) {
+            map.force();
+        }
+    }
+
+    /**
+     * Syncs and closes the segment being appended to, the next append reopens it
+     *
+     * @throws IOException if closing fails
+     */
+    public synchronized void close() throws IOException {
+        sync();
+        closeSegment();
+    }
+
+    /**
+     * Opens a segment for appending, creating it if needed
+     *
+     * @param index segment number
+     * @throws IOException if the segment cannot be created or is not a history segment
+     */
+    private void openSegment(int index) throws IOException {
+        closeSegment();
+        Files.createDirectories(directory);
+        FileChannel opened = FileChannel.open(segmentPath(index), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            FileLock lock = opened.lock(0, HEADER_SIZE, false);
+            try {
+                if (opened.size() < HEADER_SIZE) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                            .putInt(MAGIC)
+                            .putShort((short) VERSION)
+                            .putShort((short) RECORD_SIZE)
+                            .putInt(segmentRecords)
+                            .putInt(0)
+                            .flip();
+                    while (header.hasRemaining()) {
+                        opened.write(header, header.position());
+                    }
+                }
+                int records = readHeader(opened, segmentPath(index)).getInt(8);
+                map = opened.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) records * RECORD_SIZE);
+                capacity = records;
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            opened.close();
+            throw e;
+        }
+        channel = opened;
+        segment = index;
+    }
+
+    /**
+     * Closes the segment being appended to
+     *
+     * @throws IOException if closing fails
+     */
+    private void closeSegment() throws IOException {
+        map = null; // unmapped once collected
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    //------------------------------------------------------------------------------------------- READING
+
+    /**
+     * Computes aggregates over every game in the log, scanning segments in parallel
+     *
+     * @return aggregates, empty for an empty log
+     * @throws IOException if a segment cannot be read
+     */
+    public HistoryStats scan() throws IOException {
+        try {
+            return segments().parallelStream()
+                    .map(GameHistory::scanSegment)
+                    .reduce(HistoryStats::merge)
+                    .orElseGet(HistoryStats::new);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Counts the games in the log
+     *
+     * @return record count
+     * @throws IOException if a segment cannot be read
+     */
+    public long count() throws IOException {
+        long total = 0;
+        for (Path path : segments()) {
+            try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+                total += readCount(in, path);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Reads every game in the log, oldest first (for exports, not aggregates)
+     *
+     * @return games in the log
+     * @throws IOException if a segment cannot be read
+     */
+    public List<GameRecord> records() throws IOException {
+        List<GameRecord> records = new ArrayList<>();
+        for (Path path : segments()) {
+            try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+                int count = readCount(in, path);
+                ByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE + (long) count * RECORD_SIZE);
+                for (int i = 0; i < count; i++) {
+                    int position = HEADER_SIZE + i * RECORD_SIZE;
+                    records.add(new GameRecord(data.getInt(position), data.getInt(position + 4), data.getInt(position + 8),
+                            data.getInt(position + 12), data.getInt(position + 16), data.getInt(position + 20),
+                            data.getLong(position + 24), data.getLong(position + 32)));
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Scans one segment
+     *
+     * @param path segment file
+     * @return aggregates of the segment
+     */
+    private static HistoryStats scanSegment(Path path) {
+        HistoryStats stats = new HistoryStats();
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            int count = readCount(in, path);
+            ByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE + (long) count * RECORD_SIZE);
+            for (int position = HEADER_SIZE, end = HEADER_SIZE + count * RECORD_SIZE; position < end; position += RECORD_SIZE) {
+                stats.add(data.getInt(position), data.getInt(position + 4), data.getInt(position + 12), data.getInt(position + 20));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return stats;
+    }
+
+    /**
+     * Reads the record count of a segment, limited to the records the file holds
+     *
+     * @param in segment channel
+     * @param path segment file (for errors)
+     * @return record count
+     * @throws IOException if the segment is not a history segment
+     */
+    private static int readCount(FileChannel in, Path path) throws IOException {
+        ByteBuffer header = readHeader(in, path);
+        long held = (in.size() - HEADER_SIZE) / RECORD_SIZE;
+        return (int) Math.max(0, Math.min(header.getInt(COUNT_OFFSET), Math.min(header.getInt(8), held)));
+    }
+
+    /**
+     * Reads and checks a segment header
+     *
+     * @param in segment channel
+     * @param path segment file (for errors)
+     * @return header, capacity at offset 8 and record count at offset 12
+     * @throws IOException if the segment is not a history segment
+     */
+    private static ByteBuffer readHeader(FileChannel in, Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (in.read(header, header.position()) < 0) {
+                throw new IOException("Game history segment is truncated: " + path.getFileName());
+            }
+        }
+        if (header.getInt(0) != MAGIC || header.getShort(4) != VERSION || header.getShort(6) != RECORD_SIZE) {
+            throw new IOException("Not a game history segment: " + path.getFileName());
+        }
+        int records = header.getInt(8);
+        if (records <= 0 || records > (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE) {
+            throw new IOException("Invalid game history segment size: " + path.getFileName());
+        }
+        return header;
+    }
+
+    /**
+     * Lists the segment files in order
+     *
+     * @return segment paths, oldest first
+     * @throws IOException if the directory cannot be read
+     */
+    public List<Path> segments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "history-*.log")) {
+                files.forEach(segments::add);
+            }
+        }
+        segments.sort(null); // fixed-width numbers sort by name
+        return segments;
+    }
+
+    /**
+     * Finds the number of the newest segment
+     *
+     * @return segment number, -1 without segments
+     * @throws IOException if the directory cannot be read
+     */
+    private int lastSegment() throws IOException {
+        int last = -1;
+        for (Path path : segments()) {
+            String name = path.getFileName().toString();
+            try {
+                last = Math.max(last, Integer.parseInt(name.substring("history-".length(), name.length() - ".log".length())));
+            } catch (NumberFormatException e) {
+                // not a log segment
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Gets the file path of a segment
+     *
+     * @param index segment number
+     * @return segment path
+     */
+    public Path segmentPath(int index) {
+        return directory.resolve(String.format("history-%06d.log", index));
+    }
+}
@@ -0,0 +1,121 @@
+package dungeon.engine;
+
+/**
+ * One finished game in the game history log
+ * Immutable, stored as a fixed-width record
+ */
+public final class GameRecord {
+    private final int score;
+    private final int deathType;
+    private final int level;
+    private final int steps;
+    private final int hp;
+    private final int difficulty;
+    private final long seed;
+    private final long epochMillis;
+
+    /**
+     * Creates a game record
+     *
+     * @param score final score (-1 after a death)
+     * @param deathType death type (-1 = win, 0 = no hp, 1 = max steps reached)
+     * @param level level reached
+     * @param steps steps taken
+     * @param hp hp left
+     * @param difficulty difficulty at the end of the game
+     * @param seed game master seed
+     * @param epochMillis time the game ended (epoch milliseconds)
+     */
+    public GameRecord(int score, int deathType, int level, int steps, int hp, int difficulty, long seed, long epochMillis) {
+        this.score = score;
+        this.deathType = deathType;
+        this.level = level;
+        this.steps = steps;
+        this.hp = hp;
+        this.difficulty = difficulty;
+        this.seed = seed;
+        this.epochMillis = epochMillis;
+    }
+
+    /**
+     * Gets the final score
+     * @return score, -1 after a death
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Gets the death type
+     * @return death type, -1 for a win
+     */
+    public int getDeathType() {
+        return deathType;
+    }
+
+    /**
+     * Checks if the game was won
+     * @return true if the player reached the last ladder
+     */
+    public boolean isWin() {
+        return deathType < 0;
+    }
+
+    /**
+     * Gets the level reached
+     * @return level number
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Gets the steps taken
+     * @return steps
+     */
+    public int getSteps() {
+        return steps;
+    }
+
+    /**
+     * Gets the hp left
+     * @return hp
+     */
+    public int getHp() {
+        return hp;
+    }
+
+    /**
+     * Gets the difficulty at the end of the game
+     * @return difficulty
+     */
+    public int getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * Gets the game master seed
+     * @return master seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the time the game ended
+     * @return epoch milliseconds
+     */
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+
+    /**
+     * One line game description
+     * @return game description
+     */
+    @Override
+    public String toString() {
+        return (isWin() ? "Win" : "Death " + deathType) + ": score " + score + ", level " + level + ", steps " + steps
+                + ", HP " + hp + ", difficulty " + difficulty;
+    }
+}
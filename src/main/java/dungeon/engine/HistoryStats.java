@@ -0,0 +1,193 @@
+package dungeon.engine;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregates over the game history log (see GameHistory.scan)
+ * Handles:
+ * - Game, win, step and score totals, overall and per difficulty
+ * - Death cause counts by death type
+ * - Merging partial results, so segments can be scanned in parallel
+ * Not thread-safe, each scan fills its own instance
+ */
+public final class HistoryStats {
+    private long games;
+    private long wins;
+    private long steps;
+    private long winScore; // total score of won games (deaths score -1)
+    private long[] deaths = new long[2]; // by death type
+    private long[] gamesByDifficulty = new long[13];
+    private long[] winsByDifficulty = new long[13];
+
+    /**
+     * Adds one game
+     *
+     * @param score final score
+     * @param deathType death type, -1 for a win
+     * @param steps steps taken
+     * @param difficulty difficulty at the end of the game
+     */
+    void add(int score, int deathType, int steps, int difficulty) {
+        games++;
+        this.steps += steps;
+        if (difficulty >= 0) {
+            gamesByDifficulty = grow(gamesByDifficulty, difficulty);
+            gamesByDifficulty[difficulty]++;
+        }
+
+        if (deathType < 0) {
+            wins++;
+            winScore += score;
+            if (difficulty >= 0) {
+                winsByDifficulty = grow(winsByDifficulty, difficulty);
+                winsByDifficulty[difficulty]++;
+            }
+        } else {
+            deaths = grow(deaths, deathType);
+            deaths[deathType]++;
+        }
+    }
+
+    /**
+     * Adds the totals of another scan
+     *
+     * @param other partial result
+     * @return this instance
+     */
+    HistoryStats merge(HistoryStats other) {
+        games += other.games;
+        wins += other.wins;
+        steps += other.steps;
+        winScore += other.winScore;
+        deaths = sum(deaths, other.deaths);
+        gamesByDifficulty = sum(gamesByDifficulty, other.gamesByDifficulty);
+        winsByDifficulty = sum(winsByDifficulty, other.winsByDifficulty);
+        return this;
+    }
+
+    /**
+     * Grows a count array to hold an index
+     *
+     * @param counts count array
+     * @param index index to hold
+     * @return counts, or a larger copy
+     */
+    private static long[] grow(long[] counts, int index) {
+        return index < counts.length ? counts : Arrays.copyOf(counts, Math.max(index + 1, counts.length * 2));
+    }
+
+    /**
+     * Adds count arrays
+     *
+     * @param counts counts added to
+     * @param other counts to add
+     * @return counts, or a larger copy
+     */
+    private static long[] sum(long[] counts, long[] other) {
+        counts = grow(counts, other.length - 1);
+        for (int i = 0; i < other.length; i++) {
+            counts[i] += other[i];
+        }
+        return counts;
+    }
+
+    //------------------------------------------------------------------------------------------- GETTERS
+
+    /**
+     * Gets the number of games
+     * @return game count
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Gets the number of won games
+     * @return win count
+     */
+    public long getWins() {
+        return wins;
+    }
+
+    /**
+     * Gets the share of games won
+     * @return win rate between 0 and 1, 0 without games
+     */
+    public double getWinRate() {
+        return games == 0 ? 0 : (double) wins / games;
+    }
+
+    /**
+     * Gets the share of games won on a difficulty
+     *
+     * @param difficulty difficulty at the end of the game
+     * @return win rate between 0 and 1, 0 without games
+     */
+    public double getWinRate(int difficulty) {
+        long played = getGames(difficulty);
+        long won = difficulty < winsByDifficulty.length ? winsByDifficulty[difficulty] : 0;
+        return played == 0 ? 0 : (double) won / played;
+    }
+
+    /**
+     * Gets the number of games ending on a difficulty
+     *
+     * @param difficulty difficulty at the end of the game
+     * @return game count
+     */
+    public long getGames(int difficulty) {
+        return difficulty >= 0 && difficulty < gamesByDifficulty.length ? gamesByDifficulty[difficulty] : 0;
+    }
+
+    /**
+     * Gets the mean steps per game
+     * @return mean steps, 0 without games
+     */
+    public double getMeanSteps() {
+        return games == 0 ? 0 : (double) steps / games;
+    }
+
+    /**
+     * Gets the mean score of won games
+     * @return mean score, 0 without wins
+     */
+    public double getMeanWinScore() {
+        return wins == 0 ? 0 : (double) winScore / wins;
+    }
+
+    /**
+     * Gets the number of deaths of a type
+     *
+     * @param deathType death type (0 = no hp, 1 = max steps reached)
+     * @return death count
+     */
+    public long getDeaths(int deathType) {
+        return deathType >= 0 && deathType < deaths.length ? deaths[deathType] : 0;
+    }
+
+    /**
+     * Gets the death cause distribution
+     * @return death counts by death type, types without deaths left out
+     */
+    public Map<Integer, Long> getDeathCauses() {
+        Map<Integer, Long> causes = new TreeMap<>();
+        for (int type = 0; type < deaths.length; type++) {
+            if (deaths[type] > 0) {
+                causes.put(type, deaths[type]);
+            }
+        }
+        return causes;
+    }
+
+    /**
+     * Summary of the aggregates
+     * @return summary text
+     */
+    @Override
+    public String toString() {
+        return String.format("%d games, win rate %.1f%%, mean steps %.1f, mean winning score %.1f, deaths %s",
+                games, getWinRate() * 100, getMeanSteps(), getMeanWinScore(), getDeathCauses());
+    }
+}
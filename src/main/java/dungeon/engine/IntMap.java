@@ -0,0 +1,187 @@
+package dungeon.engine;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Small open-addressing hash map with primitive int keys
+ * Handles:
+ * - Key/value lookups without boxing
+ * - Insertion, replacement and removal (linear probing with backward-shift deletion)
+ * Keys must be non-negative (tile indexes)
+ *
+ * @param <V> value type
+ */
+class IntMap<V> implements Serializable {
+    // marker for an unused slot
+    private static final int FREE = -1;
+
+    private int[] keys;
+    @SuppressWarnings("serial") // holds V, serializable in every use (cells and int arrays)
+    private Object[] values;
+    private int count;
+
+    // serial version UID
+    @Serial
+    private static final long serialVersionUID = 0L;
+
+    /**
+     * Creates an empty map with a small initial capacity
+     */
+    IntMap() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty map
+     *
+     * @param capacity initial capacity (rounded up to a power of two)
+     */
+    IntMap(int capacity) {
+        int tableSize = Integer.highestOneBit(Math.max(4, capacity - 1)) << 1;
+        this.keys = new int[tableSize];
+        this.values = new Object[tableSize];
+        Arrays.fill(keys, FREE);
+    }
+
+    /**
+     * Gets the value for a key
+     *
+     * @param key key to look up
+     * @return value, or null if key is not present
+     */
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; keys[i] != FREE; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the value for a key, replacing any existing value
+     *
+     * @param key key to set
+     * @param value value to store
+     */
+    void put(int key, V value) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != FREE) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+
+        keys[i] = key;
+        values[i] = value;
+        count++;
+
+        // keeping load factor under 0.5
+        if (count * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+    }
+
+    /**
+     * Removes a key
+     *
+     * @param key key to remove
+     * @return removed value, or null if key was not present
+     */
+    @SuppressWarnings("unchecked")
+    V remove(int key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != key) {
+            if (keys[i] == FREE) {
+                return null;
+            }
+            i = (i + 1) & mask;
+        }
+
+        V removed = (V) values[i];
+        count--;
+
+        // shifting following entries back so probe chains stay unbroken
+        int gap = i;
+        for (int j = (i + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+            int home = mix(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = FREE;
+        values[gap] = null;
+
+        return removed;
+    }
+
+    /**
+     * Gets the number of entries
+     *
+     * @return entry count
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Visits every entry
+     *
+     * @param visitor called with each key and value
+     */
+    @SuppressWarnings("unchecked")
+    void forEach(EntryVisitor<? super V> visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                visitor.visit(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    /**
+     * Rehashes entries into a larger table
+     *
+     * @param tableSize new table size (power of two)
+     */
+    @SuppressWarnings("unchecked")
+    private void resize(int tableSize) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        keys = new int[tableSize];
+        values = new Object[tableSize];
+        Arrays.fill(keys, FREE);
+        count = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                put(oldKeys[i], (V) oldValues[i]);
+            }
+        }
+    }
+
+    // spreads sequential tile indexes across the table
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Callback for entry iteration
+     *
+     * @param <V> value type
+     */
+    interface EntryVisitor<V> {
+        void visit(int key, V value);
+    }
+}
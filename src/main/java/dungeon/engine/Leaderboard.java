@@ -0,0 +1,389 @@
+package dungeon.engine;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Queryable high score index, fed every run a Score accepts and every entry of its list
+ * Handles:
+ * - One index per difficulty, entries sorted by score (descending, equal scores in the order they were added)
+ * - Top capacity entries kept per difficulty, on their own (runs pushed out of the Score's list by other
+ *   difficulties stay ranked), adding an entry already held changes nothing
+ * - Paged top scores, rank of a score and best score in a date range, in logarithmic time
+ * - Cached formatted pages, a page is only dropped when an entry is added or removed on it or a page before it
+ * Thread-safe
+ */
+public final class Leaderboard {
+    private final int capacity; // entries kept per difficulty
+    private final TreeMap<Integer, Index> indexes = new TreeMap<>(); // by difficulty
+
+    /**
+     * Creates an empty leaderboard
+     * @param capacity entries kept per difficulty
+     */
+    Leaderboard(int capacity) {
+        this.capacity = capacity;
+    }
+
+    //------------------------------------------------------------------------------------------- UPDATES
+
+    /**
+     * Adds an entry after any equal scores of its difficulty, pushing out the lowest entry of a full difficulty
+     * Entries already held, or not beating the lowest entry of a full difficulty, are skipped
+     *
+     * @param score score value
+     * @param epochMillis time achieved
+     * @param difficulty difficulty
+     * @param seed master seed
+     */
+    synchronized void add(int score, long epochMillis, int difficulty, long seed) {
+        if (capacity > 0) {
+            indexes.computeIfAbsent(difficulty, d -> new Index()).add(score, epochMillis, seed, capacity);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------- QUERIES
+
+    /**
+     * Gets the difficulties with at least one entry
+     * @return difficulties in ascending order
+     */
+    public synchronized Set<Integer> difficulties() {
+        return new TreeSet<>(indexes.keySet());
+    }
+
+    /**
+     * Gets the number of entries kept per difficulty
+     * @return capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of entries of a difficulty
+     *
+     * @param difficulty difficulty
+     * @return entry count
+     */
+    public synchronized int size(int difficulty) {
+        Index index = indexes.get(difficulty);
+        return index == null ? 0 : index.size;
+    }
+
+    /**
+     * Gets a page of the top scores of a difficulty
+     *
+     * @param difficulty difficulty
+     * @param page page number (0 = highest scores)
+     * @param pageSize entries per page
+     * @return entries on the page in rank order, empty past the last page
+     */
+    public synchronized List<Score.ScoreEntry> top(int difficulty, int page, int pageSize) {
+        checkPage(page, pageSize);
+        List<Score.ScoreEntry> entries = new ArrayList<>();
+        Index index = indexes.get(difficulty);
+        if (index != null) {
+            long start = (long) page * pageSize;
+            for (long i = start; i < Math.min(index.size, start + pageSize); i++) {
+                entries.add(index.entry((int) i, difficulty));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Gets the rank a score holds (or would take) within a difficulty
+     * Equal scores share a rank
+     *
+     * @param difficulty difficulty
+     * @param score score value
+     * @return 1 + the number of higher scores
+     */
+    public synchronized int rank(int difficulty, int score) {
+        Index index = indexes.get(difficulty);
+        return 1 + (index == null ? 0 : index.above(score));
+    }
+
+    /**
+     * Gets the best score of a difficulty achieved within a date range
+     *
+     * @param difficulty difficulty
+     * @param fromMillis range start (epoch milliseconds, inclusive)
+     * @param toMillis range end (epoch milliseconds, inclusive)
+     * @return highest entry in the range (earliest added on a tie), null if there is none
+     */
+    public synchronized Score.ScoreEntry best(int difficulty, long fromMillis, long toMillis) {
+        Index index = indexes.get(difficulty);
+        if (index == null || fromMillis > toMillis) {
+            return null;
+        }
+        int rank = index.bestBetween(fromMillis, toMillis);
+        return rank < 0 ? null : index.entry(rank, difficulty);
+    }
+
+    /**
+     * Formats a page of the top scores of a difficulty with rank, value and date (as Score.formatScores)
+     * Pages are cached until an entry is added or removed on or before them
+     *
+     * @param difficulty difficulty
+     * @param page page number (0 = highest scores)
+     * @param pageSize entries per page
+     * @return formatted page, empty past the last page
+     */
+    public synchronized String formatPage(int difficulty, int page, int pageSize) {
+        checkPage(page, pageSize);
+        Index index = indexes.get(difficulty);
+        if (index == null) {
+            return "";
+        }
+
+        long key = (long) pageSize << 32 | page;
+        String cached = index.pages.get(key);
+        if (cached == null) {
+            cached = index.format(page, pageSize);
+            index.pages.put(key, cached);
+        }
+        return cached;
+    }
+
+    /**
+     * Checks page arguments
+     *
+     * @param page page number
+     * @param pageSize entries per page
+     */
+    private static void checkPage(int page, int pageSize) {
+        if (page < 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("Invalid page " + page + " of size " + pageSize);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------- INDEX
+
+    /**
+     * Entries of one difficulty
+     * Rank order arrays, plus a time order and a segment tree of the best rank over time ranges,
+     * rebuilt by the first date range query after a change
+     */
+    private static final class Index {
+        private int[] scores = new int[8];
+        private long[] times = new long[8];
+        private long[] seeds = new long[8];
+        private int size;
+
+        private long[] sortedTimes; // entry times in ascending order
+        private int[] bestRank; // segment tree, leaves hold the rank of each entry in time order
+        private boolean timesStale = true;
+
+        private final HashMap<Long, String> pages = new HashMap<>(); // page size << 32 | page -> formatted page
+
+        /**
+         * Adds an entry after any equal scores, dropping the lowest entry past the capacity
+         *
+         * @param score score value
+         * @param epochMillis time achieved
+         * @param seed master seed
+         * @param capacity entries kept
+         */
+        void add(int score, long epochMillis, long seed, int capacity) {
+            int rank = atOrAbove(score);
+            if (rank >= capacity || holds(rank, score, epochMillis, seed)) {
+                return;
+            }
+            if (size == scores.length) {
+                int length = Math.min(size * 2, capacity);
+                scores = Arrays.copyOf(scores, length);
+                times = Arrays.copyOf(times, length);
+                seeds = Arrays.copyOf(seeds, length);
+            }
+            int moved = Math.min(size, capacity - 1) - rank; // the lowest entry of a full index drops off
+            System.arraycopy(scores, rank, scores, rank + 1, moved);
+            System.arraycopy(times, rank, times, rank + 1, moved);
+            System.arraycopy(seeds, rank, seeds, rank + 1, moved);
+            scores[rank] = score;
+            times[rank] = epochMillis;
+            seeds[rank] = seed;
+            size = Math.min(size + 1, capacity);
+            changed(rank);
+        }
+
+        /**
+         * Checks if an entry is among the equal scores ending at a rank
+         *
+         * @param end rank after the last equal score
+         * @param score score value
+         * @param epochMillis time achieved
+         * @param seed master seed
+         * @return true if the entry is held
+         */
+        private boolean holds(int end, int score, long epochMillis, long seed) {
+            for (int rank = end - 1; rank >= 0 && scores[rank] == score; rank--) {
+                if (times[rank] == epochMillis && seeds[rank] == seed) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Drops the cached pages showing a rank or any rank after it, entries from there on have moved
+         * @param rank first changed rank
+         */
+        private void changed(int rank) {
+            pages.keySet().removeIf(key -> ((key & 0xFFFFFFFFL) + 1) * (key >>> 32) > rank);
+            timesStale = true;
+        }
+
+        /**
+         * Counts the entries with a higher score
+         *
+         * @param score score value
+         * @return first rank with an equal or lower score
+         */
+        int above(int score) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (scores[mid] > score) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Counts the entries with an equal or higher score
+         *
+         * @param score score value
+         * @return first rank with a lower score
+         */
+        private int atOrAbove(int score) {
+            int low = above(score);
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (scores[mid] >= score) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Finds the best rank among entries achieved within a date range
+         *
+         * @param fromMillis range start (inclusive)
+         * @param toMillis range end (inclusive)
+         * @return best rank, -1 if no entry is in the range
+         */
+        int bestBetween(long fromMillis, long toMillis) {
+            if (timesStale) {
+                indexTimes();
+            }
+
+            // entries in time order from..to
+            int from = timeBound(fromMillis);
+            int to = toMillis == Long.MAX_VALUE ? size : timeBound(toMillis + 1);
+
+            // the lowest rank (highest score) over the leaves from..to-1
+            int best = Integer.MAX_VALUE;
+            for (from += size, to += size; from < to; from >>= 1, to >>= 1) {
+                if ((from & 1) == 1) {
+                    best = Math.min(best, bestRank[from++]);
+                }
+                if ((to & 1) == 1) {
+                    best = Math.min(best, bestRank[--to]);
+                }
+            }
+            return best == Integer.MAX_VALUE ? -1 : best;
+        }
+
+        /**
+         * Finds the first entry in time order achieved at or after a time
+         *
+         * @param epochMillis time
+         * @return position in time order
+         */
+        private int timeBound(long epochMillis) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sortedTimes[mid] < epochMillis) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Rebuilds the time order and its segment tree
+         */
+        private void indexTimes() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(times[a], times[b]));
+
+            sortedTimes = new long[size];
+            bestRank = new int[2 * size];
+            for (int i = 0; i < size; i++) {
+                sortedTimes[i] = times[order[i]];
+                bestRank[size + i] = order[i];
+            }
+            for (int node = size - 1; node > 0; node--) {
+                bestRank[node] = Math.min(bestRank[2 * node], bestRank[2 * node + 1]);
+            }
+            timesStale = false;
+        }
+
+        /**
+         * Creates the entry at a rank
+         *
+         * @param rank rank (0 = highest)
+         * @param difficulty difficulty of the index
+         * @return score entry
+         */
+        Score.ScoreEntry entry(int rank, int difficulty) {
+            return new Score.ScoreEntry(scores[rank], times[rank], difficulty, seeds[rank]);
+        }
+
+        /**
+         * Formats a page with rank, value and date
+         *
+         * @param page page number
+         * @param pageSize entries per page
+         * @return formatted page
+         */
+        String format(int page, int pageSize) {
+            StringBuilder sb = new StringBuilder();
+            long start = (long) page * pageSize;
+            long end = Math.min(size, start + pageSize);
+            for (long i = start; i < end; i++) {
+                sb.append("#").append(i + 1).append(" Score: ")
+                        .append(scores[(int) i]).append(" Date: ");
+                Score.DATE_FORMAT.formatTo(Instant.ofEpochMilli(times[(int) i]), sb);
+
+                if (i < end - 1) {
+                    sb.append("\n");
+                }
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -1,18 +1,19 @@
 package dungeon.engine;
 
-import dungeon.engine.cells.set.Empty;
-import dungeon.engine.cells.set.Wall;
-import dungeon.engine.cells.interactable.Entry;
-import dungeon.engine.cells.interactable.*;
+import dungeon.engine.cells.interactable.MeleeMutant;
+import dungeon.engine.cells.interactable.RangedMutant;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.util.Random;
+import java.util.function.Supplier;
 
 /**
  * Main class for level functionality
  * Handles:
- * - Map creation and management
+ * - Map creation and management (packed tile storage through TileGrid)
  * - Cell placement
  * - Level properties (difficulty, entry/ladder positions...)
  * - Ranged attack handling
@@ -22,10 +23,12 @@ public class Level implements Map, Serializable {
     private final int size;
     private final int currentLevel;
     private final int difficulty;
-    private final Cell[][] map;
+    private final GameConfig config;
+    private final TileGrid map;
     private Position entryPos;
     private Position ladderPos;
-    private final Random random;
+    private final transient Random random; // only used while generating
+    private transient Level restored; // level read by readObject, returned by readResolve
 
     // serial version UID
     @Serial
@@ -39,13 +42,7 @@ public class Level implements Map, Serializable {
      * @param size map size (width/height)
      */
     public Level(int currentLevel, int difficulty, int size) {
-        this.currentLevel = currentLevel;
-        this.difficulty = difficulty;
-        this.size = size;
-        this.map = new Cell[size][size];
-        this.random = new Random();
-
-        createMap();
+        this(currentLevel, difficulty, GameConfig.DEFAULT.withMapSize(size), new Random());
     }
 
     /** Creates a new level with an injected random generator (used for testing)
@@ -56,62 +53,153 @@ public class Level implements Map, Serializable {
      * @param random random number generator
      */
     public Level(int currentLevel, int difficulty, int size, Random random) {
+        this(currentLevel, difficulty, GameConfig.DEFAULT.withMapSize(size), random);
+    }
+
+    /**
+     * Creates a new level from a game configuration (map size and spawn counts)
+     * Layout and mutant attack rolls share the given random generator
+     *
+     * @param currentLevel current level number
+     * @param difficulty diffculty between 0-10
+     * @param config game configuration
+     * @param random random number generator
+     */
+    public Level(int currentLevel, int difficulty, GameConfig config, Random random) {
+        this(currentLevel, difficulty, config, random, random);
+    }
+
+    /**
+     * Creates a deterministic level from a level seed
+     * Identical seeds and configurations give identical layouts and mutant attack rolls
+     *
+     * @param currentLevel current level number
+     * @param difficulty diffculty between 0-10
+     * @param config game configuration
+     * @param levelSeed level seed (see Seeds.levelSeed)
+     */
+    public Level(int currentLevel, int difficulty, GameConfig config, long levelSeed) {
+        this(currentLevel, difficulty, config,
+                Seeds.stream(levelSeed, Seeds.LAYOUT_STREAM), Seeds.stream(levelSeed, Seeds.COMBAT_STREAM));
+    }
+
+    /**
+     * Creates a new level with separate layout and combat random generators
+     *
+     * @param currentLevel current level number
+     * @param difficulty diffculty between 0-10
+     * @param config game configuration
+     * @param random layout random generator
+     * @param combat source of the ranged mutant attack generators
+     */
+    private Level(int currentLevel, int difficulty, GameConfig config, Random random, Random combat) {
         this.currentLevel = currentLevel;
         this.difficulty = difficulty;
-        this.size = size;
-        this.map = new Cell[size][size];
+        this.config = config;
+        this.size = config.getMapSize();
+        this.map = new TileGrid(size);
         this.random = random;
 
-        createMap();
+        createMap(combat);
     }
 
-    //------------------------------------------------------------------------------------- MAP GEN
+    /**
+     * Restores a level from saved parts (see SaveCodec)
+     *
+     * @param currentLevel current level number
+     * @param difficulty diffculty between 0-10
+     * @param config game configuration
+     * @param map restored tile grid
+     * @param entryPos entry position, null if not placed
+     * @param ladderPos ladder position, null if not placed
+     */
+    Level(int currentLevel, int difficulty, GameConfig config, TileGrid map, Position entryPos, Position ladderPos) {
+        this.currentLevel = currentLevel;
+        this.difficulty = difficulty;
+        this.config = config;
+        this.size = config.getMapSize();
+        this.map = map;
+        this.entryPos = entryPos;
+        this.ladderPos = ladderPos;
+        this.random = null;
+    }
 
     /**
-     * Map creation and cell placements
-     * Fills map with empty cells, then adds walls, entry, ladder and item (interactable) cells
+     * Reads a level saved with Java serialization
+     * Games saved before the tile grid hold the map as a Cell[][] and no configuration, both are rebuilt
+     *
+     * @param in stream to read from
+     * @throws IOException if the level cannot be read
+     * @throws ClassNotFoundException if the level refers to unknown classes
      */
-    private void createMap() {
-        // making all cells empty
-        for (int y = 0; y < size; y++) {
-            for (int x = 0; x < size; x++) {
-                // using [y][x] due to array indexing, translates to (x, y)
-                // first index is rows (up/down) and second index is columns (left/right)
-                map[y][x] = new Empty();
-                map[y][x].cellSetPos();
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        int savedSize = fields.get("size", 0);
+        GameConfig savedConfig = (GameConfig) fields.get("config", null);
+        Object savedMap = fields.get("map", null);
+
+        TileGrid grid;
+        if (savedMap instanceof Cell[][] cells) {
+            grid = new TileGrid(savedSize);
+            for (int y = 0; y < savedSize; y++) {
+                for (int x = 0; x < savedSize; x++) {
+                    grid.setCell(x, y, cells[y][x]);
+                }
             }
+        } else {
+            grid = (TileGrid) savedMap;
         }
 
+        restored = new Level(fields.get("currentLevel", 0), fields.get("difficulty", 0),
+                savedConfig != null ? savedConfig : GameConfig.DEFAULT.withMapSize(savedSize),
+                grid, (Position) fields.get("entryPos", null), (Position) fields.get("ladderPos", null));
+    }
+
+    /**
+     * Replaces a deserialized level with the one rebuilt by readObject (final fields are set by the constructor)
+     * @return restored level
+     */
+    @Serial
+    private Object readResolve() {
+        return restored;
+    }
+
+    //------------------------------------------------------------------------------------- MAP GEN
+
+    /**
+     * Map creation and cell placements
+     * Map starts with all tiles empty, then adds walls, entry, ladder and item (interactable) cells
+     *
+     * @param combat source of the ranged mutant attack generators
+     * @throws IllegalStateException if the map is too small for the configured cells
+     */
+    private void createMap(Random combat) {
         // map boundary
         createWalls();
 
         // entry
         placeEntry();
 
+        // free tile sampler sized for the ladder and every item
+        int required = 1 + config.getGoldCount() + config.getPotionCount() + config.getTrapCount()
+                + config.getMeleeCount() + config.getRangedCount(difficulty);
+        FreeTiles freeTiles = entryPos == null
+                ? new FreeTiles(map, required, random)
+                : new FreeTiles(map, required, random, entryPos);
+
         // ladder
-        placeLadder();
+        placeLadder(freeTiles);
 
         // interactable
-        placeItems();
+        placeItems(freeTiles, combat);
     }
 
     /**
      * Creates a perimeter of wall cells around the map
      */
     private void createWalls() {
-        for (int i = 0; i < size; i++) {
-            // top + bottom
-            map[0][i] = new Wall();
-            map[0][i].cellSetPos();
-            map[size - 1][i] = new Wall();
-            map[size - 1][i].cellSetPos();
-
-            // left + right
-            map[i][0] = new Wall();
-            map[i][0].cellSetPos();
-            map[i][size - 1] = new Wall();
-            map[i][size - 1].cellSetPos();
-        }
+        map.fillPerimeter(CellType.WALL);
     }
 
     /**
@@ -125,76 +213,64 @@ public class Level implements Map, Serializable {
             int x = 1;
             int y = size - 2;
             entryPos = new Position(x, y);
-            map[y][x] = new Entry();
-            map[y][x].cellSetPos();
+            map.setType(x, y, CellType.ENTRY);
         }
             // levels > 1 handled through game engine
     }
 
     /**
      * Ladder cell placement
+     *
+     * @param freeTiles free tile sampler
      */
-    private void placeLadder() {
-        int x, y;
-        do {
-            x = random.nextInt(size - 2) + 1;
-            y = random.nextInt(size - 2) + 1;
-        } while (!(map[y][x] instanceof Empty));
+    private void placeLadder(FreeTiles freeTiles) {
+        int index = freeTiles.next();
+        int x = index % size;
+        int y = index / size;
 
         ladderPos = new Position(x, y);
-        map[y][x] = new Ladder();
-        map[y][x].cellSetPos();
+        map.setType(x, y, CellType.LADDER);
     }
 
     /**
      * Interactable item placements
+     *
+     * @param freeTiles free tile sampler
+     * @param combat source of the ranged mutant attack generators
      */
-    private void placeItems() {
+    private void placeItems(FreeTiles freeTiles, Random combat) {
         // gold
-        placeItems(5, Gold.class);
+        placeItems(freeTiles, config.getGoldCount(), CellType.GOLD::cell);
 
         // health potion
-        placeItems(2, HealthPotion.class);
+        placeItems(freeTiles, config.getPotionCount(), CellType.HEALTH_POTION::cell);
 
         // trap
-        placeItems(5, Trap.class);
+        placeItems(freeTiles, config.getTrapCount(), CellType.TRAP::cell);
 
         // melee mutant
-        placeItems(3, MeleeMutant.class);
+        placeItems(freeTiles, config.getMeleeCount(), MeleeMutant::new);
 
-        // ranged mutant, increased spawns with difficulty
-        placeItems(difficulty, RangedMutant.class);
+        // ranged mutant, increased spawns with difficulty, each rolling attacks from its own seeded generator
+        placeItems(freeTiles, config.getRangedCount(difficulty), () -> new RangedMutant(0, 0, new SeededRandom(combat.nextLong())));
     }
 
     /**
      * Item placement helper method
-     * Handles placement of a specific number of cells depending on type
+     * Handles placement of a specific number of cells on distinct free tiles
      *
+     * @param freeTiles free tile sampler
      * @param total number of cells to place
-     * @param cellType cell class
+     * @param factory cell factory (shared instances for stateless cells)
      */
-    private void placeItems(int total, Class<? extends Cell> cellType) {
+    private void placeItems(FreeTiles freeTiles, int total, Supplier<? extends Cell> factory) {
         for (int i = 0; i < total; i++) {
-            int x, y;
-            do {
-                // ensuring placement is inside wall perimeter
-                x = random.nextInt(size - 2) + 1;
-                y = random.nextInt(size - 2) + 1;
-            } while (!(map[y][x] instanceof Empty));
-
-            try {
-                // grabbing class constructors and creating a new instance
-                Cell cell = cellType.getDeclaredConstructor().newInstance();
-                map[y][x] = cell;
-                map[y][x].cellSetPos();
-
-                // setting position for ranged mutant attack calculations
-                if (cell instanceof RangedMutant rangedMutant) {
-                    rangedMutant.setPosition(x, y);
-                }
-            } catch (Exception e) {
-                System.err.println("Error during cell creation: " + e.getMessage());
-            }
+            int index = freeTiles.next();
+
+            // ranged mutant positions are set by the grid
+            Cell cell = factory.get();
+            cell.cellSetPos();
+            map.setCell(index % size, index / size, cell);
         }
     }
 
@@ -210,27 +286,28 @@ public class Level implements Map, Serializable {
         int x = position.getX();
         int y = position.getY();
 
-        map[y][x] = new Entry();
-        map[y][x].cellSetPos();
+        map.setType(x, y, CellType.ENTRY);
     }
 
     /**
      * Checks for possible ranged mutant attacks
      * Calculates total damage done by all instances of attacks
+     * Only mutants in range of the player's tile are checked (through the threat map)
      *
      * @param player player to check attacks against
      * @return total damage from attacks
      */
     public int checkRange(Player player) {
-        int rangedDamage = 0;
+        Position position = player.getPosition();
+        int[] threats = map.getThreats(position.getX(), position.getY());
+        if (threats == null) {
+            return 0; // no mutants in range
+        }
 
-        // checking cells for ranged mutants
-        for (int y = 0; y < size; y++) {
-            for (int x = 0; x < size; x++) {
-                Cell cell = map[y][x];
-                if (cell instanceof RangedMutant mutant) {
-                    rangedDamage += mutant.tryRangedAttack(player);
-                }
+        int rangedDamage = 0;
+        for (int index : threats) {
+            if (map.getStateful(index) instanceof RangedMutant mutant) {
+                rangedDamage += mutant.tryRangedAttack(player);
             }
         }
 
@@ -246,10 +323,7 @@ public class Level implements Map, Serializable {
      * @return cell at positon
      */
     public Cell getCell(Position position) {
-        int x = position.getX();
-        int y = position.getY();
-
-        return map[y][x];
+        return map.getCell(position.getX(), position.getY());
     }
 
     /**
@@ -258,11 +332,8 @@ public class Level implements Map, Serializable {
      * @param position positon to place cell
      */
     public void setCell(Position position, Cell cell) {
-        int x = position.getX();
-        int y = position.getY();
-
         cell.cellSetPos();
-        map[y][x] = cell;
+        map.setCell(position.getX(), position.getY(), cell);
     }
 
     /**
@@ -281,30 +352,40 @@ public class Level implements Map, Serializable {
     //-------------------------------------------------------------------------- GETTERS AND SETTERS
 
     /**
-     * Gets the 2d map cell array
+     * Gets a 2d cell array snapshot of the map
+     * Changes to the array are not written back, use setCell to modify the map
      *
      * @return 2d array of cells
      */
     public Cell[][] getMap() {
+        return map.toArray();
+    }
+
+    /**
+     * Gets the packed tile grid for primitive/bulk access
+     *
+     * @return tile grid
+     */
+    public TileGrid getTiles() {
         return map;
     }
 
     /**
      * Gets the entry positon
      *
-     * @return entry positon
+     * @return entry positon, null if not placed
      */
     public Position getEntryPos() {
-        return new Position(entryPos);
+        return entryPos == null ? null : new Position(entryPos);
     }
 
     /**
      * Gets the ladder positon
      *
-     * @return ladder position
+     * @return ladder position, null if not placed
      */
     public Position getLadderPos() {
-        return new Position(ladderPos);
+        return ladderPos == null ? null : new Position(ladderPos);
     }
 
     /**
@@ -316,6 +397,22 @@ public class Level implements Map, Serializable {
         return difficulty;
     }
 
+    /**
+     * Gets the level number
+     * @return level number
+     */
+    public int getLevelNumber() {
+        return currentLevel;
+    }
+
+    /**
+     * Gets the game configuration the level was generated with
+     * @return game configuration
+     */
+    public GameConfig getConfig() {
+        return config;
+    }
+
     /**
      * Gets the map size
      * @return the size of the map
@@ -324,6 +421,14 @@ public class Level implements Map, Serializable {
         return size;
     }
 
+    /**
+     * Estimates the heap memory held by the level
+     * @return estimated bytes
+     */
+    public long estimateBytes() {
+        return 96 + map.estimateBytes();
+    }
+
     //-------------------------------------------------------------------------- TESTING UTILS
 
     /**
@@ -336,7 +441,6 @@ public class Level implements Map, Serializable {
         int x = position.getX();
         int y = position.getY();
 
-        map[y][x] = new Ladder();
-        map[y][x].cellSetPos();
+        map.setType(x, y, CellType.LADDER);
     }
 }
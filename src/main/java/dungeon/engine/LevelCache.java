@@ -0,0 +1,175 @@
+package dungeon.engine;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of generated levels, for games whose seed is chosen (restarts, shared-seed runs)
+ * Random-seed games never repeat a level, they generate their own without going through the cache
+ * Handles:
+ * - Levels keyed by (master seed, level number, difficulty, configuration incl. map size)
+ * - Storing each level untouched in the save format's level encoding (run-length encoded tile chunks and mutant
+ *   state, see SaveCodec), every lookup gets its own playable copy
+ * - Eviction of the least recently used levels beyond an entry or byte budget
+ * - Hit/miss metrics
+ * Thread-safe, generation and copying run outside the lock
+ */
+public final class LevelCache {
+    // cache shared by every seeded game in the JVM
+    private static final LevelCache SHARED = new LevelCache(32, 64L * 1024 * 1024);
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, byte[]> levels = new LinkedHashMap<>(16, 0.75f, true); // access order
+    private long bytes;
+    private long hits;
+    private long misses;
+
+    /**
+     * Cache key, the configuration carries the map size and spawn counts
+     */
+    private record Key(long seed, int level, int difficulty, GameConfig config) {
+    }
+
+    /**
+     * Creates an empty cache
+     *
+     * @param maxEntries most levels kept
+     * @param maxBytes most encoded bytes kept
+     */
+    public LevelCache(int maxEntries, long maxBytes) {
+        if (maxEntries < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("Cache limits cannot be negative");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the cache shared by every game in the JVM
+     * @return shared level cache
+     */
+    public static LevelCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Gets a copy of a cached level or generates and caches it
+     *
+     * @param seed game master seed
+     * @param level level number
+     * @param difficulty level difficulty
+     * @param config game configuration
+     * @return level ready to play, never shared with other callers
+     */
+    public Level get(long seed, int level, int difficulty, GameConfig config) {
+        Key key = new Key(seed, level, difficulty, config);
+        byte[] cached;
+        synchronized (this) {
+            cached = levels.get(key);
+            if (cached != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+
+        if (cached != null) {
+            return decode(cached, config);
+        }
+
+        Level generated = generate(seed, level, difficulty, config);
+        byte[] encoded = SaveCodec.encodeLevel(generated);
+        synchronized (this) {
+            byte[] previous = levels.put(key, encoded);
+            bytes += encoded.length - (previous == null ? 0 : previous.length);
+            evict();
+        }
+        return generated;
+    }
+
+    /**
+     * Generates a level without caching it
+     *
+     * @param seed game master seed
+     * @param level level number
+     * @param difficulty level difficulty
+     * @param config game configuration
+     * @return new level
+     */
+    public static Level generate(long seed, int level, int difficulty, GameConfig config) {
+        return new Level(level, difficulty, config, Seeds.levelSeed(seed, level));
+    }
+
+    /**
+     * Removes least recently used levels until both limits are met
+     */
+    private void evict() {
+        Iterator<Map.Entry<Key, byte[]>> eldest = levels.entrySet().iterator();
+        while ((levels.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+            bytes -= eldest.next().getValue().length;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Removes every cached level
+     */
+    public synchronized void clear() {
+        levels.clear();
+        bytes = 0;
+    }
+
+    //------------------------------------------------------------------------------------------- COPIES
+
+    /**
+     * Decodes a level copy
+     *
+     * @param encoded level encoded by SaveCodec.encodeLevel
+     * @param config configuration of the cache key
+     * @return new level instance
+     */
+    private static Level decode(byte[] encoded, GameConfig config) {
+        try {
+            return SaveCodec.decodeLevel(encoded, config);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error copying cached level", e);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------- METRICS
+
+    /**
+     * Gets the number of cached levels
+     * @return cached level count
+     */
+    public synchronized int size() {
+        return levels.size();
+    }
+
+    /**
+     * Gets the encoded size of every cached level
+     * @return cached bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets the number of lookups served from the cache
+     * @return cache hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that generated a level
+     * @return cache misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,158 @@
+package dungeon.engine;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background generator for the next level
+ * Handles:
+ * - Generating a level on a virtual thread while the current level is played
+ * - Handing over the generated level on the ladder move
+ * - Synchronous fallback when no matching level was requested or generation failed
+ * - Generating through a level cache for seeded games, so cached levels are never generated twice
+ * - Hit/miss metrics (hit = level was ready when taken)
+ */
+public final class LevelPreloader {
+    // one virtual thread per generation, nothing to shut down
+    private static final Executor VIRTUAL_THREADS = task -> Thread.ofVirtual().name("level-preload").start(task);
+
+    private final LevelCache cache; // null to generate every level
+
+    private CompletableFuture<Level> pending;
+    private long pendingSeed;
+    private int pendingLevel;
+    private int pendingDifficulty;
+    private GameConfig pendingConfig;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a preloader generating through the shared level cache
+     */
+    public LevelPreloader() {
+        this(LevelCache.shared());
+    }
+
+    /**
+     * Creates a preloader generating through a level cache
+     *
+     * @param cache level cache to generate through, null to generate every level without caching
+     */
+    public LevelPreloader(LevelCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Starts generating a level in the background, replacing any earlier request
+     *
+     * @param seed game master seed
+     * @param level level number
+     * @param difficulty level difficulty
+     * @param config game configuration
+     */
+    public synchronized void request(long seed, int level, int difficulty, GameConfig config) {
+        if (pending != null) {
+            pending.cancel(false); // result is discarded, generation itself cannot be interrupted
+        }
+
+        pendingSeed = seed;
+        pendingLevel = level;
+        pendingDifficulty = difficulty;
+        pendingConfig = config;
+        pending = CompletableFuture.supplyAsync(() -> load(seed, level, difficulty, config), VIRTUAL_THREADS);
+    }
+
+    /**
+     * Takes the requested level
+     * Waits for a matching generation still in progress (counted as a miss),
+     * otherwise generates the level on the calling thread
+     *
+     * @param seed game master seed
+     * @param level level number
+     * @param difficulty level difficulty
+     * @param config game configuration
+     * @return generated level
+     */
+    public synchronized Level take(long seed, int level, int difficulty, GameConfig config) {
+        CompletableFuture<Level> future = pending;
+        boolean matches = future != null && pendingSeed == seed && pendingLevel == level
+                && pendingDifficulty == difficulty && pendingConfig.equals(config);
+        pending = null;
+        pendingConfig = null;
+
+        if (matches) {
+            boolean ready = future.isDone();
+            try {
+                Level generated = future.join();
+                (ready ? hits : misses).incrementAndGet();
+                return generated;
+            } catch (CompletionException e) {
+                // background generation failed, retrying below so the error surfaces on this thread
+            }
+        } else if (future != null) {
+            future.cancel(false);
+        }
+
+        misses.incrementAndGet();
+        return load(seed, level, difficulty, config);
+    }
+
+    /**
+     * Gets a level from the cache, or generates it without one
+     *
+     * @param seed game master seed
+     * @param level level number
+     * @param difficulty level difficulty
+     * @param config game configuration
+     * @return level ready to play
+     */
+    private Level load(long seed, int level, int difficulty, GameConfig config) {
+        return cache == null ? LevelCache.generate(seed, level, difficulty, config) : cache.get(seed, level, difficulty, config);
+    }
+
+    /**
+     * Checks if a requested level has finished generating
+     * @return true if a level is ready to take
+     */
+    public synchronized boolean isReady() {
+        return pending != null && pending.isDone() && !pending.isCompletedExceptionally();
+    }
+
+    /**
+     * Gets the requested level if it has finished generating, without taking it
+     * @return generated level, null if none is ready
+     */
+    synchronized Level peek() {
+        return isReady() ? pending.join() : null;
+    }
+
+    //------------------------------------------------------------------------------------------- METRICS
+
+    /**
+     * Gets the number of levels that were ready when taken
+     * @return preload hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of levels that had to be waited for or generated synchronously
+     * @return preload misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the share of taken levels that were ready
+     * @return hit rate (0 to 1), 0 if no levels were taken
+     */
+    public double getHitRate() {
+        long taken = hits.get() + misses.get();
+        return taken == 0 ? 0.0 : (double) hits.get() / taken;
+    }
+}
@@ -0,0 +1,329 @@
+package dungeon.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Append-only journal of the moves made since the last save snapshot
+ * Handles:
+ * - One byte per move (direction), kept in memory by the game thread and written by the save writer
+ *   (see SaveService), so moves never wait on the disk
+ * - Batched fsync every few moves, bounding what a power loss can lose
+ * - Linking the journal to its snapshot (length and checksum), so a stale journal is never replayed
+ * - Snapshots written in the background: moves made while a snapshot is written are carried over
+ *   into the journal of the new snapshot, snapshots are marked with the absolute move count so any number
+ *   can be queued at once
+ * - Reading back the moves to replay after loading the snapshot
+ *
+ * Format (big-endian):
+ *   header:  magic "MDJL" | version u16 | reserved u16 | snapshot length u32 | snapshot checksum u32
+ *   entries: direction ordinal u8, one per move
+ * Thread-safe, moves are appended by the game thread while the file is only touched on the save writer
+ */
+public final class MoveJournal implements Closeable {
+    // default moves between full snapshots and between fsyncs
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 100;
+    public static final int DEFAULT_SYNC_INTERVAL = 16;
+
+    // header magic ("MDJL"), version and size
+    private static final int MAGIC = 0x4D444A4C;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    // direction by ordinal
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final Path path;
+    private final int snapshotInterval;
+    private final int syncInterval;
+
+    // game side, guarded by this journal
+    private byte[] entries = new byte[64]; // moves since the last snapshot, carried over by rebase
+    private long base; // moves made before the first entry, ever increasing
+    private int moves;
+    private int written; // entries already handed to the writer
+    private boolean writeQueued; // a write of new entries is waiting on the writer
+    private boolean linked; // the file holds a header for the current entries, appends can follow it
+    private boolean closed;
+
+    // writer side, only used on the save writer thread
+    private FileChannel channel; // opened with the first snapshot
+    private int unsynced;
+
+    /**
+     * Creates a journal with the default fsync interval
+     *
+     * @param path journal file path
+     * @param snapshotInterval moves between full snapshots
+     */
+    public MoveJournal(Path path, int snapshotInterval) {
+        this(path, snapshotInterval, DEFAULT_SYNC_INTERVAL);
+    }
+
+    /**
+     * Creates a journal, the file is opened by the first rebase (or reset) once a snapshot is on disk
+     *
+     * @param path journal file path
+     * @param snapshotInterval moves between full snapshots
+     * @param syncInterval moves between fsyncs (1 syncs every move)
+     */
+    public MoveJournal(Path path, int snapshotInterval, int syncInterval) {
+        if (snapshotInterval < 1 || syncInterval < 1) {
+            throw new IllegalArgumentException("Snapshot and sync intervals must be positive");
+        }
+        this.path = path;
+        this.snapshotInterval = snapshotInterval;
+        this.syncInterval = syncInterval;
+    }
+
+    /**
+     * Gets the journal file path for a save file
+     *
+     * @param savePath save file path
+     * @return journal file path
+     */
+    public static Path pathFor(String savePath) {
+        return Path.of(savePath + ".journal");
+    }
+
+    /**
+     * Starts an empty journal after a snapshot of the current state was written
+     *
+     * @param snapshot encoded snapshot (see SaveCodec) the following moves apply to
+     * @throws IOException if writing fails
+     */
+    public void reset(byte[] snapshot) throws IOException {
+        rebase(snapshot, getMark());
+    }
+
+    /**
+     * Links the journal to a newer snapshot once it is on disk, run on the save writer
+     * Moves appended after the snapshot was taken are kept, the ones it already contains are dropped
+     * Does nothing once the journal is closed, or for a snapshot older than the current base (its moves are gone)
+     *
+     * @param snapshot encoded snapshot (see SaveCodec)
+     * @param mark absolute move count when the snapshot was taken (getMark)
+     * @throws IOException if writing fails
+     */
+    public void rebase(byte[] snapshot, long mark) throws IOException {
+        ByteBuffer data;
+        synchronized (this) {
+            if (closed || mark < base) {
+                return;
+            }
+            int from = (int) (mark - base);
+            int carried = moves - from;
+            data = ByteBuffer.allocate(HEADER_SIZE + carried)
+                    .putInt(MAGIC)
+                    .putShort((short) VERSION)
+                    .putShort((short) 0) // reserved
+                    .putInt(snapshot.length)
+                    .putInt(SaveCodec.checksum(snapshot))
+                    .put(entries, from, carried)
+                    .flip();
+
+            System.arraycopy(entries, from, entries, 0, carried);
+            base = mark;
+            moves = carried;
+            written = carried;
+            linked = false; // appends wait for the new header
+        }
+
+        if (channel == null) {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        }
+        channel.truncate(0);
+        while (data.hasRemaining()) {
+            channel.write(data, data.position());
+        }
+        channel.force(false);
+        unsynced = 0;
+
+        synchronized (this) {
+            linked = true;
+        }
+        writeEntries(); // moves appended while the header was written
+    }
+
+    /**
+     * Appends a move, its write is queued on the save writer
+     *
+     * @param direction direction moved
+     * @return true if a snapshot is due
+     */
+    public synchronized boolean append(Direction direction) {
+        if (moves == entries.length) {
+            entries = Arrays.copyOf(entries, moves * 2);
+        }
+        entries[moves] = (byte) direction.ordinal();
+
+        if (!writeQueued && !closed) {
+            writeQueued = true;
+            SaveService.shared().submit(this::writeAppended);
+        }
+        return ++moves >= snapshotInterval;
+    }
+
+    /**
+     * Gets the number of moves appended since the last snapshot
+     * @return journaled moves
+     */
+    public synchronized int getMoves() {
+        return moves;
+    }
+
+    /**
+     * Gets the absolute number of moves appended, marking the state a snapshot taken now holds
+     * @return moves appended since the journal was created
+     */
+    public synchronized long getMark() {
+        return base + moves;
+    }
+
+    /**
+     * Gets the journal file path
+     * @return journal file path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Syncs pending moves and closes the file, waiting for the save writer
+     *
+     * @throws IOException if writing or syncing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            closeAsync().join();
+        } catch (CompletionException e) {
+            throw new IOException(SaveService.ioMessage(e), e);
+        }
+    }
+
+    /**
+     * Syncs pending moves and closes the file on the save writer, after every write submitted before
+     * Moves appended once closed are not written
+     *
+     * @return future completing once the file is closed
+     */
+    public CompletableFuture<Void> closeAsync() {
+        synchronized (this) {
+            if (closed) {
+                return CompletableFuture.completedFuture(null);
+            }
+            closed = true;
+        }
+        return SaveService.shared().submit(() -> {
+            if (channel == null) {
+                return;
+            }
+            try {
+                writeEntries();
+                if (unsynced > 0) {
+                    channel.force(false);
+                }
+            } finally {
+                channel.close();
+            }
+        });
+    }
+
+    /**
+     * Writes queued moves on the save writer
+     * A failed write stops appends to the file until the next snapshot rewrites it with every move since
+     */
+    private void writeAppended() {
+        try {
+            writeEntries();
+        } catch (IOException e) {
+            synchronized (this) {
+                linked = false;
+            }
+            System.err.println("Error writing move journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the entries appended since the last write, syncing when enough are unsynced
+     * Runs on the save writer, entries appended before the file is linked to a snapshot wait for rebase
+     *
+     * @throws IOException if writing fails
+     */
+    private void writeEntries() throws IOException {
+        int from;
+        ByteBuffer data;
+        synchronized (this) {
+            writeQueued = false;
+            if (!linked || moves == written) {
+                return;
+            }
+            from = written;
+            data = ByteBuffer.wrap(Arrays.copyOfRange(entries, from, moves));
+            written = moves;
+        }
+
+        long position = HEADER_SIZE + from;
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+        unsynced += data.capacity();
+        if (unsynced >= syncInterval) {
+            channel.force(false);
+            unsynced = 0;
+        }
+    }
+
+    /**
+     * Reads the moves journaled after a snapshot
+     * A missing journal, or one written for a different snapshot, has no moves
+     * Reading stops at the first unreadable entry (torn tail after a crash)
+     *
+     * @param path journal file path
+     * @param snapshot encoded snapshot that was loaded
+     * @return moves to replay, in order
+     * @throws IOException if the file cannot be read
+     */
+    public static Direction[] read(Path path, byte[] snapshot) throws IOException {
+        byte[] data;
+        try {
+            data = Files.readAllBytes(path);
+        } catch (NoSuchFileException e) {
+            return new Direction[0];
+        }
+        if (data.length < HEADER_SIZE) {
+            return new Direction[0];
+        }
+
+        ByteBuffer header = ByteBuffer.wrap(data, 0, HEADER_SIZE);
+        boolean linked = header.getInt() == MAGIC
+                && header.getShort() == VERSION
+                && header.getShort() == 0
+                && header.getInt() == snapshot.length
+                && header.getInt() == SaveCodec.checksum(snapshot);
+        if (!linked) {
+            return new Direction[0]; // stale, the snapshot already contains these moves
+        }
+
+        Direction[] moves = new Direction[data.length - HEADER_SIZE];
+        int count = 0;
+        for (int i = HEADER_SIZE; i < data.length; i++) {
+            int ordinal = data[i];
+            if (ordinal < 0 || ordinal >= DIRECTIONS.length) {
+                break;
+            }
+            moves[count++] = DIRECTIONS[ordinal];
+        }
+        return count == moves.length ? moves : Arrays.copyOf(moves, count);
+    }
+}
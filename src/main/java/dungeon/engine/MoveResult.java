@@ -0,0 +1,210 @@
+package dungeon.engine;
+
+/**
+ * Structured result of a single move
+ * Handles:
+ * - Outcome codes (blocked, moved, interaction, ranged damage, level change, win, death)
+ * - Lazy rendering of the human-readable move message
+ * Results for plain moves and wall collisions are shared instances (no allocation per move)
+ */
+public final class MoveResult {
+    /**
+     * Primary outcome of a move
+     */
+    public enum Outcome {
+        BLOCKED,
+        MOVED,
+        LEVEL_CHANGE,
+        WIN,
+        DEATH
+    }
+
+    // shared results for moves where nothing else happens
+    private static final MoveResult[] BLOCKED = new MoveResult[Direction.values().length];
+    private static final MoveResult[] MOVED = new MoveResult[Direction.values().length];
+
+    static {
+        for (Direction direction : Direction.values()) {
+            BLOCKED[direction.ordinal()] = new MoveResult(direction, false, null, null, 0, 0, false, false, -1);
+            MOVED[direction.ordinal()] = new MoveResult(direction, true, null, null, 0, 0, false, false, -1);
+        }
+    }
+
+    private final Direction direction;
+    private final boolean moved;
+    private final CellType interacted;
+    private final String interactionText;
+    private final int rangedDamage;
+    private final int newLevel;
+    private final boolean win;
+    private final boolean newHighScore;
+    private final int deathType;
+
+    private MoveResult(Direction direction, boolean moved, CellType interacted, String interactionText,
+                       int rangedDamage, int newLevel, boolean win, boolean newHighScore, int deathType) {
+        this.direction = direction;
+        this.moved = moved;
+        this.interacted = interacted;
+        this.interactionText = interactionText;
+        this.rangedDamage = rangedDamage;
+        this.newLevel = newLevel;
+        this.win = win;
+        this.newHighScore = newHighScore;
+        this.deathType = deathType;
+    }
+
+    /**
+     * Gets the result for a move into a wall
+     *
+     * @param direction direction moved
+     * @return shared blocked result
+     */
+    public static MoveResult blocked(Direction direction) {
+        return BLOCKED[direction.ordinal()];
+    }
+
+    /**
+     * Gets the result for a successful move
+     * Returns a shared instance when nothing happened beyond the step itself
+     *
+     * @param direction direction moved
+     * @param interacted type of cell interacted with, null if none
+     * @param interactionText interaction description from the cell, null if none
+     * @param rangedDamage total ranged attack damage taken
+     * @param newLevel level moved onto, 0 if no level change
+     * @param win true if the player won
+     * @param newHighScore true if the final score is a new high score
+     * @param deathType death type (-1 = no death, 0 = no hp, 1 = max steps)
+     * @return move result
+     */
+    public static MoveResult moved(Direction direction, CellType interacted, String interactionText, int rangedDamage,
+                                   int newLevel, boolean win, boolean newHighScore, int deathType) {
+        if (interacted == null && rangedDamage == 0 && newLevel == 0 && !win && deathType < 0) {
+            return MOVED[direction.ordinal()];
+        }
+
+        return new MoveResult(direction, true, interacted, interactionText, rangedDamage, newLevel, win, newHighScore, deathType);
+    }
+
+    //------------------------------------------------------------------------------------------- OUTCOMES
+
+    /**
+     * Gets the primary outcome of the move
+     * @return outcome code
+     */
+    public Outcome getOutcome() {
+        if (!moved) return Outcome.BLOCKED;
+        if (win) return Outcome.WIN;
+        if (newLevel > 0) return Outcome.LEVEL_CHANGE;
+        if (deathType >= 0) return Outcome.DEATH;
+        return Outcome.MOVED;
+    }
+
+    /**
+     * Gets the direction moved
+     * @return direction
+     */
+    public Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * Checks if the move was blocked by a wall
+     * @return true if player did not move
+     */
+    public boolean isBlocked() {
+        return !moved;
+    }
+
+    /**
+     * Gets the type of cell the player interacted with
+     * @return interacted cell type, null if no interaction
+     */
+    public CellType getInteracted() {
+        return interacted;
+    }
+
+    /**
+     * Gets the ranged attack damage taken after the move
+     * @return ranged damage (0 if none)
+     */
+    public int getRangedDamage() {
+        return rangedDamage;
+    }
+
+    /**
+     * Gets the level moved onto
+     * @return new level number, 0 if no level change
+     */
+    public int getNewLevel() {
+        return newLevel;
+    }
+
+    /**
+     * Checks if the move won the game
+     * @return true if player won
+     */
+    public boolean isWin() {
+        return win;
+    }
+
+    /**
+     * Checks if the winning score was a new high score
+     * @return true if new high score
+     */
+    public boolean isNewHighScore() {
+        return newHighScore;
+    }
+
+    /**
+     * Gets the death type caused by the move
+     * @return death type (-1 = no death, 0 = no hp, 1 = max steps)
+     */
+    public int getDeathType() {
+        return deathType;
+    }
+
+    //------------------------------------------------------------------------------------------- MESSAGE
+
+    /**
+     * Renders the human-readable move message
+     * @return string of movement results
+     */
+    public String getMessage() {
+        if (!moved) {
+            return direction.getBlockedMessage();
+        }
+        if (interacted == null && rangedDamage == 0 && newLevel == 0 && !win) {
+            return direction.getMovedMessage();
+        }
+
+        StringBuilder sb = new StringBuilder(direction.getMovedMessage());
+        if (interactionText != null) {
+            sb.append(' ').append(interactionText);
+        }
+
+        if (newLevel > 0) {
+            sb.append(" Moving onto level ").append(newLevel).append(". ");
+        } else if (win) {
+            sb.append(" Hey, that's the exit to the dungeon! You win!");
+            if (newHighScore) {
+                sb.append(" Congratulations! You got a new high score!");
+            }
+        }
+
+        if (rangedDamage > 0) {
+            sb.append(" A flurry of arrows approached you and dealt ").append(rangedDamage).append(" damage, ouch!");
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Converts the result to its message
+     * @return string of movement results
+     */
+    @Override
+    public String toString() {
+        return getMessage();
+    }
+}
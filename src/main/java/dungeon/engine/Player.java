@@ -59,6 +59,17 @@ public class Player implements Serializable {
     }
 
     //-------------------------------------------------------------------------------------- MOVEMENT
+    /**
+     * Moves player one cell in a direction and increments steps
+     *
+     * @param direction direction to move
+     */
+    public void move(Direction direction) {
+        position.setX(position.getX() + direction.getDx());
+        position.setY(position.getY() + direction.getDy());
+        steps++;
+    }
+
     // Moves player up one cell and increments steps
     public void moveUp() {
         position.setY(position.getY()-1);
@@ -187,6 +198,14 @@ public class Player implements Serializable {
         this.score = score;
     }
 
+    /**
+     * Sets the step count (used when restoring saves)
+     * @param steps steps taken
+     */
+    void setSteps(int steps) {
+        this.steps = steps;
+    }
+
     /**
      * Gets current position of cell
      * @return current cell position
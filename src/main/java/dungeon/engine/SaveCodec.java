@@ -0,0 +1,663 @@
+package dungeon.engine;
+
+import dungeon.engine.cells.interactable.MeleeMutant;
+import dungeon.engine.cells.interactable.Mutant;
+import dungeon.engine.cells.interactable.RangedMutant;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Compact binary save format
+ * Handles:
+ * - Header with magic, format version, payload length and CRC32C checksum
+ * - Game state, player stats and level metadata as fixed-width fields
+ * - Run-length encoded tile codes of each allocated chunk, plus the state of each stateful cell
+ *   (mutants and their RNG state)
+ * - Reading every older format version (forward migration), saves are always written in the current version
+ * A default 10x10 game encodes to a few hundred bytes
+ *
+ * Format (big-endian, var = 7-bit groups, low first):
+ *   header:  magic "MDSV" | version u16 | flags u16 | payload length u32 | payload CRC32C u32
+ *   payload: game | config | player | level | chunks | stateful cells
+ *   chunks:  count var, then per chunk: index var, runs of (code u8, length var) covering its tiles, chunks are
+ *            the map size rounded up to a power of two, at most 64x64 (version 1 chunks were always 64x64)
+ *   stateful cells (chunk then tile order): defeated u8 | rng flag u8 | rng state u64 if flagged
+ */
+public final class SaveCodec {
+    // current format version, bump and add a read case when the payload layout changes
+    public static final int VERSION = 2;
+
+    // header magic ("MDSV") and size
+    private static final int MAGIC = 0x4D445356;
+    private static final int HEADER_SIZE = 16;
+    private static final int CHECKSUM_OFFSET = 12;
+
+    // Java serialization stream magic, saves written before the binary format (version 0)
+    private static final short LEGACY_MAGIC = (short) 0xACED;
+
+    // tiles in the largest chunk
+    private static final int CHUNK_TILES = TileGrid.CHUNK_SIZE * TileGrid.CHUNK_SIZE;
+
+    // stateful flag per tile code
+    private static final boolean[] STATEFUL = new boolean[CellType.values().length];
+
+    // a chunk filled with each tile code, compared against to find run ends
+    private static final byte[][] FILLED = new byte[STATEFUL.length][CHUNK_TILES];
+
+    static {
+        for (CellType type : CellType.values()) {
+            STATEFUL[type.code()] = type.isStateful();
+            Arrays.fill(FILLED[type.code()], type.code());
+        }
+    }
+
+    // stateful cell RNG flags
+    private static final int NO_STATE = 0;
+    private static final int SEEDED_STATE = 1;
+
+    private SaveCodec() {
+    }
+
+    //------------------------------------------------------------------------------------------- ENCODING
+
+    /**
+     * Encodes a game in the current format version
+     * Cheap enough to call on the game thread, the bytes can be written to disk elsewhere
+     *
+     * @param engine game to encode
+     * @return encoded save
+     */
+    public static byte[] encode(GameEngine engine) {
+        Output out = new Output(512);
+        out.skip(HEADER_SIZE); // filled in once the payload is known
+
+        // game
+        out.writeInt(engine.getLevel());
+        out.writeInt(engine.getDifficulty());
+        out.writeByte(engine.isGameOver() ? 1 : 0);
+        out.writeByte(engine.getDeathType());
+        out.writeByte(engine.isNewHighScore() ? 1 : 0);
+        out.writeLong(engine.getSeed());
+
+        Level level = engine.getCurrentLevel();
+        writeConfig(out, level.getConfig());
+        writePlayer(out, engine.getPlayer());
+        writeLevel(out, level);
+
+        byte[] data = out.toByteArray();
+        int payloadLength = data.length - HEADER_SIZE;
+        CRC32C crc = new CRC32C();
+        crc.update(data, HEADER_SIZE, payloadLength);
+
+        ByteBuffer.wrap(data, 0, HEADER_SIZE)
+                .putInt(MAGIC)
+                .putShort((short) VERSION)
+                .putShort((short) 0) // flags, reserved
+                .putInt(payloadLength)
+                .putInt((int) crc.getValue());
+        return data;
+    }
+
+    /**
+     * Writes every game configuration setting
+     *
+     * @param out output buffer
+     * @param config configuration to write
+     */
+    private static void writeConfig(Output out, GameConfig config) {
+        out.writeInt(config.getMapSize());
+        out.writeInt(config.getMaxHp());
+        out.writeInt(config.getMaxSteps());
+        out.writeInt(config.getGoldCount());
+        out.writeInt(config.getPotionCount());
+        out.writeInt(config.getTrapCount());
+        out.writeInt(config.getMeleeCount());
+        out.writeInt(config.getRangedPerDifficulty());
+    }
+
+    /**
+     * Encodes a level alone, in the level section format of a save (used to copy cached levels)
+     *
+     * @param level level to encode
+     * @return encoded level, without a header or checksum
+     */
+    static byte[] encodeLevel(Level level) {
+        Output out = new Output(512);
+        writeLevel(out, level);
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes player stats and position
+     *
+     * @param out output buffer
+     * @param player player to write
+     */
+    private static void writePlayer(Output out, Player player) {
+        out.writeInt(player.getHp());
+        out.writeInt(player.getScore());
+        out.writeInt(player.getSteps());
+        writePosition(out, player.getPosition());
+    }
+
+    /**
+     * Writes level metadata, chunk tile runs and stateful cells
+     *
+     * @param out output buffer
+     * @param level level to write
+     */
+    private static void writeLevel(Output out, Level level) {
+        out.writeInt(level.getLevelNumber());
+        out.writeInt(level.getDifficulty());
+        writePosition(out, level.getEntryPos());
+        writePosition(out, level.getLadderPos());
+
+        // runs over the raw codes of each allocated chunk, unallocated chunks are entirely empty
+        TileGrid tiles = level.getTiles();
+        int size = tiles.getSize();
+        int shift = tiles.getChunkShift();
+        int chunksPerRow = chunksPerRow(size, shift);
+        int chunkTiles = 1 << 2 * shift;
+        int[] stateful = new int[16];
+        int statefulCount = 0;
+
+        out.writeVar(tiles.getAllocatedChunks());
+        for (int chunkIndex = 0; chunkIndex < tiles.getChunkCount(); chunkIndex++) {
+            byte[] codes = tiles.chunkCodes(chunkIndex);
+            if (codes == null) {
+                continue;
+            }
+
+            out.writeVar(chunkIndex);
+            int offset = 0;
+            while (offset < chunkTiles) {
+                byte code = codes[offset];
+                int mismatch = Arrays.mismatch(codes, offset, chunkTiles, FILLED[code], offset, chunkTiles);
+                int end = mismatch < 0 ? chunkTiles : offset + mismatch;
+                out.writeByte(code);
+                out.writeVar(end - offset);
+
+                if (STATEFUL[code]) {
+                    if (statefulCount + end - offset > stateful.length) {
+                        stateful = Arrays.copyOf(stateful, Math.max(stateful.length * 2, statefulCount + end - offset));
+                    }
+                    for (int i = offset; i < end; i++) {
+                        stateful[statefulCount++] = tileX(shift, chunksPerRow, chunkIndex, i) + tileY(shift, chunksPerRow, chunkIndex, i) * size;
+                    }
+                }
+                offset = end;
+            }
+        }
+
+        // stateful cells in chunk then tile order
+        for (int i = 0; i < statefulCount; i++) {
+            Cell cell = tiles.getStateful(stateful[i]);
+            out.writeByte(cell instanceof Mutant mutant && mutant.isDefeated() ? 1 : 0);
+
+            if (cell instanceof RangedMutant ranged && ranged.getRandom() instanceof SeededRandom random) {
+                out.writeByte(SEEDED_STATE);
+                out.writeLong(random.getState());
+            } else {
+                out.writeByte(NO_STATE); // unseeded generator, restored with a fresh one
+            }
+        }
+    }
+
+    /**
+     * Writes a position, or -1/-1 for no position
+     *
+     * @param out output buffer
+     * @param position position to write, may be null
+     */
+    private static void writePosition(Output out, Position position) {
+        out.writeInt(position == null ? -1 : position.getX());
+        out.writeInt(position == null ? -1 : position.getY());
+    }
+
+    //------------------------------------------------------------------------------------------- CHUNK COORDINATES
+
+    /**
+     * Gets the number of chunks per map row
+     *
+     * @param size map size
+     * @param shift log2 of the chunk width/height
+     * @return chunks per row
+     */
+    private static int chunksPerRow(int size, int shift) {
+        return (size + (1 << shift) - 1) >> shift;
+    }
+
+    /**
+     * Gets the map x coordinate of a tile inside a chunk
+     *
+     * @param shift log2 of the chunk width/height
+     * @param chunksPerRow chunks per map row
+     * @param chunkIndex row-major chunk index
+     * @param offset row-major offset inside the chunk
+     * @return x coordinate
+     */
+    private static int tileX(int shift, int chunksPerRow, int chunkIndex, int offset) {
+        return (chunkIndex % chunksPerRow << shift) + (offset & ((1 << shift) - 1));
+    }
+
+    /**
+     * Gets the map y coordinate of a tile inside a chunk
+     *
+     * @param shift log2 of the chunk width/height
+     * @param chunksPerRow chunks per map row
+     * @param chunkIndex row-major chunk index
+     * @param offset row-major offset inside the chunk
+     * @return y coordinate
+     */
+    private static int tileY(int shift, int chunksPerRow, int chunkIndex, int offset) {
+        return (chunkIndex / chunksPerRow << shift) + (offset >> shift);
+    }
+
+    //------------------------------------------------------------------------------------------- DECODING
+
+    /**
+     * Checks if saved data uses the binary format (any version) rather than Java serialization
+     *
+     * @param data saved data
+     * @return true if the data starts with the binary format magic
+     */
+    public static boolean isBinary(byte[] data) {
+        return data.length >= 4 && ByteBuffer.wrap(data).getInt() == MAGIC;
+    }
+
+    /**
+     * Checks if saved data was written by Java serialization (format version 0)
+     *
+     * @param data saved data
+     * @return true if the data is a Java serialization stream
+     */
+    public static boolean isLegacy(byte[] data) {
+        return data.length >= 2 && ByteBuffer.wrap(data).getShort() == LEGACY_MAGIC;
+    }
+
+    /**
+     * Gets the payload checksum stored in the header of a binary save
+     *
+     * @param data encoded save
+     * @return CRC32C of the payload
+     */
+    public static int checksum(byte[] data) {
+        return ByteBuffer.wrap(data).getInt(CHECKSUM_OFFSET);
+    }
+
+    /**
+     * Decodes a binary save into a game, migrating older versions
+     *
+     * @param data encoded save
+     * @param engine game to restore into
+     * @throws IOException if the data is truncated, corrupt or from a newer version
+     */
+    public static void decode(byte[] data, GameEngine engine) throws IOException {
+        ByteBuffer in = checkedPayload(data);
+        int version = version(data);
+        try {
+            switch (version) {
+                case 1, 2 -> readGame(in, engine, version);
+                default -> throw new IOException("Unsupported save version " + version + " (newest is " + VERSION + ")");
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Save file ends early", e);
+        }
+    }
+
+    /**
+     * Reads the slot summary of a binary save without decoding the level
+     *
+     * @param slot slot number
+     * @param data encoded save
+     * @param savedAt save time (epoch milliseconds)
+     * @return slot summary
+     * @throws IOException if the data is truncated, corrupt or from a newer version
+     */
+    static SaveSlot summarize(int slot, byte[] data, long savedAt) throws IOException {
+        ByteBuffer in = checkedPayload(data);
+        int version = version(data);
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported save version " + version + " (newest is " + VERSION + ")");
+        }
+
+        try {
+            int level = in.getInt();
+            int difficulty = in.getInt();
+            in.position(in.position() + 3 + 8 + 8 * 4); // game flags, seed, config
+            return new SaveSlot(slot, level, difficulty, in.getInt(), in.getInt(), in.getInt(), savedAt);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Save file ends early", e);
+        }
+    }
+
+    /**
+     * Validates the header and checksum of a binary save
+     *
+     * @param data encoded save
+     * @return payload buffer
+     * @throws IOException if the data is not a save, truncated or corrupt
+     */
+    private static ByteBuffer checkedPayload(byte[] data) throws IOException {
+        if (data.length < HEADER_SIZE || !isBinary(data)) {
+            throw new IOException("Not a save file");
+        }
+
+        ByteBuffer header = ByteBuffer.wrap(data, 0, HEADER_SIZE);
+        header.getInt(); // magic
+        header.getShort(); // version
+        header.getShort(); // flags
+        int payloadLength = header.getInt();
+        int checksum = header.getInt();
+
+        if (payloadLength != data.length - HEADER_SIZE) {
+            throw new IOException("Save file is truncated");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(data, HEADER_SIZE, payloadLength);
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Save file checksum mismatch");
+        }
+        return ByteBuffer.wrap(data, HEADER_SIZE, payloadLength);
+    }
+
+    /**
+     * Gets the format version of a binary save
+     *
+     * @param data encoded save with a valid header
+     * @return format version
+     */
+    private static int version(byte[] data) {
+        return ByteBuffer.wrap(data).getShort(4) & 0xFFFF;
+    }
+
+    /**
+     * Reads a version 1 or 2 payload (the layouts differ only in chunk size)
+     *
+     * @param in payload buffer
+     * @param engine game to restore into
+     * @param version format version
+     * @throws IOException if the payload is malformed
+     */
+    private static void readGame(ByteBuffer in, GameEngine engine, int version) throws IOException {
+        // game
+        int levelNumber = in.getInt();
+        int difficulty = in.getInt();
+        boolean gameOver = in.get() != 0;
+        int deathType = in.get();
+        boolean newHighScore = in.get() != 0;
+        long seed = in.getLong();
+
+        GameConfig config = readConfig(in);
+
+        // player
+        Player player = new Player(config.getMaxHp(), config.getMaxSteps());
+        player.setHp(in.getInt());
+        player.setScore(in.getInt());
+        player.setSteps(in.getInt());
+        Position position = readPosition(in);
+        if (position == null) {
+            throw new IOException("Save file has no player position");
+        }
+        player.startPos(position.getX(), position.getY());
+
+        Level level = readLevel(in, config, version);
+        engine.restore(level, player, difficulty, levelNumber, gameOver, deathType, newHighScore, seed);
+    }
+
+    /**
+     * Reads every game configuration setting
+     *
+     * @param in payload buffer
+     * @return configuration
+     * @throws IOException if a setting is invalid
+     */
+    private static GameConfig readConfig(ByteBuffer in) throws IOException {
+        try {
+            return GameConfig.DEFAULT
+                    .withMapSize(in.getInt())
+                    .withMaxHp(in.getInt())
+                    .withMaxSteps(in.getInt())
+                    .withSpawns(in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getInt());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid configuration in save file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads level metadata, chunk tile runs and stateful cells
+     *
+     * @param in payload buffer
+     * @param config configuration the level was generated with
+     * @param version format version
+     * @return restored level
+     * @throws IOException if the level data is malformed
+     */
+    private static Level readLevel(ByteBuffer in, GameConfig config, int version) throws IOException {
+        int levelNumber = in.getInt();
+        int difficulty = in.getInt();
+        Position entryPos = readPosition(in);
+        Position ladderPos = readPosition(in);
+
+        int size = config.getMapSize();
+        TileGrid tiles = new TileGrid(size);
+        int shift = version == 1 ? TileGrid.CHUNK_SHIFT : tiles.getChunkShift(); // version 1 chunks were 64x64
+        int chunksPerRow = chunksPerRow(size, shift);
+        int chunkTiles = 1 << 2 * shift;
+
+        // chunk runs, stateful tiles are left empty and placed from the next section
+        int[] stateful = new int[16];
+        CellType[] statefulTypes = new CellType[16];
+        int statefulCount = 0;
+
+        long chunkCount = readVar(in);
+        if (chunkCount > (long) chunksPerRow * chunksPerRow) {
+            throw new IOException("Invalid chunk count in save file");
+        }
+        for (long c = 0; c < chunkCount; c++) {
+            long chunkIndex = readVar(in);
+            if (chunkIndex >= (long) chunksPerRow * chunksPerRow || tiles.chunkCodes((int) chunkIndex) != null) {
+                throw new IOException("Invalid chunk index in save file");
+            }
+
+            byte[] codes = new byte[chunkTiles];
+            int offset = 0;
+            while (offset < chunkTiles) {
+                CellType type = readType(in);
+                long length = readVar(in);
+                if (length <= 0 || length > chunkTiles - offset) {
+                    throw new IOException("Invalid tile run in save file");
+                }
+                int end = offset + (int) length;
+
+                if (type.isStateful()) {
+                    if (statefulCount + end - offset > stateful.length) {
+                        int grown = Math.max(stateful.length * 2, statefulCount + end - offset);
+                        stateful = Arrays.copyOf(stateful, grown);
+                        statefulTypes = Arrays.copyOf(statefulTypes, grown);
+                    }
+                    for (int i = offset; i < end; i++) {
+                        int x = tileX(shift, chunksPerRow, (int) chunkIndex, i);
+                        int y = tileY(shift, chunksPerRow, (int) chunkIndex, i);
+                        if (x >= size || y >= size) {
+                            throw new IOException("Stateful tile outside the map in save file");
+                        }
+                        stateful[statefulCount] = y * size + x;
+                        statefulTypes[statefulCount++] = type;
+                    }
+                } else if (type != CellType.EMPTY) {
+                    Arrays.fill(codes, offset, end, type.code());
+                }
+                offset = end;
+            }
+            if (shift == tiles.getChunkShift()) {
+                tiles.loadChunk((int) chunkIndex, codes);
+            } else {
+                tiles.loadChunk(0, shrinkChunk(codes, shift, size, tiles.getChunkShift())); // one chunk covers the map
+            }
+        }
+
+        // stateful cells
+        for (int i = 0; i < statefulCount; i++) {
+            int x = stateful[i] % size;
+            int y = stateful[i] / size;
+            boolean defeated = in.get() != 0;
+            int stateFlag = in.get();
+
+            Mutant mutant;
+            if (statefulTypes[i] == CellType.MELEE_MUTANT) {
+                mutant = new MeleeMutant();
+            } else {
+                SeededRandom random = new SeededRandom();
+                if (stateFlag == SEEDED_STATE) {
+                    random.setState(in.getLong());
+                }
+                mutant = new RangedMutant(x, y, random);
+            }
+            mutant.setDefeated(defeated);
+            tiles.setCell(x, y, mutant);
+        }
+
+        return new Level(levelNumber, difficulty, config, tiles, entryPos, ladderPos);
+    }
+
+    /**
+     * Copies the map corner of a larger chunk into a chunk of the grid's size (version 1 saves of small maps)
+     *
+     * @param codes row-major codes of the saved chunk
+     * @param shift log2 of the saved chunk width/height
+     * @param size map size, no larger than the grid chunk
+     * @param gridShift log2 of the grid chunk width/height
+     * @return row-major codes of the grid chunk
+     */
+    private static byte[] shrinkChunk(byte[] codes, int shift, int size, int gridShift) {
+        byte[] shrunk = new byte[1 << 2 * gridShift];
+        for (int y = 0; y < size; y++) {
+            System.arraycopy(codes, y << shift, shrunk, y << gridShift, size);
+        }
+        return shrunk;
+    }
+
+    /**
+     * Decodes a level written by encodeLevel
+     *
+     * @param data encoded level
+     * @param config configuration the level was generated with
+     * @return new level instance
+     * @throws IOException if the level data is malformed
+     */
+    static Level decodeLevel(byte[] data, GameConfig config) throws IOException {
+        try {
+            return readLevel(ByteBuffer.wrap(data), config, VERSION);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Level data is truncated", e);
+        }
+    }
+
+    /**
+     * Reads a tile code
+     *
+     * @param in payload buffer
+     * @return cell type
+     * @throws IOException if the code is unknown
+     */
+    private static CellType readType(ByteBuffer in) throws IOException {
+        byte code = in.get();
+        if (code < 0 || code >= STATEFUL.length) {
+            throw new IOException("Unknown tile code in save file: " + code);
+        }
+        return CellType.fromCode(code);
+    }
+
+    /**
+     * Reads a position written by writePosition
+     *
+     * @param in payload buffer
+     * @return position, null for -1/-1
+     */
+    private static Position readPosition(ByteBuffer in) {
+        int x = in.getInt();
+        int y = in.getInt();
+        return x < 0 && y < 0 ? null : new Position(x, y);
+    }
+
+    /**
+     * Reads a value written by Output.writeVar
+     *
+     * @param in payload buffer
+     * @return value
+     * @throws IOException if the value is malformed
+     */
+    private static long readVar(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed number in save file");
+    }
+
+    //------------------------------------------------------------------------------------------- OUTPUT
+
+    /**
+     * Growable big-endian byte buffer, unsynchronised unlike DataOutputStream over ByteArrayOutputStream
+     */
+    private static final class Output {
+        private byte[] bytes;
+        private int length;
+
+        Output(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void skip(int count) {
+            ensure(count);
+            length += count;
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            bytes[length++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            bytes[length++] = (byte) (value >>> 24);
+            bytes[length++] = (byte) (value >>> 16);
+            bytes[length++] = (byte) (value >>> 8);
+            bytes[length++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        // non-negative value in 7-bit groups, 1 byte below 128
+        void writeVar(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+
+        private void ensure(int count) {
+            if (length + count > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + count));
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package dungeon.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Background writer for save files
+ * Handles:
+ * - Writing saves off the calling (UI) thread, completion is reported through a CompletableFuture
+ * - Atomic replacement: temp file next to the save, fsync, then ATOMIC_MOVE over the old save,
+ *   so a crash leaves either the old or the new save, never a partial one
+ * - Running writes and deletes one at a time in request order, so an older save never lands after a newer one
+ * - Finishing queued work when the JVM exits (waiting up to 5 seconds)
+ * Saves are encoded by the caller before submitting, the game keeps running while the bytes are written
+ */
+public final class SaveService {
+    // writer shared by every game in the JVM
+    private static final SaveService SHARED = new SaveService();
+
+    // longest wait on exit for writes still queued
+    private static final long EXIT_WAIT_SECONDS = 5;
+
+    static {
+        // queued work (journal moves, score sketch) is finished before the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(SHARED::finish, "save-writer-exit"));
+    }
+
+    // a single virtual thread, tasks run in submission order and never block JVM exit
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("save-writer").factory());
+
+    /**
+     * Gets the writer shared by every game in the JVM
+     * @return shared save service
+     */
+    public static SaveService shared() {
+        return SHARED;
+    }
+
+    /**
+     * Writes a save in the background, atomically replacing any existing file
+     *
+     * @param path save file path
+     * @param data encoded save
+     * @return future completing once the save is on disk, or exceptionally with the IOException
+     */
+    public CompletableFuture<Void> write(Path path, byte[] data) {
+        return submit(() -> writeAtomically(path, data));
+    }
+
+    /**
+     * Deletes files in the background, after every write submitted before
+     *
+     * @param paths files to delete, missing files are skipped
+     * @return future completing once the files are gone
+     */
+    public CompletableFuture<Void> delete(Path... paths) {
+        return submit(() -> {
+            for (Path path : paths) {
+                Files.deleteIfExists(path);
+            }
+        });
+    }
+
+    /**
+     * Waits for every write and delete submitted so far
+     */
+    public void flush() {
+        submit(() -> {
+        }).join();
+    }
+
+    /**
+     * Waits a bounded time for the queued work, on JVM exit
+     */
+    private void finish() {
+        try {
+            submit(() -> {
+            }).get(EXIT_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            System.err.println("Save writer did not finish before exit: " + e);
+        }
+    }
+
+    /**
+     * Runs a file task on the writer thread
+     *
+     * @param task task to run
+     * @return future completing with the task
+     */
+    CompletableFuture<Void> submit(IOTask task) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                task.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, writer);
+    }
+
+    /**
+     * Gets the message of the IOException behind a failed background task
+     *
+     * @param error failure
+     * @return IOException message
+     */
+    static String ioMessage(Throwable error) {
+        while (!(error instanceof IOException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error.getMessage();
+    }
+
+    /**
+     * Writes a file through a synced temp file and an atomic move
+     * Falls back to a plain replacing move on file systems without atomic moves
+     *
+     * @param path file path
+     * @param data file contents
+     * @throws IOException if writing or moving fails (the old file is left untouched)
+     */
+    public static void writeAtomically(Path path, byte[] data) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * File task that may fail with an IOException
+     */
+    @FunctionalInterface
+    interface IOTask {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,102 @@
+package dungeon.engine;
+
+/**
+ * Summary of a saved game slot, as listed by a save browser
+ * Immutable, read from the slot index without decoding the save
+ */
+public final class SaveSlot {
+    private final int slot;
+    private final int level;
+    private final int difficulty;
+    private final int hp;
+    private final int score;
+    private final int steps;
+    private final long savedAt;
+
+    /**
+     * Creates a slot summary
+     *
+     * @param slot slot number
+     * @param level current level
+     * @param difficulty current difficulty
+     * @param hp player hp
+     * @param score player score
+     * @param steps steps taken
+     * @param savedAt save time (epoch milliseconds)
+     */
+    public SaveSlot(int slot, int level, int difficulty, int hp, int score, int steps, long savedAt) {
+        this.slot = slot;
+        this.level = level;
+        this.difficulty = difficulty;
+        this.hp = hp;
+        this.score = score;
+        this.steps = steps;
+        this.savedAt = savedAt;
+    }
+
+    /**
+     * Gets the slot number
+     * @return slot number
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Gets the saved level
+     * @return level number
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Gets the saved difficulty
+     * @return difficulty
+     */
+    public int getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * Gets the saved player hp
+     * @return hp
+     */
+    public int getHp() {
+        return hp;
+    }
+
+    /**
+     * Gets the saved player score
+     * @return score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Gets the saved step count
+     * @return steps
+     */
+    public int getSteps() {
+        return steps;
+    }
+
+    /**
+     * Gets the save time
+     * @return epoch milliseconds
+     */
+    public long getSavedAt() {
+        return savedAt;
+    }
+
+    /**
+     * One line slot description
+     * @return slot description
+     */
+    @Override
+    public String toString() {
+        return "Slot " + slot + ": level " + level + ", difficulty " + difficulty + ", HP " + hp
+                + ", score " + score + ", steps " + steps;
+    }
+}
@@ -0,0 +1,304 @@
+package dungeon.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32C;
+
+/**
+ * Multi-slot save store
+ * Handles:
+ * - One save file per slot (slot-N.dat, binary save format) in a save directory
+ * - A small index file (slots.idx) with the level, difficulty, hp, score, steps and save time of every slot,
+ *   so slots are listed without decoding any save
+ * - Writing slots and the index in the background through the save service (atomic replacement)
+ * - Rebuilding the index from the slot files when it is missing or corrupt
+ * Thread-safe, the index is kept in memory after the first read
+ *
+ * Index format (big-endian):
+ *   header:  magic "MDSI" | version u16 | reserved u16 | slot count u32 | records CRC32C u32
+ *   records: slot u32 | level u32 | difficulty u32 | hp u32 | score u32 | steps u32 | saved at (epoch ms) u64
+ */
+public final class SaveSlots {
+    // index file name, magic ("MDSI"), version and sizes
+    private static final String INDEX_FILE = "slots.idx";
+    private static final int MAGIC = 0x4D445349;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 32;
+
+    private final Path directory;
+    private final SaveService saves;
+    private TreeMap<Integer, SaveSlot> index; // by slot number, read on first use
+
+    /**
+     * Creates a slot store writing through the shared save service
+     *
+     * @param directory save directory, created on the first save
+     */
+    public SaveSlots(Path directory) {
+        this(directory, SaveService.shared());
+    }
+
+    /**
+     * Creates a slot store
+     *
+     * @param directory save directory, created on the first save
+     * @param saves save service writing the files
+     */
+    public SaveSlots(Path directory, SaveService saves) {
+        this.directory = directory;
+        this.saves = saves;
+    }
+
+    //------------------------------------------------------------------------------------------- SLOTS
+
+    /**
+     * Lists every saved slot from the index
+     * @return slot summaries by slot number
+     */
+    public synchronized List<SaveSlot> list() {
+        return new ArrayList<>(index().values());
+    }
+
+    /**
+     * Gets the summary of a slot
+     *
+     * @param slot slot number
+     * @return slot summary, null if the slot is empty
+     */
+    public synchronized SaveSlot get(int slot) {
+        return index().get(slot);
+    }
+
+    /**
+     * Saves a game to a slot in the background, replacing any earlier save in the slot
+     * The game is encoded on the calling thread
+     *
+     * @param slot slot number (0 or more)
+     * @param engine game to save
+     * @return future completing with the save result status once the slot and index are on disk
+     */
+    public CompletableFuture<String> save(int slot, GameEngine engine) {
+        checkSlot(slot);
+        byte[] data = SaveCodec.encode(engine);
+        Player player = engine.getPlayer();
+        SaveSlot summary = new SaveSlot(slot, engine.getLevel(), engine.getDifficulty(), player.getHp(),
+                player.getScore(), player.getSteps(), System.currentTimeMillis());
+
+        CompletableFuture<Void> written;
+        synchronized (this) { // index versions are submitted in the order they are made
+            index().put(slot, summary);
+            byte[] indexData = encodeIndex();
+            written = saves.submit(() -> {
+                Files.createDirectories(directory);
+                SaveService.writeAtomically(slotPath(slot), data);
+                SaveService.writeAtomically(indexPath(), indexData);
+            });
+        }
+
+        return written.handle((done, error) -> error == null
+                ? "Game saved to slot " + slot + "!"
+                : "Error saving game: " + SaveService.ioMessage(error));
+    }
+
+    /**
+     * Loads the game in a slot, only this slot's save is decoded
+     *
+     * @param slot slot number
+     * @param engine game to restore into
+     * @return true if load successful
+     */
+    public boolean load(int slot, GameEngine engine) {
+        checkSlot(slot);
+        saves.flush(); // a save of this slot may still be in flight
+        try {
+            SaveCodec.decode(Files.readAllBytes(slotPath(slot)), engine);
+            return true;
+        } catch (NoSuchFileException e) {
+            System.err.println("Error loading slot " + slot + ": slot is empty");
+            return false;
+        } catch (IOException e) {
+            System.err.println("Error loading slot " + slot + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Deletes a slot in the background
+     *
+     * @param slot slot number
+     * @return future completing once the slot file is gone and the index is updated
+     */
+    public synchronized CompletableFuture<Void> delete(int slot) {
+        checkSlot(slot);
+        index().remove(slot);
+        byte[] indexData = encodeIndex();
+
+        return saves.submit(() -> {
+            Files.deleteIfExists(slotPath(slot));
+            if (Files.isDirectory(directory)) {
+                SaveService.writeAtomically(indexPath(), indexData);
+            }
+        });
+    }
+
+    /**
+     * Rebuilds the index by reading the summary of every slot file (recovery, not needed for listing)
+     * Unreadable slot files are left out
+     */
+    public synchronized void rebuildIndex() {
+        saves.flush();
+        index = scanSlots();
+        byte[] indexData = encodeIndex();
+        if (Files.isDirectory(directory)) {
+            saves.submit(() -> SaveService.writeAtomically(indexPath(), indexData));
+        }
+    }
+
+    /**
+     * Gets the save file path of a slot
+     *
+     * @param slot slot number
+     * @return slot file path
+     */
+    public Path slotPath(int slot) {
+        return directory.resolve("slot-" + slot + ".dat");
+    }
+
+    /**
+     * Gets the index file path
+     * @return index file path
+     */
+    public Path indexPath() {
+        return directory.resolve(INDEX_FILE);
+    }
+
+    /**
+     * Checks a slot number
+     * @param slot slot number
+     */
+    private static void checkSlot(int slot) {
+        if (slot < 0) {
+            throw new IllegalArgumentException("Slot must be 0 or more, was " + slot);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------- INDEX
+
+    /**
+     * Gets the in-memory index, reading the index file on first use
+     * @return slots by number
+     */
+    private TreeMap<Integer, SaveSlot> index() {
+        if (index == null) {
+            try {
+                index = readIndex(Files.readAllBytes(indexPath()));
+            } catch (NoSuchFileException e) {
+                index = scanSlots(); // no index yet, or lost
+            } catch (IOException e) {
+                System.err.println("Rebuilding save slot index: " + e.getMessage());
+                index = scanSlots();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Decodes an index file
+     *
+     * @param data index file contents
+     * @return slots by number
+     * @throws IOException if the index is corrupt
+     */
+    private static TreeMap<Integer, SaveSlot> readIndex(byte[] data) throws IOException {
+        if (data.length < HEADER_SIZE) {
+            throw new IOException("Index file is truncated");
+        }
+        ByteBuffer in = ByteBuffer.wrap(data);
+        if (in.getInt() != MAGIC || in.getShort() != VERSION) {
+            throw new IOException("Not a save slot index");
+        }
+        in.getShort(); // reserved
+        int count = in.getInt();
+        int checksum = in.getInt();
+
+        if (count < 0 || (long) count * RECORD_SIZE != data.length - HEADER_SIZE) {
+            throw new IOException("Index file is truncated");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(data, HEADER_SIZE, data.length - HEADER_SIZE);
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Index file checksum mismatch");
+        }
+
+        TreeMap<Integer, SaveSlot> slots = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            SaveSlot slot = new SaveSlot(in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getLong());
+            slots.put(slot.getSlot(), slot);
+        }
+        return slots;
+    }
+
+    /**
+     * Encodes the in-memory index
+     * @return index file contents
+     */
+    private byte[] encodeIndex() {
+        byte[] data = new byte[HEADER_SIZE + index.size() * RECORD_SIZE];
+        ByteBuffer out = ByteBuffer.wrap(data).position(HEADER_SIZE);
+        for (SaveSlot slot : index.values()) {
+            out.putInt(slot.getSlot())
+                    .putInt(slot.getLevel())
+                    .putInt(slot.getDifficulty())
+                    .putInt(slot.getHp())
+                    .putInt(slot.getScore())
+                    .putInt(slot.getSteps())
+                    .putLong(slot.getSavedAt());
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(data, HEADER_SIZE, data.length - HEADER_SIZE);
+        ByteBuffer.wrap(data)
+                .putInt(MAGIC)
+                .putShort((short) VERSION)
+                .putShort((short) 0) // reserved
+                .putInt(index.size())
+                .putInt((int) crc.getValue());
+        return data;
+    }
+
+    /**
+     * Reads the summary of every slot file in the save directory
+     * @return slots by number
+     */
+    private TreeMap<Integer, SaveSlot> scanSlots() {
+        TreeMap<Integer, SaveSlot> slots = new TreeMap<>();
+        if (!Files.isDirectory(directory)) {
+            return slots;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "slot-*.dat")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    int slot = Integer.parseInt(name.substring("slot-".length(), name.length() - ".dat".length()));
+                    long savedAt = Files.getLastModifiedTime(file).toMillis();
+                    slots.put(slot, SaveCodec.summarize(slot, Files.readAllBytes(file), savedAt));
+                } catch (NumberFormatException | IOException e) {
+                    System.err.println("Skipping unreadable save slot " + name + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading save directory: " + e.getMessage());
+        }
+        return slots;
+    }
+}
@@ -1,36 +1,96 @@
 package dungeon.engine;
 
 import java.io.*;
-import java.text.SimpleDateFormat;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Manages score and highscore functionality
  * Handles:
- * - Score storage
+ * - Score storage (bounded top-K of primitive score, time, difficulty and seed columns, sorted in descending order)
  * - Score loading
- * - Score format
- * - Serialization for persistent storage between sessions
+ * - Score format (dates are only formatted when displayed)
+ * - Fixed-record file for persistent storage between sessions, a new high score is one positioned write
+ * - Sharing the file between processes: every write takes a FileChannel lock, re-reads the file and merges it
+ *   with this instance's entries first, so games running at the same time never drop each other's scores
+ * - Migration of older score files (Java serialization, version 1 and 2 records, see ScoreFile)
+ * - Leaderboard of the top maxStore runs of each difficulty, fed every accepted run and every entry read
+ *   (paged top scores, ranks, date ranges)
+ * - Replication between hosts: every entry has a unique id and the list is the top maxStore of every entry seen,
+ *   in a total order (score, then time, then id), so merging replica files (see ScoreReplica) in any order or any
+ *   number of times gives the same list
  * - Implements ScoreHandler interface for standardised score management
+ * File format and migration in ScoreFile, replica files in ScoreReplica
  */
 public class Score implements ScoreHandler, Serializable {
+    // shared display format for score dates (DateTimeFormatter is immutable and thread-safe)
+    public static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy")
+            .withZone(ZoneId.systemDefault());
+
+    // difficulty of scores added without one (and of migrated scores)
+    public static final int UNKNOWN_DIFFICULTY = -1;
+
     /**
      * Inner class representing a single highscore entry
-     * Stores score value and date
+     * Stores score value, time, difficulty and seed
+     * Only created on request, Score itself stores entries as primitives
      */
     public static class ScoreEntry implements Serializable, Comparable<ScoreEntry> {
+        // matches score files written with Java serialization, which are still migrated
+        @Serial
+        private static final long serialVersionUID = 4245247120314979579L;
+
         private final int score;
-        private final String date;
+        private final String date; // only set in entries read from serialized score files
+        private final long epochMillis;
+        private final int difficulty;
+        private final long seed;
+        private final long id;
 
         /**
-         * Creates a score entry with the current date
+         * Creates a score entry with the current time
          *
          * @param score final score value
          */
         public ScoreEntry(int score) {
+            this(score, System.currentTimeMillis(), UNKNOWN_DIFFICULTY, 0L);
+        }
+
+        /**
+         * Creates a score entry
+         *
+         * @param score final score value
+         * @param epochMillis time the score was achieved (epoch milliseconds)
+         * @param difficulty difficulty the game was finished on
+         * @param seed game master seed
+         */
+        public ScoreEntry(int score, long epochMillis, int difficulty, long seed) {
+            this(score, epochMillis, difficulty, seed, entryId(score, epochMillis, difficulty, seed, 0));
+        }
+
+        /**
+         * Creates a score entry with a known id
+         *
+         * @param score final score value
+         * @param epochMillis time the score was achieved (epoch milliseconds)
+         * @param difficulty difficulty the game was finished on
+         * @param seed game master seed
+         * @param id unique entry id
+         */
+        public ScoreEntry(int score, long epochMillis, int difficulty, long seed, long id) {
             this.score = score;
-            SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
-            this.date = dateFormat.format(new Date());
+            this.date = null;
+            this.epochMillis = epochMillis;
+            this.difficulty = difficulty;
+            this.seed = seed;
+            this.id = id;
         }
 
         /**
@@ -42,12 +102,52 @@ public class Score implements ScoreHandler, Serializable {
             return score;
         }
 
+        /**
+         * Gets the time the score was achieved
+         * @return epoch milliseconds
+         */
+        public long getEpochMillis() {
+            return epochMillis;
+        }
+
+        /**
+         * Gets the difficulty the game was finished on
+         * @return difficulty, UNKNOWN_DIFFICULTY if not recorded
+         */
+        public int getDifficulty() {
+            return difficulty;
+        }
+
+        /**
+         * Gets the master seed of the game
+         * @return master seed, 0 if not recorded
+         */
+        public long getSeed() {
+            return seed;
+        }
+
+        /**
+         * Gets the unique id of the entry, the same on every host it is replicated to
+         * @return entry id
+         */
+        public long getId() {
+            return id;
+        }
+
         /**
          * Gets the date of when score was achieved
          *
          * @return formatted date string
          */
         public String getDate() {
+            return date != null ? date : DATE_FORMAT.format(Instant.ofEpochMilli(epochMillis));
+        }
+
+        /**
+         * Gets the date an entry of a serialized score file was stored with
+         * @return dd/MM/yyyy date, null for entries created since
+         */
+        String getStoredDate() {
             return date;
         }
 
@@ -69,14 +169,32 @@ public class Score implements ScoreHandler, Serializable {
          */
         @Override
         public String toString() {
-            return score + " " + date;
+            return score + " " + getDate();
         }
     }
 
     //------------------------------------------------------------------------------ MAIN CLASS
+    // matches games saved with Java serialization, which still hold a Score
+    @Serial
+    private static final long serialVersionUID = -3909156595339791719L;
+
     private final int maxStore; // max amount of scores to track
     private final String scoreFile; // filename
-    private final List<ScoreEntry> highScores;
+
+    // entries in descending score order, first size used
+    private final int[] scores;
+    private final long[] times;
+    private final int[] difficulties;
+    private final long[] seeds;
+    private final long[] ids;
+    private final int[] slots; // file slot of each entry
+    private int size;
+    private transient Leaderboard leaderboard; // top runs of each difficulty
+    private transient byte[] lastFile; // file contents as last read or written, an unchanged file is not reloaded
+    private transient volatile SketchStore sketches; // every submitted score, for percentile ranks
+
+    // guards creating a sketch store, apart from the Score monitor held while the score file is written
+    private static final Object SKETCH_LOCK = new Object();
 
     /**
      * Creates a Score instance with set file path and max scores to be saved
@@ -86,8 +204,13 @@ public class Score implements ScoreHandler, Serializable {
      */
     public Score(String scoreFile, int maxStore) {
         this.scoreFile = scoreFile;
-        this.maxStore = maxStore;
-        this.highScores = new ArrayList<>();
+        this.maxStore = Math.max(0, maxStore);
+        this.scores = new int[this.maxStore];
+        this.times = new long[this.maxStore];
+        this.difficulties = new int[this.maxStore];
+        this.seeds = new long[this.maxStore];
+        this.ids = new long[this.maxStore];
+        this.slots = new int[this.maxStore];
         loadScores();
     }
 
@@ -101,33 +224,203 @@ public class Score implements ScoreHandler, Serializable {
     }
 
     /**
-     * Adds a new high score to the persisted list if qualifiable
-     * Sorted in descending order and trimmed to maxStore entries, negative/0 scores not entered
+     * Adds a new high score to the persisted list if qualifiable, without a difficulty or seed
      *
      * @param score value to add
      * @return true if score was added
      */
     public boolean addScore(int score) {
+        return addScore(score, UNKNOWN_DIFFICULTY, 0L);
+    }
+
+    /**
+     * Adds a new high score to the persisted list if qualifiable, and records the win in the score sketch
+     * (in memory, the sketch file is written in the background)
+     * Sorted in descending order and trimmed to maxStore entries, negative/0 scores not entered
+     * Scores not beating the lowest entry of a full list are rejected without touching the score file
+     * (entries on disk only ever rise, so a stale list never rejects a score the file would take)
+     *
+     * @param score value to add
+     * @param difficulty difficulty the game was finished on
+     * @param seed game master seed
+     * @return true if score was added
+     */
+    @Override
+    public boolean addScore(int score, int difficulty, long seed) {
+        getSketches().record(difficulty, score); // every win counts towards percentile ranks
+        return addScore(score, System.currentTimeMillis(), difficulty, seed);
+    }
+
+    /**
+     * Adds a high score achieved at a given time to the persisted list if qualifiable
+     *
+     * @param score value to add
+     * @param epochMillis time the score was achieved
+     * @param difficulty difficulty the game was finished on
+     * @param seed game master seed
+     * @return true if score was added
+     */
+    synchronized boolean addScore(int score, long epochMillis, int difficulty, long seed) {
         if (score <= 0) {
+            return false;
+        }
+        leaderboard().add(score, epochMillis, difficulty, seed); // ranked on its difficulty even if not listed
+        if (!qualifies(score)) {
             return false; // prevents losing scores from saving
         }
 
-        ScoreEntry newEntry = new ScoreEntry(score);
-        highScores.add(newEntry);
-        Collections.sort(highScores);
+        long id = ThreadLocalRandom.current().nextLong();
+        boolean[] added = new boolean[1];
+        try {
+            locked(channel -> {
+                boolean rewrite = merge(ScoreFile.read(channel)); // scores written by other games since loading
+                if (!qualifies(score, epochMillis, id)) {
+                    if (rewrite) {
+                        writeFile(channel);
+                    }
+                    return; // pushed out by those scores
+                }
+                int slot = insert(score, epochMillis, difficulty, seed, id, -1);
+                added[0] = true;
+
+                // saving changes
+                if (rewrite) {
+                    writeFile(channel);
+                } else {
+                    writeRecord(channel, slot);
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Error saving scores: " + e.getMessage());
+        }
+        return added[0];
+    }
 
-        // checking if new score is in the highscores
-        boolean isHighScore = checkHighScore(newEntry);
+    /**
+     * Checks if a new score would enter the list, before it has a time or id
+     *
+     * @param score value to check
+     * @return true unless the list is full and the score does not beat the lowest entry
+     */
+    private boolean qualifies(int score) {
+        return size < maxStore || (size > 0 && score > scores[size - 1]); // ties rank after existing entries
+    }
 
-        // trimming list using max score limit if required
-        if (highScores.size() > maxStore) {
-            highScores.subList(maxStore, highScores.size()).clear();
+    /**
+     * Checks if an entry would enter the list
+     *
+     * @param score score value
+     * @param epochMillis time achieved
+     * @param id entry id
+     * @return true unless the list is full and the entry ranks after the lowest entry
+     */
+    private boolean qualifies(int score, long epochMillis, long id) {
+        int last = size - 1;
+        return size < maxStore || (size > 0 && compare(score, epochMillis, id, scores[last], times[last], ids[last]) < 0);
+    }
+
+    /**
+     * Orders entries the same way on every host: higher score first, then earlier time, then lower id
+     *
+     * @param score first entry score
+     * @param epochMillis first entry time
+     * @param id first entry id
+     * @param otherScore second entry score
+     * @param otherMillis second entry time
+     * @param otherId second entry id
+     * @return negative if the first entry ranks first, 0 if they are the same entry
+     */
+    static int compare(int score, long epochMillis, long id, int otherScore, long otherMillis, long otherId) {
+        if (score != otherScore) {
+            return Integer.compare(otherScore, score);
+        }
+        if (epochMillis != otherMillis) {
+            return Long.compare(epochMillis, otherMillis);
         }
+        return Long.compare(id, otherId);
+    }
 
-        // saving changes
-        saveScores();
+    /**
+     * Derives the id of an entry that was written without one (migrated files)
+     * Hosts migrating copies of the same file give its entries the same ids, equal entries keep apart by position
+     *
+     * @param score score value
+     * @param epochMillis time achieved
+     * @param difficulty difficulty
+     * @param seed master seed
+     * @param position slot or list position in the migrated file
+     * @return entry id
+     */
+    static long entryId(int score, long epochMillis, int difficulty, long seed, int position) {
+        return Seeds.derive(Seeds.derive(Seeds.derive(Seeds.derive(epochMillis, score), difficulty), seed), position);
+    }
 
-        return isHighScore;
+    /**
+     * Inserts an entry at its rank, pushing out the lowest entry of a full list
+     *
+     * @param score score value
+     * @param epochMillis time achieved
+     * @param difficulty difficulty
+     * @param seed master seed
+     * @param id entry id
+     * @param slot file slot, -1 to reuse the pushed out entry's slot or take the next free one
+     * @return file slot the entry was given
+     */
+    private int insert(int score, long epochMillis, int difficulty, long seed, long id, int slot) {
+        int low = rankOf(score, epochMillis, id);
+        if (slot < 0) {
+            slot = size == maxStore ? slots[size - 1] : size;
+        }
+        int moved = Math.min(size, maxStore - 1) - low;
+        System.arraycopy(scores, low, scores, low + 1, moved);
+        System.arraycopy(times, low, times, low + 1, moved);
+        System.arraycopy(difficulties, low, difficulties, low + 1, moved);
+        System.arraycopy(seeds, low, seeds, low + 1, moved);
+        System.arraycopy(ids, low, ids, low + 1, moved);
+        System.arraycopy(slots, low, slots, low + 1, moved);
+        scores[low] = score;
+        times[low] = epochMillis;
+        difficulties[low] = difficulty;
+        seeds[low] = seed;
+        ids[low] = id;
+        slots[low] = slot;
+        size = Math.min(size + 1, maxStore);
+        return slot;
+    }
+
+    /**
+     * Finds the rank of an entry, after every entry ranking before it
+     *
+     * @param score score value
+     * @param epochMillis time achieved
+     * @param id entry id
+     * @return rank the entry has or would have
+     */
+    private int rankOf(int score, long epochMillis, long id) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(scores[mid], times[mid], ids[mid], score, epochMillis, id) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Checks if an entry is in the list
+     *
+     * @param score score value
+     * @param epochMillis time achieved
+     * @param id entry id
+     * @return true if the entry is listed
+     */
+    private boolean contains(int score, long epochMillis, long id) {
+        int rank = rankOf(score, epochMillis, id);
+        return rank < size && ids[rank] == id;
     }
 
     /**
@@ -136,50 +429,337 @@ public class Score implements ScoreHandler, Serializable {
      * @param entry score to check
      * @return true if score is within high score range
      */
-    public boolean checkHighScore(ScoreEntry entry) {
-        return highScores.indexOf(entry) < maxStore;
+    public synchronized boolean checkHighScore(ScoreEntry entry) {
+        for (int i = 0; i < size; i++) {
+            if (scores[i] == entry.getScore() && times[i] == entry.getEpochMillis()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of stored high scores
+     * @return entry count
+     */
+    public synchronized int getEntryCount() {
+        return size;
+    }
+
+    /**
+     * Gets a high score entry
+     *
+     * @param rank rank (0 = highest)
+     * @return entry at the rank
+     */
+    public synchronized ScoreEntry getEntry(int rank) {
+        Objects.checkIndex(rank, size);
+        return new ScoreEntry(scores[rank], times[rank], difficulties[rank], seeds[rank], ids[rank]);
     }
 
     /**
-     * Saves the current highscore list to file with serialization
+     * Gets the high score entries
+     * @return entries in descending order
      */
-    public void saveScores() {
-        try (ObjectOutputStream out = new ObjectOutputStream(
-                new BufferedOutputStream(new FileOutputStream(scoreFile)))) {
-            out.writeObject(highScores);
+    public synchronized List<ScoreEntry> getEntries() {
+        List<ScoreEntry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new ScoreEntry(scores[i], times[i], difficulties[i], seeds[i], ids[i]));
+        }
+        return entries;
+    }
+
+    /**
+     * Gets the max amount of saved scores
+     * @return list capacity
+     */
+    public int getCapacity() {
+        return maxStore;
+    }
+
+    /**
+     * Gets the leaderboard of the top runs of each difficulty, including runs the list has pushed out
+     * (held in memory, a new instance starts from the score file)
+     * @return leaderboard
+     */
+    public synchronized Leaderboard getLeaderboard() {
+        return leaderboard();
+    }
+
+    /**
+     * Gets the score sketch of every submitted run, persisted next to the score file
+     * @return score sketch store
+     */
+    public SketchStore getSketches() {
+        SketchStore store = sketches;
+        if (store == null) {
+            synchronized (SKETCH_LOCK) {
+                store = sketches;
+                if (store == null) {
+                    store = new SketchStore(scoreFile); // transient, missing after deserialisation
+                    sketches = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Gets the share of submitted wins on a difficulty a score beats
+     *
+     * @param score score value
+     * @param difficulty difficulty
+     * @return percentage between 0 and 100, 0 without runs
+     */
+    @Override
+    public double percentBeaten(int score, int difficulty) {
+        return getSketches().percentBeaten(difficulty, score);
+    }
+
+    /**
+     * Gets the leaderboard, indexing the list first if needed
+     * @return leaderboard
+     */
+    private Leaderboard leaderboard() {
+        if (leaderboard == null) {
+            leaderboard = new Leaderboard(maxStore); // transient, missing after deserialisation
+            for (int i = 0; i < size; i++) {
+                leaderboard.add(scores[i], times[i], difficulties[i], seeds[i]);
+            }
+        }
+        return leaderboard;
+    }
+
+    //------------------------------------------------------------------------------ PERSISTENCE
+
+    /**
+     * Saves the current highscore list to file in full, one record per entry
+     * Entries written by other games since loading are merged in first
+     */
+    public synchronized void saveScores() {
+        try {
+            locked(channel -> {
+                merge(ScoreFile.read(channel));
+                writeFile(channel);
+            });
         } catch (IOException e) {
             System.err.println("Error saving scores: " + e.getMessage());
         }
     }
 
+    /**
+     * Writes the whole list to a replica file for other hosts
+     *
+     * @param replica replica file to write
+     * @return entries written
+     * @throws IOException if the score file or the replica file cannot be read or written
+     */
+    public int exportReplica(Path replica) throws IOException {
+        return exportReplica(replica, Long.MIN_VALUE);
+    }
+
+    /**
+     * Writes the entries achieved since a time to a replica file for other hosts (a delta, merging entries
+     * a host already has changes nothing), entries written by other games are merged in first
+     *
+     * @param replica replica file to write
+     * @param sinceMillis earliest entry time written (epoch milliseconds)
+     * @return entries written
+     * @throws IOException if the score file or the replica file cannot be read or written
+     */
+    public int exportReplica(Path replica, long sinceMillis) throws IOException {
+        return ScoreReplica.export(this, replica, sinceMillis);
+    }
+
+    /**
+     * Merges a replica file from another host into the list and the score file
+     * Entries already listed (same id) are skipped, every entry is ranked on the leaderboard
+     *
+     * @param replica replica file (see ScoreReplica)
+     * @return entries added
+     * @throws IOException if the score file or the replica file cannot be read or written
+     */
+    public int mergeReplica(Path replica) throws IOException {
+        return ScoreReplica.mergeInto(this, replica);
+    }
+
+    /**
+     * Merges in the entries other games wrote to the score file since it was last read
+     *
+     * @return entries in descending order
+     * @throws IOException if the score file cannot be read or written
+     */
+    synchronized List<ScoreEntry> refresh() throws IOException {
+        locked(channel -> {
+            if (merge(ScoreFile.read(channel))) {
+                writeFile(channel);
+            }
+        });
+        return getEntries();
+    }
+
+    /**
+     * Adds the entries of a replica to the list and the score file
+     *
+     * @param in replica reader, read to the end
+     * @return entries added
+     * @throws IOException if the score file or the replica cannot be read or written
+     */
+    synchronized int addEntries(ScoreReplica.Reader in) throws IOException {
+        int[] added = new int[1];
+        locked(channel -> {
+            boolean rewrite = merge(ScoreFile.read(channel));
+            try {
+                for (ScoreEntry entry = in.next(); entry != null; entry = in.next()) {
+                    if (entry.score <= 0) {
+                        continue;
+                    }
+                    leaderboard().add(entry.score, entry.epochMillis, entry.difficulty, entry.seed);
+                    if (qualifies(entry.score, entry.epochMillis, entry.id)
+                            && !contains(entry.score, entry.epochMillis, entry.id)) {
+                        insert(entry.score, entry.epochMillis, entry.difficulty, entry.seed, entry.id, -1);
+                        added[0]++;
+                    }
+                }
+            } finally {
+                if (rewrite || added[0] > 0) {
+                    writeFile(channel); // entries added before a read error are kept
+                }
+            }
+        });
+        return added[0];
+    }
+
     /**
      * Loads the current highscore list with graceful error handling
+     * Older score files, or files with a different capacity, are rewritten in the current format
      */
-    @SuppressWarnings("unchecked")
     private void loadScores() {
-        File file = new File(scoreFile);
-        if (!file.exists()) {
-            return; // no score file
+        if (!Files.exists(Path.of(scoreFile))) {
+            return; // no score file, created by the first score
         }
 
-        try (ObjectInputStream in = new ObjectInputStream(
-                new BufferedInputStream(new FileInputStream(scoreFile)))) {
-            Object obj = in.readObject();
-            if (obj instanceof List) {
-                List<ScoreEntry> loadedScores = (List<ScoreEntry>) obj;
-                highScores.addAll(loadedScores);
+        try {
+            locked(channel -> {
+                if (merge(ScoreFile.read(channel))) {
+                    writeFile(channel); // migrated or capacity changed
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Error loading score: " + e.getMessage());
+        }
+    }
 
-                // sorting
-                Collections.sort(highScores);
+    /**
+     * Runs a file task holding an exclusive lock on the score file (see ScoreFile.locked)
+     *
+     * @param task task to run with the locked channel
+     * @throws IOException if the file cannot be opened, locked or the task fails
+     */
+    private void locked(ScoreFile.LockedTask task) throws IOException {
+        ScoreFile.locked(Path.of(scoreFile), task);
+    }
 
-                // trimming
-                if (highScores.size() > maxStore) {
-                    highScores.subList(maxStore, highScores.size()).clear();
-                }
-            }
-        } catch (IOException | ClassNotFoundException e) {
+    /**
+     * Writes the highscore list over the whole file, one record per entry
+     *
+     * @param channel locked score file
+     * @throws IOException if writing fails
+     */
+    private void writeFile(FileChannel channel) throws IOException {
+        ByteBuffer data = ScoreFile.newFile(maxStore);
+        for (int i = 0; i < size; i++) {
+            slots[i] = i;
+            putRecord(data, i);
+        }
+
+        lastFile = null;
+        ScoreFile.write(channel, data);
+        lastFile = data.array();
+    }
+
+    /**
+     * Writes the record of an entry in place
+     *
+     * @param channel locked score file
+     * @param slot file slot of the entry
+     * @throws IOException if writing fails
+     */
+    private void writeRecord(FileChannel channel, int slot) throws IOException {
+        int rank = 0;
+        while (slots[rank] != slot) {
+            rank++;
+        }
+        ByteBuffer record = ByteBuffer.allocate(ScoreFile.RECORD_SIZE);
+        putRecord(record, rank);
+        record.flip();
+
+        byte[] seen = lastFile;
+        lastFile = null;
+        long offset = ScoreFile.writeRecord(channel, record, slot);
+        if (seen != null && seen.length >= offset + ScoreFile.RECORD_SIZE) {
+            System.arraycopy(record.array(), 0, seen, (int) offset, ScoreFile.RECORD_SIZE);
+            lastFile = seen;
+        }
+    }
+
+    /**
+     * Puts the record of an entry at the buffer position
+     *
+     * @param buffer output buffer
+     * @param rank entry rank
+     */
+    private void putRecord(ByteBuffer buffer, int rank) {
+        ScoreFile.putRecord(buffer, scores[rank], difficulties[rank], times[rank], seeds[rank], ids[rank]);
+    }
+
+    /**
+     * Replaces the list with the file contents, then adds back any entry of this instance the file is missing
+     * An unreadable file keeps the list as it is
+     *
+     * @param data file contents
+     * @return true if the file must be rewritten in full (missing entries, unreadable, outdated or other capacity)
+     */
+    private boolean merge(byte[] data) {
+        if (data.length == 0) {
+            return true; // new file
+        }
+        if (Arrays.equals(data, lastFile)) {
+            return false; // not changed by another game since
+        }
+
+        int known = size;
+        int[] knownScores = Arrays.copyOf(scores, known);
+        long[] knownTimes = Arrays.copyOf(times, known);
+        int[] knownDifficulties = Arrays.copyOf(difficulties, known);
+        long[] knownSeeds = Arrays.copyOf(seeds, known);
+        long[] knownIds = Arrays.copyOf(ids, known);
+
+        ScoreFile.Contents contents;
+        try {
+            contents = ScoreFile.decode(data, maxStore);
+        } catch (IOException e) {
             System.err.println("Error loading score: " + e.getMessage());
+            return true; // list untouched, the file is replaced by it
+        }
+        lastFile = data;
+        size = 0;
+        for (ScoreFile.Entry entry : contents.entries()) {
+            leaderboard().add(entry.score(), entry.epochMillis(), entry.difficulty(), entry.seed());
+            if (qualifies(entry.score(), entry.epochMillis(), entry.id())) {
+                insert(entry.score(), entry.epochMillis(), entry.difficulty(), entry.seed(), entry.id(), entry.slot());
+            }
+        }
+
+        boolean rewrite = contents.rewrite();
+
+        for (int i = 0; i < known; i++) {
+            if (qualifies(knownScores[i], knownTimes[i], knownIds[i]) && !contains(knownScores[i], knownTimes[i], knownIds[i])) {
+                insert(knownScores[i], knownTimes[i], knownDifficulties[i], knownSeeds[i], knownIds[i], -1);
+                rewrite = true;
+            }
         }
+        return rewrite;
     }
 
     /**
@@ -187,15 +767,14 @@ public class Score implements ScoreHandler, Serializable {
      *
      * @return formatted string of highscores
      */
-    public String formatScores() {
+    public synchronized String formatScores() {
         StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < highScores.size(); i++) {
-            ScoreEntry entry = highScores.get(i);
+        for (int i = 0; i < size; i++) {
             sb.append("#").append(i + 1).append(" Score: ")
-                    .append(entry.getScore()).append(" Date: ")
-                    .append(entry.getDate());
+                    .append(scores[i]).append(" Date: ");
+            DATE_FORMAT.formatTo(Instant.ofEpochMilli(times[i]), sb);
 
-            if (i < highScores.size() - 1) {
+            if (i < size - 1) {
                 sb.append("\n");
             }
         }
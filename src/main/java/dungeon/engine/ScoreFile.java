@@ -0,0 +1,303 @@
+package dungeon.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * High score file format of Score, and migration of older score files
+ * Handles:
+ * - Locked access: each read-modify-write holds a FileChannel lock, Score instances in one JVM take turns first
+ * - Decoding the current records, version 2 and version 1 records and Java-serialized lists
+ * - Encoding the whole file, or one record written in place
+ *
+ * File format (big-endian):
+ *   header:  magic "MDHS" | version u16 | record size u16 | capacity u32 | reserved u32
+ *   records: capacity slots of score i32 | difficulty i32 | epoch millis i64 | seed i64 | id i64, score 0 = empty
+ *   Slots are not in rank order, a new score overwrites the slot of the score it pushes out
+ *   Version 2 records had no id (migrated entries get an id derived from their fields, the same on every host)
+ *   Version 1 records were score i32 | date (dd/MM/yyyy, ASCII) 10 bytes | padding 2 bytes
+ */
+final class ScoreFile {
+    // header magic ("MDHS"), version and sizes
+    private static final int MAGIC = 0x4D444853;
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 32;
+
+    // version 2 records (no id)
+    private static final int V2_RECORD_SIZE = 24;
+
+    // version 1 records (score and formatted date)
+    private static final int V1_RECORD_SIZE = 16;
+    private static final int V1_DATE_SIZE = 10;
+
+    // Java serialization stream magic, score files written before the record format
+    private static final int LEGACY_MAGIC = 0xACED;
+
+    // FileChannel locks are held per process, Score instances in one JVM take turns on this first
+    private static final Object PROCESS_LOCK = new Object();
+
+    private ScoreFile() {
+    }
+
+    /**
+     * Entry read from a score file
+     *
+     * @param score score value (above 0)
+     * @param epochMillis time achieved
+     * @param difficulty difficulty
+     * @param seed master seed
+     * @param id entry id
+     * @param slot file slot, -1 for entries of a serialized list
+     */
+    record Entry(int score, long epochMillis, int difficulty, long seed, long id, int slot) {
+    }
+
+    /**
+     * Decoded score file
+     *
+     * @param entries non-empty entries in file order
+     * @param rewrite true if the file is outdated or has a different capacity and must be rewritten
+     */
+    record Contents(List<Entry> entries, boolean rewrite) {
+    }
+
+    //------------------------------------------------------------------------------------------- FILE ACCESS
+
+    /**
+     * Runs a file task holding an exclusive lock on a score file, kept to one read and one write
+     *
+     * @param path score file
+     * @param task task to run with the locked channel
+     * @throws IOException if the file cannot be opened, locked or the task fails
+     */
+    static void locked(Path path, LockedTask task) throws IOException {
+        synchronized (PROCESS_LOCK) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    task.run(channel);
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the whole score file
+     *
+     * @param channel locked score file
+     * @return file contents, empty for a new file
+     * @throws IOException if reading fails
+     */
+    static byte[] read(FileChannel channel) throws IOException {
+        long length = channel.size();
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Score file is too large");
+        }
+        ByteBuffer data = ByteBuffer.allocate((int) length);
+        while (data.hasRemaining()) {
+            if (channel.read(data, data.position()) < 0) {
+                break; // truncated while reading, left to the format checks
+            }
+        }
+        return Arrays.copyOf(data.array(), data.position());
+    }
+
+    /**
+     * Writes a whole file, dropping anything after it
+     *
+     * @param channel locked score file
+     * @param data file from newFile, filled with records
+     * @throws IOException if writing fails
+     */
+    static void write(FileChannel channel, ByteBuffer data) throws IOException {
+        data.position(data.capacity()).flip(); // remaining slots stay empty
+        long position = 0;
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+        channel.truncate(position);
+    }
+
+    /**
+     * Writes one record in place
+     *
+     * @param channel locked score file
+     * @param record record from putRecord, flipped
+     * @param slot file slot of the record
+     * @return file offset of the record
+     * @throws IOException if writing fails
+     */
+    static long writeRecord(FileChannel channel, ByteBuffer record, int slot) throws IOException {
+        long offset = HEADER_SIZE + (long) slot * RECORD_SIZE;
+        long position = offset;
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        return offset;
+    }
+
+    //------------------------------------------------------------------------------------------- ENCODING
+
+    /**
+     * Creates an empty current format file with its header written
+     *
+     * @param capacity record slots
+     * @return buffer positioned at the first record
+     */
+    static ByteBuffer newFile(int capacity) {
+        return ByteBuffer.allocate(HEADER_SIZE + capacity * RECORD_SIZE)
+                .putInt(MAGIC)
+                .putShort((short) VERSION)
+                .putShort((short) RECORD_SIZE)
+                .putInt(capacity)
+                .putInt(0); // reserved
+    }
+
+    /**
+     * Puts a current format record at the buffer position
+     *
+     * @param buffer output buffer
+     * @param score score value
+     * @param difficulty difficulty
+     * @param epochMillis time achieved
+     * @param seed master seed
+     * @param id entry id
+     */
+    static void putRecord(ByteBuffer buffer, int score, int difficulty, long epochMillis, long seed, long id) {
+        buffer.putInt(score).putInt(difficulty).putLong(epochMillis).putLong(seed).putLong(id);
+    }
+
+    //------------------------------------------------------------------------------------------- DECODING
+
+    /**
+     * Decodes a score file of any version
+     *
+     * @param data file contents, not empty
+     * @param capacity capacity of the reading list, a file with another capacity is rewritten
+     * @return entries of the file
+     * @throws IOException if the file is not a score file, is truncated or refers to unknown classes
+     */
+    static Contents decode(byte[] data, int capacity) throws IOException {
+        if (data.length >= 2 && ByteBuffer.wrap(data).getShort() == (short) LEGACY_MAGIC) {
+            return new Contents(decodeLegacy(data), true); // migrated to records
+        }
+        return decodeRecords(data, capacity);
+    }
+
+    /**
+     * Decodes a record file (current, version 2 or version 1)
+     *
+     * @param data file contents
+     * @param capacity capacity of the reading list
+     * @return entries of the file
+     * @throws IOException if the file is not a record file or is truncated
+     */
+    private static Contents decodeRecords(byte[] data, int capacity) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        if (data.length < HEADER_SIZE || in.getInt() != MAGIC) {
+            throw new IOException("Not a score file");
+        }
+        int version = in.getShort();
+        int recordSize = in.getShort();
+        if (!(version == VERSION && recordSize == RECORD_SIZE) && !(version == 2 && recordSize == V2_RECORD_SIZE)
+                && !(version == 1 && recordSize == V1_RECORD_SIZE)) {
+            throw new IOException("Unsupported score file version " + version);
+        }
+        int slots = in.getInt();
+        in.getInt(); // reserved
+        if (slots < 0 || data.length < HEADER_SIZE + (long) slots * recordSize) {
+            throw new IOException("Score file is truncated");
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        byte[] date = new byte[V1_DATE_SIZE];
+        for (int slot = 0; slot < slots; slot++) {
+            int score = in.getInt();
+            if (version == 1) {
+                in.get(date).getShort();
+                long epochMillis = dateMillis(new String(date, StandardCharsets.US_ASCII).trim());
+                if (score > 0) {
+                    entries.add(new Entry(score, epochMillis, Score.UNKNOWN_DIFFICULTY, 0L,
+                            Score.entryId(score, epochMillis, Score.UNKNOWN_DIFFICULTY, 0L, slot), slot));
+                }
+            } else {
+                int difficulty = in.getInt();
+                long epochMillis = in.getLong();
+                long seed = in.getLong();
+                long id = version == VERSION ? in.getLong() : Score.entryId(score, epochMillis, difficulty, seed, slot);
+                if (score > 0) {
+                    entries.add(new Entry(score, epochMillis, difficulty, seed, id, slot));
+                }
+            }
+        }
+        return new Contents(entries, version != VERSION || slots != capacity);
+    }
+
+    /**
+     * Decodes a score file written with Java serialization
+     *
+     * @param data file contents
+     * @return entries of the list
+     * @throws IOException if the file cannot be read or refers to unknown classes
+     */
+    private static List<Entry> decodeLegacy(byte[] data) throws IOException {
+        Object obj;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            obj = in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown class in score file: " + e.getMessage());
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        if (obj instanceof List<?> list) {
+            int position = 0;
+            for (Object item : list) {
+                Score.ScoreEntry entry = (Score.ScoreEntry) item;
+                long epochMillis = entry.getStoredDate() != null ? dateMillis(entry.getStoredDate()) : entry.getEpochMillis();
+                long id = Score.entryId(entry.getScore(), epochMillis, Score.UNKNOWN_DIFFICULTY, 0L, position++);
+                if (entry.getScore() > 0) {
+                    entries.add(new Entry(entry.getScore(), epochMillis, Score.UNKNOWN_DIFFICULTY, 0L, id, -1));
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Converts a migrated dd/MM/yyyy date to the start of that day
+     *
+     * @param date formatted date
+     * @return epoch milliseconds, 0 if the date cannot be read
+     */
+    private static long dateMillis(String date) {
+        try {
+            return LocalDate.parse(date, Score.DATE_FORMAT).atStartOfDay(Score.DATE_FORMAT.getZone()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return 0L;
+        }
+    }
+
+    /**
+     * Score file task run under the file lock
+     */
+    @FunctionalInterface
+    interface LockedTask {
+        void run(FileChannel channel) throws IOException;
+    }
+}
@@ -13,6 +13,31 @@ public interface ScoreHandler {
      */
     boolean addScore(int score);
 
+    /**
+     * Adds a new score with the difficulty and seed of the game it was achieved in
+     * Handlers that do not keep game details fall back to addScore(score)
+     *
+     * @param score value to add
+     * @param difficulty difficulty the game was finished on
+     * @param seed game master seed
+     * @return true if score was added to list
+     */
+    default boolean addScore(int score, int difficulty, long seed) {
+        return addScore(score);
+    }
+
+    /**
+     * Gets the share of submitted wins on a difficulty a score beats
+     * Handlers that do not keep a score distribution return NaN
+     *
+     * @param score score value
+     * @param difficulty difficulty
+     * @return percentage between 0 and 100, NaN if unknown
+     */
+    default double percentBeaten(int score, int difficulty) {
+        return Double.NaN;
+    }
+
     /**
      * Formats highscores into a String
      * @return formatted string of highscores
@@ -0,0 +1,277 @@
+package dungeon.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Replica files of high score entries, for combining the score files of several hosts
+ * Handles:
+ * - Writing entries in rank order (see Score.compare), a whole list or only the entries since a time (a delta)
+ * - Reading entries one at a time, so files of any size are streamed
+ * - Exporting a Score's list (or a delta of it) and merging a replica into a Score
+ * - Streaming k-way merge of any number of replica files: one entry per file is held in memory, an entry found in
+ *   several files (same id) is written once, and the output stops after a limit
+ * The merged list only depends on the set of entries in the inputs, so merging is idempotent and commutative
+ *
+ * File format (big-endian):
+ *   header:  magic "MDHR" | version u16 | record size u16 | reserved i64
+ *   records: score i32 | difficulty i32 | epoch millis i64 | seed i64 | id i64, in rank order until the end of file
+ */
+public final class ScoreReplica {
+    // file magic ("MDHR"), version and sizes
+    private static final int MAGIC = 0x4D444852;
+    private static final int VERSION = 1;
+    private static final int RECORD_SIZE = 32;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private ScoreReplica() {
+    }
+
+    /**
+     * Writes the entries of a score list achieved since a time to a replica file (a delta, merging entries
+     * a host already has changes nothing), entries written to the score file by other games are merged in first
+     *
+     * @param score score list
+     * @param replica replica file to write
+     * @param sinceMillis earliest entry time written (epoch milliseconds)
+     * @return entries written
+     * @throws IOException if the score file or the replica file cannot be read or written
+     */
+    static int export(Score score, Path replica, long sinceMillis) throws IOException {
+        int written = 0;
+        try (Writer out = new Writer(replica)) {
+            for (Score.ScoreEntry entry : score.refresh()) {
+                if (entry.getEpochMillis() >= sinceMillis) {
+                    out.add(entry);
+                    written++;
+                }
+            }
+            out.commit();
+        }
+        return written;
+    }
+
+    /**
+     * Merges a replica file into a score list and its score file
+     *
+     * @param score score list
+     * @param replica replica file
+     * @return entries added to the list
+     * @throws IOException if the score file or the replica file cannot be read or written
+     */
+    static int mergeInto(Score score, Path replica) throws IOException {
+        try (Reader in = new Reader(replica)) {
+            return score.addEntries(in);
+        }
+    }
+
+    /**
+     * Merges replica files into one, reading each file once in step with the others
+     *
+     * @param inputs replica files to merge (an output of an earlier merge can be one of them)
+     * @param output merged replica file, replaced once the merge is complete
+     * @param limit max entries written, the best ones (a score list capacity, or Integer.MAX_VALUE for all)
+     * @return entries written
+     * @throws IOException if an input cannot be read or is not in rank order, or the output cannot be written
+     */
+    public static long merge(List<Path> inputs, Path output, int limit) throws IOException {
+        List<Reader> readers = new ArrayList<>(inputs.size());
+        try {
+            PriorityQueue<Reader> heads = new PriorityQueue<>(Math.max(1, inputs.size()),
+                    (a, b) -> Score.compare(a.head.getScore(), a.head.getEpochMillis(), a.head.getId(),
+                            b.head.getScore(), b.head.getEpochMillis(), b.head.getId()));
+            for (Path input : inputs) {
+                Reader reader = new Reader(input);
+                readers.add(reader);
+                if (reader.next() != null) {
+                    heads.add(reader);
+                }
+            }
+
+            long written = 0;
+            try (Writer out = new Writer(output)) {
+                Score.ScoreEntry last = null;
+                while (written < limit && !heads.isEmpty()) {
+                    Reader reader = heads.poll();
+                    Score.ScoreEntry entry = reader.head;
+                    if (last == null || entry.getId() != last.getId()) { // copies of an entry come out together
+                        out.add(entry);
+                        last = entry;
+                        written++;
+                    }
+                    if (reader.next() != null) {
+                        heads.add(reader);
+                    }
+                }
+                out.commit();
+            }
+            return written;
+        } finally {
+            for (Reader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    //------------------------------------------------------------------------------------------- WRITER
+
+    /**
+     * Writes a replica file through a temp file, moved in place by commit
+     */
+    public static final class Writer implements Closeable {
+        private final Path path;
+        private final Path temp;
+        private final DataOutputStream out;
+        private Score.ScoreEntry last;
+        private boolean committed;
+
+        /**
+         * Starts a replica file
+         *
+         * @param path replica file, left untouched until commit
+         * @throws IOException if the temp file cannot be created
+         */
+        public Writer(Path path) throws IOException {
+            this.path = path;
+            this.temp = path.resolveSibling(path.getFileName() + ".tmp");
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(RECORD_SIZE);
+            out.writeLong(0L); // reserved
+        }
+
+        /**
+         * Writes an entry
+         *
+         * @param entry entry ranking at or after the last one written
+         * @throws IOException if writing fails
+         */
+        public void add(Score.ScoreEntry entry) throws IOException {
+            if (last != null && Score.compare(last.getScore(), last.getEpochMillis(), last.getId(),
+                    entry.getScore(), entry.getEpochMillis(), entry.getId()) > 0) {
+                throw new IllegalArgumentException("Replica entries must be written in rank order");
+            }
+            out.writeInt(entry.getScore());
+            out.writeInt(entry.getDifficulty());
+            out.writeLong(entry.getEpochMillis());
+            out.writeLong(entry.getSeed());
+            out.writeLong(entry.getId());
+            last = entry;
+        }
+
+        /**
+         * Completes the file and moves it in place of the replica file
+         *
+         * @throws IOException if writing or moving fails (the replica file is left untouched)
+         */
+        public void commit() throws IOException {
+            out.close();
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            committed = true;
+        }
+
+        /**
+         * Closes the writer, discarding the file if it was not committed
+         *
+         * @throws IOException if the temp file cannot be removed
+         */
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                out.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    //------------------------------------------------------------------------------------------- READER
+
+    /**
+     * Reads a replica file one entry at a time
+     */
+    public static final class Reader implements Closeable {
+        private final Path path;
+        private final DataInputStream in;
+        private Score.ScoreEntry head; // last entry read
+
+        /**
+         * Opens a replica file
+         *
+         * @param path replica file
+         * @throws IOException if the file cannot be opened or is not a replica file
+         */
+        public Reader(Path path) throws IOException {
+            this.path = path;
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+            try {
+                if (in.readInt() != MAGIC || in.readShort() != VERSION || in.readShort() != RECORD_SIZE) {
+                    throw new IOException("Not a score replica: " + path.getFileName());
+                }
+                in.readLong(); // reserved
+            } catch (IOException e) {
+                in.close();
+                throw e instanceof EOFException ? new IOException("Not a score replica: " + path.getFileName()) : e;
+            }
+        }
+
+        /**
+         * Reads the next entry
+         *
+         * @return next entry, null at the end of the file
+         * @throws IOException if the file is truncated or not in rank order
+         */
+        public Score.ScoreEntry next() throws IOException {
+            int score;
+            try {
+                score = in.readInt();
+            } catch (EOFException e) {
+                head = null;
+                return null;
+            }
+
+            Score.ScoreEntry entry;
+            try {
+                int difficulty = in.readInt();
+                long epochMillis = in.readLong();
+                long seed = in.readLong();
+                entry = new Score.ScoreEntry(score, epochMillis, difficulty, seed, in.readLong());
+            } catch (EOFException e) {
+                throw new IOException("Score replica is truncated: " + path.getFileName());
+            }
+            if (head != null && Score.compare(head.getScore(), head.getEpochMillis(), head.getId(),
+                    entry.getScore(), entry.getEpochMillis(), entry.getId()) > 0) {
+                throw new IOException("Score replica is not in rank order: " + path.getFileName());
+            }
+            head = entry;
+            return entry;
+        }
+
+        /**
+         * Closes the file
+         *
+         * @throws IOException if closing fails
+         */
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
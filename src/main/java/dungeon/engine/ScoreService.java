@@ -0,0 +1,356 @@
+package dungeon.engine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * High score service shared by every game in the JVM
+ * Handles:
+ * - One in-memory top-K per score file, loaded once instead of once per game
+ * - Lock-free reads: readers get an immutable snapshot of the list (formatted once per snapshot)
+ * - Lock-free submission: a new score is placed by compare-and-set on the snapshot, scores not beating
+ *   the lowest entry of a full list are rejected without locking or touching the file
+ * - Persisting accepted scores through Score (file lock and merge), scores added by other processes are folded in
+ * - Leaderboard: every accepted run is ranked on its difficulty, high score or not (see Leaderboard)
+ * - Replication: replica files from other hosts are merged into the persisted list (see ScoreReplica)
+ * - Percentile ranks: every submitted win is recorded in the score file's sketch, in memory with the file written
+ *   in the background (see SketchStore), so recording never blocks or locks
+ * Implements ScoreHandler, so engines can share it in place of their own Score
+ */
+public final class ScoreService implements ScoreHandler {
+    private final Score score; // persisted list, writes only
+    private final Leaderboard leaderboard; // the Score's leaderboard, fed without taking the Score's lock
+    private final AtomicReference<Snapshot> snapshot;
+
+    /**
+     * Creates a service over a score file
+     *
+     * @param score persisted list
+     */
+    public ScoreService(Score score) {
+        this.score = score;
+        this.leaderboard = score.getLeaderboard();
+        this.snapshot = new AtomicReference<>(new Snapshot(score.getCapacity(), score.getEntries()));
+    }
+
+    /**
+     * Gets the service of md_highscores.dat shared by every game in the JVM, loaded on first use
+     * @return shared score service
+     */
+    public static ScoreService shared() {
+        return Shared.INSTANCE;
+    }
+
+    /**
+     * Lazily loaded shared service
+     */
+    private static final class Shared {
+        private static final ScoreService INSTANCE = new ScoreService(new Score("md_highscores.dat"));
+    }
+
+    /**
+     * Gets the current list, never blocks
+     * @return immutable snapshot of the high scores
+     */
+    public Snapshot snapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Gets the leaderboard of the top runs of each difficulty
+     * @return leaderboard
+     */
+    public Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    /**
+     * Adds a new high score without a difficulty or seed
+     *
+     * @param score value to add
+     * @return true if score was added
+     */
+    @Override
+    public boolean addScore(int score) {
+        return addScore(score, Score.UNKNOWN_DIFFICULTY, 0L);
+    }
+
+    /**
+     * Records the win in the score sketch and on the leaderboard, then adds a new high score if it enters the list and persists it
+     *
+     * @param score value to add
+     * @param difficulty difficulty the game was finished on
+     * @param seed game master seed
+     * @return true if score was added
+     */
+    @Override
+    public boolean addScore(int score, int difficulty, long seed) {
+        this.score.getSketches().record(difficulty, score); // every win, high score or not
+        if (score <= 0) {
+            return false;
+        }
+
+        long epochMillis = System.currentTimeMillis();
+        leaderboard.add(score, epochMillis, difficulty, seed);
+        Snapshot current;
+        Snapshot next;
+        do {
+            current = snapshot.get();
+            if (!current.qualifies(score)) {
+                return false; // no lock, no file access
+            }
+            next = current.with(score, epochMillis, difficulty, seed);
+        } while (!snapshot.compareAndSet(current, next));
+
+        // the file may also hold scores from other processes, folded into the list
+        this.score.addScore(score, epochMillis, difficulty, seed);
+        List<Score.ScoreEntry> persisted = this.score.getEntries();
+        do {
+            current = snapshot.get();
+            next = current.merge(persisted);
+        } while (current != next && !snapshot.compareAndSet(current, next));
+        return true;
+    }
+
+    /**
+     * Writes the entries achieved since a time to a replica file for other hosts
+     *
+     * @param replica replica file to write
+     * @param sinceMillis earliest entry time written (epoch milliseconds, Long.MIN_VALUE for the whole list)
+     * @return entries written
+     * @throws IOException if the score file or the replica file cannot be read or written
+     */
+    public int exportReplica(Path replica, long sinceMillis) throws IOException {
+        return score.exportReplica(replica, sinceMillis);
+    }
+
+    /**
+     * Merges a replica file from another host into the persisted list, then replaces the snapshot with it
+     * (a score submitted meanwhile is folded back in once it is persisted)
+     *
+     * @param replica replica file (see ScoreReplica)
+     * @return entries added
+     * @throws IOException if the score file or the replica file cannot be read or written
+     */
+    public int mergeReplica(Path replica) throws IOException {
+        int added = score.mergeReplica(replica);
+        snapshot.set(new Snapshot(score.getCapacity(), score.getEntries()));
+        return added;
+    }
+
+    /**
+     * Gets the share of submitted wins on a difficulty a score beats
+     *
+     * @param score score value
+     * @param difficulty difficulty
+     * @return percentage between 0 and 100, 0 without runs
+     */
+    @Override
+    public double percentBeaten(int score, int difficulty) {
+        return this.score.percentBeaten(score, difficulty);
+    }
+
+    /**
+     * Formats the current list with rank, value and date, never blocks
+     * @return formatted string of highscores
+     */
+    @Override
+    public String formatScores() {
+        return snapshot.get().format();
+    }
+
+    //------------------------------------------------------------------------------------------- SNAPSHOT
+
+    /**
+     * Immutable high score list in descending order, equal scores in the order they were added
+     */
+    public static final class Snapshot {
+        private final int capacity;
+        private final int[] scores;
+        private final long[] times;
+        private final int[] difficulties;
+        private final long[] seeds;
+        private String formatted; // built on first use, String is immutable so a racing rebuild is harmless
+
+        /**
+         * Creates a snapshot of entries already in order
+         *
+         * @param capacity max entries
+         * @param entries entries in descending order
+         */
+        private Snapshot(int capacity, List<Score.ScoreEntry> entries) {
+            this.capacity = capacity;
+            int size = Math.min(capacity, entries.size());
+            this.scores = new int[size];
+            this.times = new long[size];
+            this.difficulties = new int[size];
+            this.seeds = new long[size];
+            for (int i = 0; i < size; i++) {
+                Score.ScoreEntry entry = entries.get(i);
+                scores[i] = entry.getScore();
+                times[i] = entry.getEpochMillis();
+                difficulties[i] = entry.getDifficulty();
+                seeds[i] = entry.getSeed();
+            }
+        }
+
+        /**
+         * Creates a snapshot from columns
+         */
+        private Snapshot(int capacity, int[] scores, long[] times, int[] difficulties, long[] seeds) {
+            this.capacity = capacity;
+            this.scores = scores;
+            this.times = times;
+            this.difficulties = difficulties;
+            this.seeds = seeds;
+        }
+
+        /**
+         * Gets the number of entries
+         * @return entry count
+         */
+        public int size() {
+            return scores.length;
+        }
+
+        /**
+         * Gets an entry
+         *
+         * @param rank rank (0 = highest)
+         * @return entry at the rank
+         */
+        public Score.ScoreEntry get(int rank) {
+            return new Score.ScoreEntry(scores[rank], times[rank], difficulties[rank], seeds[rank]);
+        }
+
+        /**
+         * Checks if a score would enter the list
+         *
+         * @param score value to check
+         * @return true unless the list is full and the score does not beat the lowest entry
+         */
+        boolean qualifies(int score) {
+            return scores.length < capacity || (capacity > 0 && score > scores[scores.length - 1]);
+        }
+
+        /**
+         * Creates the snapshot with an entry added after any equal scores, pushing out the lowest of a full list
+         *
+         * @param score score value
+         * @param epochMillis time achieved
+         * @param difficulty difficulty
+         * @param seed master seed
+         * @return new snapshot
+         */
+        Snapshot with(int score, long epochMillis, int difficulty, long seed) {
+            int rank = rankAfter(score);
+            int size = Math.min(scores.length + 1, capacity);
+            int[] newScores = new int[size];
+            long[] newTimes = new long[size];
+            int[] newDifficulties = new int[size];
+            long[] newSeeds = new long[size];
+
+            System.arraycopy(scores, 0, newScores, 0, rank);
+            System.arraycopy(times, 0, newTimes, 0, rank);
+            System.arraycopy(difficulties, 0, newDifficulties, 0, rank);
+            System.arraycopy(seeds, 0, newSeeds, 0, rank);
+            newScores[rank] = score;
+            newTimes[rank] = epochMillis;
+            newDifficulties[rank] = difficulty;
+            newSeeds[rank] = seed;
+            int moved = size - rank - 1;
+            System.arraycopy(scores, rank, newScores, rank + 1, moved);
+            System.arraycopy(times, rank, newTimes, rank + 1, moved);
+            System.arraycopy(difficulties, rank, newDifficulties, rank + 1, moved);
+            System.arraycopy(seeds, rank, newSeeds, rank + 1, moved);
+            return new Snapshot(capacity, newScores, newTimes, newDifficulties, newSeeds);
+        }
+
+        /**
+         * Creates the snapshot with every qualifying entry of another list it is missing
+         *
+         * @param entries entries to merge
+         * @return new snapshot, or this one if nothing was added
+         */
+        Snapshot merge(List<Score.ScoreEntry> entries) {
+            Snapshot merged = this;
+            for (Score.ScoreEntry entry : entries) {
+                if (merged.qualifies(entry.getScore()) && !merged.contains(entry)) {
+                    merged = merged.with(entry.getScore(), entry.getEpochMillis(), entry.getDifficulty(), entry.getSeed());
+                }
+            }
+            return merged;
+        }
+
+        /**
+         * Checks if an entry is listed
+         *
+         * @param entry entry to find
+         * @return true if an entry with the same score, time, difficulty and seed is listed
+         */
+        private boolean contains(Score.ScoreEntry entry) {
+            for (int i = rankAfter(entry.getScore()) - 1; i >= 0 && scores[i] == entry.getScore(); i--) {
+                if (times[i] == entry.getEpochMillis() && difficulties[i] == entry.getDifficulty() && seeds[i] == entry.getSeed()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Finds the rank after every entry with an equal or higher score
+         *
+         * @param score score value
+         * @return first rank with a lower score
+         */
+        private int rankAfter(int score) {
+            int low = 0;
+            int high = scores.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (scores[mid] >= score) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Formats the list with rank, value and date (as Score.formatScores)
+         * @return formatted string of highscores
+         */
+        public String format() {
+            String text = formatted;
+            if (text == null) {
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < scores.length; i++) {
+                    sb.append("#").append(i + 1).append(" Score: ")
+                            .append(scores[i]).append(" Date: ");
+                    Score.DATE_FORMAT.formatTo(Instant.ofEpochMilli(times[i]), sb);
+
+                    if (i < scores.length - 1) {
+                        sb.append("\n");
+                    }
+                }
+                text = sb.toString();
+                formatted = text;
+            }
+            return text;
+        }
+
+        /**
+         * Lists the scores
+         * @return scores in descending order
+         */
+        @Override
+        public String toString() {
+            return Arrays.toString(scores);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package dungeon.engine;
+
+import java.io.Serial;
+import java.util.Random;
+
+/**
+ * Random generator with a readable and restorable state
+ * Handles:
+ * - The same 48-bit linear congruential sequence as java.util.Random (same seed, same values)
+ * - Getting and setting the internal state, so saves can store a generator in 8 bytes
+ * Not thread-safe, each generator belongs to a single cell or level
+ */
+public class SeededRandom extends Random {
+    // java.util.Random LCG constants
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state;
+
+    // serial version UID
+    @Serial
+    private static final long serialVersionUID = 0L;
+
+    /**
+     * Creates a generator with a random seed
+     */
+    public SeededRandom() {
+        this(Seeds.randomSeed());
+    }
+
+    /**
+     * Creates a generator producing the same values as new Random(seed)
+     *
+     * @param seed initial seed
+     */
+    public SeededRandom(long seed) {
+        super(seed); // calls setSeed
+    }
+
+    /**
+     * Resets the generator as if created with a seed
+     *
+     * @param seed initial seed
+     */
+    @Override
+    public void setSeed(long seed) {
+        state = (seed ^ MULTIPLIER) & MASK;
+        super.setSeed(seed); // clears the cached gaussian
+    }
+
+    /**
+     * Advances the generator
+     *
+     * @param bits number of random bits (1-32)
+     * @return next random bits
+     */
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * Gets the internal generator state
+     * @return 48-bit state
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Restores an internal generator state
+     * @param state 48-bit state from getState
+     */
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+}
@@ -0,0 +1,66 @@
+package dungeon.engine;
+
+import java.util.Random;
+
+/**
+ * Seed derivation for deterministic games
+ * Handles:
+ * - Random master seeds for new games
+ * - Independent per-level seeds and per-purpose (layout, combat) streams derived from a master seed
+ * Derivation only uses fixed integer arithmetic, so identical seeds give identical games on any JVM
+ */
+public final class Seeds {
+    // stream ids for the random generators of a level
+    public static final int LAYOUT_STREAM = 1;
+    public static final int COMBAT_STREAM = 2;
+
+    // golden ratio increment used by SplitMix64
+    private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+    private Seeds() {
+    }
+
+    /**
+     * Creates a random master seed
+     * @return new master seed
+     */
+    public static long randomSeed() {
+        return new Random().nextLong();
+    }
+
+    /**
+     * Derives the seed of a level from a master seed
+     *
+     * @param masterSeed game master seed
+     * @param level level number
+     * @return level seed
+     */
+    public static long levelSeed(long masterSeed, int level) {
+        return derive(masterSeed, level);
+    }
+
+    /**
+     * Creates a random generator for one stream of a level
+     *
+     * @param levelSeed level seed
+     * @param stream stream id (LAYOUT_STREAM, COMBAT_STREAM)
+     * @return random generator seeded for the stream
+     */
+    public static Random stream(long levelSeed, int stream) {
+        return new SeededRandom(derive(levelSeed, stream));
+    }
+
+    /**
+     * Derives an independent seed (SplitMix64 finalizer over seed and id)
+     *
+     * @param seed parent seed
+     * @param id child id
+     * @return derived seed
+     */
+    public static long derive(long seed, long id) {
+        long z = seed + (id + 1) * GAMMA;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
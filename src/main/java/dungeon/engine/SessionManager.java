@@ -0,0 +1,641 @@
+package dungeon.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Hosts many games in one process, each found by a session id
+ * Handles:
+ * - New sessions served from a warm pool of first levels generated ahead of time (one pool per difficulty,
+ *   refilled on a virtual thread), a new session only generates its level when the pool is empty
+ * - Live sessions kept in access order with an estimated memory figure each (GameEngine.estimateBytes)
+ * - Memory limits: once live sessions pass the byte or count limit the least recently used are hibernated,
+ *   written to <directory>/<id>.sav in the binary save format (see SaveCodec) and dropped from memory
+ * - Hibernated sessions are revived from their file on their next move, callers never see the difference
+ * - Each game saves to its own <directory>/<id>.save, kept apart from its hibernation file
+ * Thread-safe, moves on different sessions run in parallel and moves on one session run in turn
+ */
+public final class SessionManager {
+    // session ids are file names, kept to letters, digits and dashes
+    private static final Pattern ID_PATTERN = Pattern.compile("[A-Za-z0-9-]{1,64}");
+
+    private final Path directory;
+    private final GameConfig config;
+    private final ScoreHandler scores;
+    private final long maxLiveBytes;
+    private final int maxLive;
+    private final int poolSize;
+    private volatile GameHistory history;
+    private volatile boolean directoryReady;
+
+    // live sessions, least recently used first
+    private final LinkedHashMap<String, Session> live = new LinkedHashMap<>(16, 0.75f, true);
+    private long liveBytes; // estimate over sessions not being hibernated
+    private int liveCount;
+
+    private final Map<Integer, Pool> pools = new ConcurrentHashMap<>();
+
+    private final AtomicLong poolHits = new AtomicLong();
+    private final AtomicLong poolMisses = new AtomicLong();
+    private final AtomicLong hibernations = new AtomicLong();
+    private final AtomicLong revivals = new AtomicLong();
+
+    /**
+     * Creates a session manager with the default configuration, the shared score service and a pool of 4
+     *
+     * @param directory session directory (hibernation and save files), created with the first session
+     * @param maxLiveBytes estimated memory live sessions may hold before the least recently used are hibernated
+     */
+    public SessionManager(Path directory, long maxLiveBytes) {
+        this(directory, GameConfig.DEFAULT, ScoreService.shared(), maxLiveBytes, Integer.MAX_VALUE, 4);
+    }
+
+    /**
+     * Creates a session manager
+     *
+     * @param directory session directory (hibernation and save files), created with the first session
+     * @param config configuration of every session
+     * @param scores score handler of every session
+     * @param maxLiveBytes estimated memory live sessions may hold before the least recently used are hibernated
+     * @param maxLive live sessions kept before the least recently used are hibernated
+     * @param poolSize first levels generated ahead per difficulty, 0 for none
+     */
+    public SessionManager(Path directory, GameConfig config, ScoreHandler scores, long maxLiveBytes, int maxLive,
+                          int poolSize) {
+        if (maxLiveBytes < 0 || maxLive < 1 || poolSize < 0) {
+            throw new IllegalArgumentException("Invalid session limits");
+        }
+        this.directory = directory;
+        this.config = config;
+        this.scores = scores;
+        this.maxLiveBytes = maxLiveBytes;
+        this.maxLive = maxLive;
+        this.poolSize = poolSize;
+    }
+
+    /**
+     * Sets the log finished games are appended to, for sessions created or revived from now on
+     * @param history history log, null to stop recording
+     */
+    public void setHistory(GameHistory history) {
+        this.history = history;
+    }
+
+    //------------------------------------------------------------------------------------------- SESSIONS
+
+    /**
+     * Starts a new game
+     *
+     * @param difficulty initial game difficulty (0-10)
+     * @return session id
+     * @throws UncheckedIOException if the session directory cannot be created
+     */
+    public String create(int difficulty) {
+        int clamped = Math.min(10, Math.max(0, difficulty));
+        Pool pool = pool(clamped);
+        WarmLevel warm = pool.ready.poll();
+        (warm != null ? poolHits : poolMisses).incrementAndGet();
+        if (warm == null) {
+            long seed = Seeds.randomSeed();
+            warm = new WarmLevel(seed, generate(seed, clamped));
+        }
+        refill(clamped, pool);
+
+        if (!directoryReady) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error creating session directory", e);
+            }
+            directoryReady = true;
+        }
+
+        String id = UUID.randomUUID().toString();
+        GameEngine engine = new GameEngine(clamped, scores, savePath(id).toString(), config, warm.seed, warm.level);
+        engine.setHistory(history);
+
+        Session session = new Session(id);
+        session.engine = engine;
+        session.bytes = engine.estimateBytes();
+        synchronized (this) {
+            live.put(id, session);
+            liveBytes += session.bytes;
+            liveCount++;
+        }
+        evict();
+        return id;
+    }
+
+    /**
+     * Moves the player of a session, reviving the session first if it was hibernated
+     *
+     * @param id session id
+     * @param direction direction to move in
+     * @return move result
+     * @throws UnknownSessionException if there is no such session
+     * @throws UncheckedIOException if a hibernated session cannot be read
+     */
+    public MoveResult move(String id, Direction direction) {
+        return withSession(id, engine -> engine.move(direction));
+    }
+
+    /**
+     * Reads the state of a session, reviving it first if it was hibernated
+     * The game must not be kept or changed outside the view
+     *
+     * @param id session id
+     * @param view reads the game, run while no move can change it
+     * @param <T> view result type
+     * @return view result
+     * @throws UnknownSessionException if there is no such session
+     * @throws UncheckedIOException if a hibernated session cannot be read
+     */
+    public <T> T view(String id, Function<GameEngine, T> view) {
+        return withSession(id, view);
+    }
+
+    /**
+     * Checks if a session exists, live or hibernated
+     *
+     * @param id session id
+     * @return true if the session exists
+     */
+    public boolean exists(String id) {
+        if (!ID_PATTERN.matcher(id).matches()) {
+            return false;
+        }
+        synchronized (this) {
+            if (live.containsKey(id)) {
+                return true;
+            }
+        }
+        return Files.exists(sessionPath(id));
+    }
+
+    /**
+     * Ends a session, deleting its hibernation and save files
+     *
+     * @param id session id
+     * @return true if the session existed
+     * @throws UncheckedIOException if the hibernation file cannot be deleted
+     */
+    public boolean end(String id) {
+        checkId(id);
+        Session session;
+        synchronized (this) {
+            session = live.remove(id);
+            if (session != null && !session.evicting) {
+                startEviction(session); // out of the live totals
+            }
+        }
+
+        boolean existed = false;
+        if (session != null) {
+            session.lock.lock();
+            try {
+                existed = session.engine != null;
+                session.engine = null;
+                session.gone = true;
+            } finally {
+                session.lock.unlock();
+            }
+        }
+        try {
+            Files.deleteIfExists(savePath(id));
+            return Files.deleteIfExists(sessionPath(id)) || existed;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error ending session " + id, e);
+        }
+    }
+
+    /**
+     * Hibernates a live session straight away
+     *
+     * @param id session id
+     * @return true if the session was live and is no longer in memory
+     */
+    public boolean hibernate(String id) {
+        checkId(id);
+        Session session;
+        synchronized (this) {
+            session = live.get(id);
+            if (session == null || session.evicting) {
+                return false;
+            }
+            startEviction(session);
+        }
+        return hibernate(session);
+    }
+
+    /**
+     * Hibernates every live session, for shutting down
+     * @return sessions hibernated
+     */
+    public int hibernateAll() {
+        List<String> ids;
+        synchronized (this) {
+            ids = new ArrayList<>(live.keySet());
+        }
+        int hibernated = 0;
+        for (String id : ids) {
+            if (hibernate(id)) {
+                hibernated++;
+            }
+        }
+        return hibernated;
+    }
+
+    /**
+     * Runs a task on a session, reviving it first if needed, then hibernates sessions over the limits
+     *
+     * @param id session id
+     * @param task task run under the session lock
+     * @param <T> task result type
+     * @return task result
+     */
+    private <T> T withSession(String id, Function<GameEngine, T> task) {
+        checkId(id);
+        T result;
+        while (true) {
+            Session session;
+            synchronized (this) {
+                session = live.get(id);
+                if (session == null) {
+                    session = new Session(id); // revived below, other callers wait on it
+                    live.put(id, session);
+                    liveCount++;
+                }
+            }
+
+            session.lock.lock();
+            try {
+                if (session.gone) {
+                    synchronized (this) {
+                        live.remove(id, session); // hibernated or ended meanwhile, looked up again
+                    }
+                    continue;
+                }
+                if (session.engine == null) {
+                    revive(session);
+                }
+                result = task.apply(session.engine);
+
+                long bytes = session.engine.estimateBytes();
+                synchronized (this) {
+                    if (!session.evicting) {
+                        liveBytes += bytes - session.bytes;
+                    }
+                    session.bytes = bytes;
+                }
+            } finally {
+                session.lock.unlock();
+            }
+            break;
+        }
+        evict();
+        return result;
+    }
+
+    /**
+     * Reads a hibernated session back into memory
+     *
+     * @param session session to revive (lock held)
+     */
+    private void revive(Session session) {
+        Path path = sessionPath(session.id);
+        byte[] data;
+        try {
+            data = Files.readAllBytes(path);
+            GameEngine engine = new GameEngine(0, scores, savePath(session.id).toString(), config, 0L, null);
+            SaveCodec.decode(data, engine);
+            engine.setHistory(history);
+            session.engine = engine;
+            revivals.incrementAndGet();
+        } catch (IOException e) {
+            session.gone = true;
+            synchronized (this) {
+                if (live.remove(session.id, session) && !session.evicting) {
+                    liveCount--;
+                }
+            }
+            if (!Files.exists(path)) {
+                throw new UnknownSessionException("Unknown session " + session.id);
+            }
+            throw new UncheckedIOException("Error reviving session " + session.id, e);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------- HIBERNATION
+
+    /**
+     * Hibernates least recently used sessions until live sessions are within both limits
+     */
+    private void evict() {
+        while (true) {
+            Session victim = null;
+            synchronized (this) {
+                if (liveBytes <= maxLiveBytes && liveCount <= maxLive) {
+                    return;
+                }
+                for (Session session : live.values()) { // least recently used first
+                    if (!session.evicting) {
+                        victim = session;
+                        break;
+                    }
+                }
+                if (victim == null) {
+                    return;
+                }
+                startEviction(victim);
+            }
+            if (!hibernate(victim)) {
+                return; // cannot write, left live
+            }
+        }
+    }
+
+    /**
+     * Takes a session out of the live totals ahead of hibernating it (manager lock held)
+     *
+     * @param session session to hibernate
+     */
+    private void startEviction(Session session) {
+        session.evicting = true;
+        liveBytes -= session.bytes;
+        liveCount--;
+    }
+
+    /**
+     * Writes a session to its file and drops it from memory
+     *
+     * @param session session taken out of the live totals
+     * @return true unless the session could not be written and was left live
+     */
+    private boolean hibernate(Session session) {
+        session.lock.lock();
+        try {
+            if (session.gone) {
+                return true; // ended meanwhile
+            }
+            if (session.engine != null) {
+                try {
+                    SaveService.writeAtomically(sessionPath(session.id), SaveCodec.encode(session.engine));
+                } catch (IOException e) {
+                    System.err.println("Error hibernating session " + session.id + ": " + e.getMessage());
+                    synchronized (this) {
+                        session.evicting = false;
+                        liveBytes += session.bytes;
+                        liveCount++;
+                    }
+                    return false;
+                }
+                hibernations.incrementAndGet();
+            }
+            session.engine = null;
+            session.gone = true;
+        } finally {
+            session.lock.unlock();
+        }
+        synchronized (this) {
+            live.remove(session.id, session);
+        }
+        return true;
+    }
+
+    //------------------------------------------------------------------------------------------- WARM POOL
+
+    /**
+     * Starts generating first levels for a difficulty, so the next sessions are served from the pool
+     * @param difficulty game difficulty (0-10)
+     */
+    public void prefill(int difficulty) {
+        int clamped = Math.min(10, Math.max(0, difficulty));
+        refill(clamped, pool(clamped));
+    }
+
+    /**
+     * Gets the pool of a difficulty
+     *
+     * @param difficulty game difficulty (0-10)
+     * @return pool of first levels
+     */
+    private Pool pool(int difficulty) {
+        return pools.computeIfAbsent(difficulty, d -> new Pool(Math.max(1, poolSize)));
+    }
+
+    /**
+     * Refills a pool on a virtual thread unless it is full or already being filled
+     *
+     * @param difficulty game difficulty
+     * @param pool pool of the difficulty
+     */
+    private void refill(int difficulty, Pool pool) {
+        if (poolSize > 0 && pool.ready.remainingCapacity() > 0 && pool.filling.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("session-pool").start(() -> fill(difficulty, pool));
+        }
+    }
+
+    /**
+     * Generates first levels until a pool is full
+     *
+     * @param difficulty game difficulty
+     * @param pool pool being filled (filling flag held)
+     */
+    private void fill(int difficulty, Pool pool) {
+        do {
+            try {
+                while (pool.ready.remainingCapacity() > 0) {
+                    long seed = Seeds.randomSeed();
+                    pool.ready.offer(new WarmLevel(seed, generate(seed, difficulty)));
+                }
+            } finally {
+                pool.filling.set(false);
+            }
+        } while (pool.ready.remainingCapacity() > 0 && pool.filling.compareAndSet(false, true)); // taken meanwhile
+    }
+
+    /**
+     * Generates the first level of a game, the same level GameEngine generates for the seed
+     *
+     * @param seed game master seed
+     * @param difficulty game difficulty
+     * @return level 1
+     */
+    private Level generate(long seed, int difficulty) {
+        return new Level(1, difficulty, config, Seeds.levelSeed(seed, 1));
+    }
+
+    //------------------------------------------------------------------------------------------- METRICS
+
+    /**
+     * Gets the number of sessions in memory
+     * @return live session count
+     */
+    public synchronized int getLiveCount() {
+        return liveCount;
+    }
+
+    /**
+     * Gets the estimated memory of the sessions in memory
+     * @return estimated bytes
+     */
+    public synchronized long getLiveBytes() {
+        return liveBytes;
+    }
+
+    /**
+     * Gets the mean estimated memory of a live session
+     * @return estimated bytes per session, 0 without live sessions
+     */
+    public synchronized long getBytesPerSession() {
+        return liveCount == 0 ? 0 : liveBytes / liveCount;
+    }
+
+    /**
+     * Gets the number of first levels ready for a difficulty
+     *
+     * @param difficulty game difficulty (0-10)
+     * @return pooled level count
+     */
+    public int getPoolSize(int difficulty) {
+        Pool pool = pools.get(Math.min(10, Math.max(0, difficulty)));
+        return pool == null ? 0 : pool.ready.size();
+    }
+
+    /**
+     * Gets the number of sessions created from the pool
+     * @return pool hits
+     */
+    public long getPoolHits() {
+        return poolHits.get();
+    }
+
+    /**
+     * Gets the number of sessions that generated their own first level
+     * @return pool misses
+     */
+    public long getPoolMisses() {
+        return poolMisses.get();
+    }
+
+    /**
+     * Gets the number of sessions written to disk
+     * @return hibernation count
+     */
+    public long getHibernations() {
+        return hibernations.get();
+    }
+
+    /**
+     * Gets the number of sessions read back from disk
+     * @return revival count
+     */
+    public long getRevivals() {
+        return revivals.get();
+    }
+
+    //------------------------------------------------------------------------------------------- FILES
+
+    /**
+     * Gets the hibernation file of a session
+     *
+     * @param id session id
+     * @return hibernation file path
+     */
+    public Path sessionPath(String id) {
+        return directory.resolve(id + ".sav");
+    }
+
+    /**
+     * Gets the save file of a session (GameEngine.saveGame and loadGame)
+     *
+     * @param id session id
+     * @return save file path
+     */
+    public Path savePath(String id) {
+        return directory.resolve(id + ".save");
+    }
+
+    /**
+     * Checks a session id is safe to use as a file name
+     *
+     * @param id session id
+     * @throws UnknownSessionException if the id has other characters or is too long (no session can have it)
+     */
+    private static void checkId(String id) {
+        if (id == null || !ID_PATTERN.matcher(id).matches()) {
+            throw new UnknownSessionException("Invalid session id");
+        }
+    }
+
+    /**
+     * Thrown when there is no session with an id (never created, ended, or not a valid id)
+     */
+    public static final class UnknownSessionException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Creates the exception
+         * @param message detail message
+         */
+        public UnknownSessionException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * One hosted game
+     */
+    private static final class Session {
+        private final String id;
+        // a lock rather than a monitor, so virtual threads waiting on a session or saving in it do not pin a carrier
+        private final ReentrantLock lock = new ReentrantLock();
+        private GameEngine engine; // null while being revived or once hibernated
+        private long bytes; // estimated memory
+        private boolean evicting; // taken out of the live totals to be hibernated or ended
+        private boolean gone; // hibernated or ended, the id must be looked up again
+
+        private Session(String id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * First levels generated ahead for one difficulty
+     */
+    private static final class Pool {
+        private final ArrayBlockingQueue<WarmLevel> ready;
+        private final AtomicBoolean filling = new AtomicBoolean();
+
+        private Pool(int capacity) {
+            this.ready = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+
+    /**
+     * A first level and the master seed it was generated from
+     */
+    private static final class WarmLevel {
+        private final long seed;
+        private final Level level;
+
+        private WarmLevel(long seed, Level level) {
+            this.seed = seed;
+            this.level = level;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package dungeon.engine;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Score sketch of every winning score submitted, persisted next to the score file (md_highscores.dat.sketch)
+ * Handles:
+ * - Recording wins in memory, submitters never wait on the file
+ * - Group commit: wins recorded since the last write are merged into the file together on the save writer
+ *   (see SaveService), under a lock file so processes sharing the sketch take turns
+ * - Atomic replacement (temp file, fsync, ATOMIC_MOVE), a crash leaves the old or the new sketch
+ * - Picking up wins recorded by other processes on every write
+ * - Merging sketches from other hosts
+ * Thread-safe
+ */
+public final class SketchStore {
+    private final Path path;
+    private final Path lockPath;
+    private ScoreSketch sketch; // every win known, file plus unsaved
+    private ScoreSketch unsaved = new ScoreSketch(); // wins not yet in the file
+    private boolean writeQueued; // a write is waiting on the save writer
+
+    /**
+     * Opens the sketch file of a score file
+     *
+     * @param scoreFile score file path
+     */
+    public SketchStore(String scoreFile) {
+        this.path = Path.of(scoreFile + ".sketch");
+        this.lockPath = Path.of(scoreFile + ".sketch.lock");
+        this.sketch = read();
+    }
+
+    /**
+     * Records a winning score in memory, written to the file in the background
+     *
+     * @param difficulty difficulty the score was achieved on
+     * @param score score value
+     */
+    public synchronized void record(int difficulty, int score) {
+        sketch.add(difficulty, score);
+        unsaved.add(difficulty, score);
+        queueWrite();
+    }
+
+    /**
+     * Adds the scores of a sketch from another host, written to the file in the background
+     * @param other sketch to merge in
+     */
+    public synchronized void merge(ScoreSketch other) {
+        sketch.merge(other);
+        unsaved.merge(other);
+        queueWrite();
+    }
+
+    /**
+     * Gets the share of wins on a difficulty a score beats
+     *
+     * @param difficulty difficulty
+     * @param score score value
+     * @return percentage between 0 and 100, 0 without wins
+     */
+    public synchronized double percentBeaten(int difficulty, int score) {
+        return sketch.percentBeaten(difficulty, score);
+    }
+
+    /**
+     * Gets a copy of the sketch, for merging on other hosts
+     * @return sketch of every known win
+     */
+    public synchronized ScoreSketch snapshot() {
+        return sketch.copy();
+    }
+
+    /**
+     * Gets the sketch file path
+     * @return sketch file path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    //------------------------------------------------------------------------------------------- FILE
+
+    /**
+     * Queues a write of the unsaved wins, unless one is already waiting (it writes them too)
+     */
+    private void queueWrite() {
+        if (!writeQueued) {
+            writeQueued = true;
+            SaveService.shared().submit(this::write);
+        }
+    }
+
+    /**
+     * Merges the unsaved wins into the file, run on the save writer
+     * A failed write keeps them for the next one
+     */
+    private void write() {
+        ScoreSketch batch;
+        ScoreSketch known;
+        synchronized (this) {
+            writeQueued = false;
+            if (unsaved.isEmpty()) {
+                return;
+            }
+            batch = unsaved;
+            unsaved = new ScoreSketch();
+            known = sketch.copy();
+        }
+
+        try {
+            ScoreSketch merged = writeMerged(batch, known);
+            synchronized (this) {
+                merged.merge(unsaved); // recorded while writing
+                sketch = merged;
+            }
+        } catch (IOException e) {
+            System.err.println("Error saving score sketch: " + e.getMessage());
+            synchronized (this) {
+                batch.merge(unsaved); // kept for the next write
+                unsaved = batch;
+            }
+        }
+    }
+
+    /**
+     * Merges a batch of wins into the file, holding the lock file while reading and replacing it
+     *
+     * @param batch wins to add
+     * @param known every win known in memory, written instead if the file cannot be decoded
+     * @return file sketch after the merge, including wins written by other processes
+     * @throws IOException if the file cannot be locked, read or written
+     */
+    private ScoreSketch writeMerged(ScoreSketch batch, ScoreSketch known) throws IOException {
+        try (FileChannel lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            FileLock lock = lock(lockChannel);
+            try {
+                ScoreSketch merged = batch; // new file
+                byte[] data = readFile();
+                if (data != null) {
+                    try {
+                        merged = ScoreSketch.decode(data);
+                        merged.merge(batch);
+                    } catch (IOException e) {
+                        System.err.println("Replacing unreadable score sketch with the wins known here: " + e.getMessage());
+                        merged = known;
+                    }
+                }
+                SaveService.writeAtomically(path, merged.encode());
+                return merged;
+            } finally {
+                lock.release();
+            }
+        }
+    }
+    /**
+     * Takes the lock file, polling rather than blocking
+     * The kernel checks blocked file locks for deadlock per process, so blocking here while another thread of the
+     * process waits on the score file lock could be refused as a deadlock (EDEADLK)
+     * Only taken on the save writer, so it never overlaps within the JVM
+     *
+     * @param channel lock file channel
+     * @return lock held
+     * @throws IOException if locking fails
+     */
+    private static FileLock lock(FileChannel channel) throws IOException {
+        FileLock lock;
+        while ((lock = channel.tryLock()) == null) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return lock;
+    }
+
+    /**
+     * Reads the bytes of the sketch file
+     *
+     * @return file contents, null if there is no file
+     * @throws IOException if the file cannot be read
+     */
+    private byte[] readFile() throws IOException {
+        try {
+            return Files.readAllBytes(path);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the sketch file
+     * @return file sketch, empty if missing or unreadable
+     */
+    private ScoreSketch read() {
+        try {
+            byte[] data = readFile();
+            return data == null ? new ScoreSketch() : ScoreSketch.decode(data);
+        } catch (IOException e) {
+            System.err.println("Error loading score sketch: " + e.getMessage());
+            return new ScoreSketch();
+        }
+    }
+}
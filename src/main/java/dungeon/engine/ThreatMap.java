@@ -0,0 +1,157 @@
+package dungeon.engine;
+
+import dungeon.engine.cells.interactable.RangedMutant;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Per-tile index of ranged mutant threats
+ * Handles:
+ * - Tracking which ranged mutants can reach each tile (range diamond around each mutant)
+ * - Incremental updates as mutants are placed and removed
+ * Threat lists hold mutant tile indexes in ascending (row-major) order, tiles without threats are not stored
+ */
+class ThreatMap implements Serializable {
+    private final int size;
+    private final IntMap<int[]> threats;
+
+    // serial version UID
+    @Serial
+    private static final long serialVersionUID = 0L;
+
+    /**
+     * Creates an empty threat map
+     *
+     * @param size map size (width/height)
+     */
+    ThreatMap(int size) {
+        this.size = size;
+        this.threats = new IntMap<>();
+    }
+
+    /**
+     * Adds a ranged mutant to every tile within its range
+     *
+     * @param x mutant x-coordinate
+     * @param y mutant y-coordinate
+     */
+    void add(int x, int y) {
+        int source = y * size + x;
+        int range = RangedMutant.RANGE;
+
+        for (int dy = -range; dy <= range; dy++) {
+            int reach = range - Math.abs(dy);
+            for (int dx = -reach; dx <= reach; dx++) {
+                int tx = x + dx;
+                int ty = y + dy;
+                if (tx >= 0 && ty >= 0 && tx < size && ty < size) {
+                    int tile = ty * size + tx;
+                    threats.put(tile, insert(threats.get(tile), source));
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a ranged mutant from every tile within its range
+     *
+     * @param x mutant x-coordinate
+     * @param y mutant y-coordinate
+     */
+    void remove(int x, int y) {
+        int source = y * size + x;
+        int range = RangedMutant.RANGE;
+
+        for (int dy = -range; dy <= range; dy++) {
+            int reach = range - Math.abs(dy);
+            for (int dx = -reach; dx <= reach; dx++) {
+                int tx = x + dx;
+                int ty = y + dy;
+                if (tx >= 0 && ty >= 0 && tx < size && ty < size) {
+                    int tile = ty * size + tx;
+                    int[] sources = delete(threats.get(tile), source);
+                    if (sources == null) {
+                        threats.remove(tile);
+                    } else {
+                        threats.put(tile, sources);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the ranged mutants that can reach a tile
+     *
+     * @param index row-major tile index
+     * @return mutant tile indexes in ascending order, null if tile is not threatened
+     */
+    int[] get(int index) {
+        return threats.get(index);
+    }
+
+    /**
+     * Gets the number of threatened tiles
+     *
+     * @return threatened tile count
+     */
+    int size() {
+        return threats.size();
+    }
+
+    /**
+     * Adds a source index to a sorted threat list
+     *
+     * @param sources current list (may be null)
+     * @param source mutant tile index
+     * @return updated list
+     */
+    private static int[] insert(int[] sources, int source) {
+        if (sources == null) {
+            return new int[] {source};
+        }
+
+        int[] updated = new int[sources.length + 1];
+        int i = 0;
+        while (i < sources.length && sources[i] < source) {
+            updated[i] = sources[i];
+            i++;
+        }
+        updated[i] = source;
+        System.arraycopy(sources, i, updated, i + 1, sources.length - i);
+        return updated;
+    }
+
+    /**
+     * Removes a source index from a sorted threat list
+     *
+     * @param sources current list (may be null)
+     * @param source mutant tile index
+     * @return updated list, null if list is now empty
+     */
+    private static int[] delete(int[] sources, int source) {
+        if (sources == null) {
+            return null;
+        }
+
+        int at = -1;
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i] == source) {
+                at = i;
+                break;
+            }
+        }
+        if (at < 0) {
+            return sources;
+        }
+        if (sources.length == 1) {
+            return null;
+        }
+
+        int[] updated = new int[sources.length - 1];
+        System.arraycopy(sources, 0, updated, 0, at);
+        System.arraycopy(sources, at + 1, updated, at, sources.length - at - 1);
+        return updated;
+    }
+}
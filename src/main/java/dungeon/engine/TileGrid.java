@@ -0,0 +1,447 @@
+package dungeon.engine;
+
+import dungeon.engine.cells.interactable.RangedMutant;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Packed tile storage for a square level map
+ * Handles:
+ * - Cell type codes stored in square byte chunks (the map size rounded up to a power of two, at most 64x64 tiles),
+ *   allocated lazily on first non-empty write
+ * - Side table of cell objects for stateful tiles (mutants)
+ * - Threat map of ranged mutant coverage, kept in sync with every tile write
+ * - Cell views for getCell/setCell access
+ * - Primitive and bulk access for generation, range checks and rendering
+ */
+public class TileGrid implements Serializable {
+    // largest chunk dimensions (64x64 tiles), smaller maps use one chunk just covering the map
+    public static final int CHUNK_SHIFT = 6;
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private final int size;
+    private final int chunkShift;
+    private final int chunkSize;
+    private final int chunkMask;
+    private final int chunksPerRow;
+    private final byte[][] chunks; // null chunks are entirely empty
+    private int allocatedChunks;
+    private final IntMap<Cell> stateful;
+    private final ThreatMap threats;
+
+    // serial version UID
+    @Serial
+    private static final long serialVersionUID = 0L;
+
+    /**
+     * Creates a grid with every tile empty
+     *
+     * @param size map size (width/height)
+     */
+    public TileGrid(int size) {
+        this.size = size;
+        this.chunkShift = chunkShift(size);
+        this.chunkSize = 1 << chunkShift;
+        this.chunkMask = chunkSize - 1;
+        this.chunksPerRow = (size + chunkMask) >> chunkShift;
+        this.chunks = new byte[chunksPerRow * chunksPerRow][]; // EMPTY code is 0, chunks created on demand
+        this.stateful = new IntMap<>();
+        this.threats = new ThreatMap(size);
+    }
+
+    //-------------------------------------------------------------------------- CELL VIEWS
+
+    /**
+     * Gets a cell view of a tile
+     * Stateful tiles return their stored cell, all other tiles return the shared cell of the stored type
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @return cell at (x, y)
+     */
+    public Cell getCell(int x, int y) {
+        CellType type = CellType.fromCode(read(x, y));
+        if (type.isStateful()) {
+            return stateful.get(index(x, y));
+        }
+
+        return type.cell();
+    }
+
+    /**
+     * Places a cell on a tile
+     * Only stateful cells are kept, all others are reduced to their type code
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @param cell cell to place
+     */
+    public void setCell(int x, int y, Cell cell) {
+        CellType type = CellType.of(cell);
+        write(x, y, type.code());
+
+        if (type.isStateful()) {
+            stateful.put(index(x, y), cell);
+        }
+
+        if (cell instanceof RangedMutant rangedMutant) {
+            // keeping mutant attack position in sync with its tile
+            rangedMutant.setPosition(x, y);
+            threats.add(x, y);
+        }
+    }
+
+    //-------------------------------------------------------------------------- PRIMITIVE ACCESS
+
+    /**
+     * Sets a tile to a stateless cell type
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @param type stateless cell type
+     */
+    public void setType(int x, int y, CellType type) {
+        if (type.isStateful()) {
+            throw new IllegalArgumentException("Stateful cells must be placed with setCell: " + type);
+        }
+
+        write(x, y, type.code());
+    }
+
+    /**
+     * Gets the type of a tile
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @return cell type at (x, y)
+     */
+    public CellType getType(int x, int y) {
+        return CellType.fromCode(read(x, y));
+    }
+
+    /**
+     * Gets the packed type code of a tile
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @return type code at (x, y)
+     */
+    public byte getCode(int x, int y) {
+        return read(x, y);
+    }
+
+    /**
+     * Gets the display symbol of a tile
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @return cell symbol at (x, y)
+     */
+    public char getSymbol(int x, int y) {
+        return CellType.fromCode(read(x, y)).symbol();
+    }
+
+    /**
+     * Checks if the player can walk onto a tile
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @return true if tile is walkable
+     */
+    public boolean canWalk(int x, int y) {
+        return CellType.fromCode(read(x, y)).canWalk();
+    }
+
+    /**
+     * Gets the ranged mutants that can reach a tile
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @return mutant tile indexes in row-major order, null if tile is not threatened
+     */
+    public int[] getThreats(int x, int y) {
+        return threats.get(index(x, y));
+    }
+
+    /**
+     * Gets the stored cell of a stateful tile
+     *
+     * @param index row-major tile index
+     * @return stored cell, null if tile is not stateful
+     */
+    public Cell getStateful(int index) {
+        return stateful.get(index);
+    }
+
+    //-------------------------------------------------------------------------- BULK ACCESS
+
+    /**
+     * Sets the outer ring of tiles to a stateless cell type
+     *
+     * @param type stateless cell type
+     */
+    public void fillPerimeter(CellType type) {
+        int last = size - 1;
+        byte code = type.code();
+
+        for (int i = 0; i < size; i++) {
+            // top + bottom rows
+            write(i, 0, code);
+            write(i, last, code);
+
+            // left + right columns
+            write(0, i, code);
+            write(last, i, code);
+        }
+    }
+
+    /**
+     * Finds the next tile of a type in row-major order
+     * Unallocated (empty) chunks are skipped without scanning
+     *
+     * @param type type to search for
+     * @param fromIndex index to start searching from (inclusive)
+     * @return index of next matching tile, -1 if none
+     */
+    public int nextIndexOf(CellType type, int fromIndex) {
+        byte code = type.code();
+        int startX = fromIndex % size;
+        for (int y = fromIndex / size; y < size; y++) {
+            int chunkRow = (y >> chunkShift) * chunksPerRow;
+            int rowOffset = (y & chunkMask) << chunkShift;
+
+            for (int cx = startX >> chunkShift; cx < chunksPerRow; cx++) {
+                byte[] chunk = chunks[chunkRow + cx];
+                if (chunk == null) {
+                    if (code == 0) {
+                        return y * size + Math.max(startX, cx << chunkShift);
+                    }
+                    continue;
+                }
+
+                int from = Math.max(startX, cx << chunkShift);
+                int to = Math.min(size, (cx + 1) << chunkShift);
+                for (int x = from; x < to; x++) {
+                    if (chunk[rowOffset | (x & chunkMask)] == code) {
+                        return y * size + x;
+                    }
+                }
+            }
+            startX = 0;
+        }
+        return -1;
+    }
+
+    /**
+     * Copies a row of type codes
+     *
+     * @param y row to copy
+     * @param dest destination array (at least size long)
+     */
+    public void copyRow(int y, byte[] dest) {
+        copyRow(y, 0, dest, size);
+    }
+
+    /**
+     * Copies part of a row of type codes, chunk by chunk
+     *
+     * @param y row to copy
+     * @param fromX first column to copy
+     * @param dest destination array (at least length long)
+     * @param length number of tiles to copy
+     */
+    public void copyRow(int y, int fromX, byte[] dest, int length) {
+        int chunkRow = (y >> chunkShift) * chunksPerRow;
+        int rowOffset = (y & chunkMask) << chunkShift;
+
+        int copied = 0;
+        while (copied < length) {
+            int x = fromX + copied;
+            int run = Math.min(length - copied, chunkSize - (x & chunkMask));
+            byte[] chunk = chunks[chunkRow + (x >> chunkShift)];
+
+            if (chunk == null) {
+                Arrays.fill(dest, copied, copied + run, (byte) 0);
+            } else {
+                System.arraycopy(chunk, rowOffset | (x & chunkMask), dest, copied, run);
+            }
+            copied += run;
+        }
+    }
+
+    /**
+     * Calculates the first row/column of a view window centred on a coordinate
+     * Windows are clamped to the map edges, used by renderers to draw large maps in sections
+     *
+     * @param centre coordinate to centre on (player x or y)
+     * @param size map size (width/height)
+     * @param view view window size
+     * @return first coordinate of the window
+     */
+    public static int viewStart(int centre, int size, int view) {
+        return Math.max(0, Math.min(size - view, centre - view / 2));
+    }
+
+    /**
+     * Creates a 2d cell array snapshot of the grid (intended for small maps)
+     * Changes to the array are not written back to the grid
+     *
+     * @return 2d array of cells ([y][x])
+     */
+    public Cell[][] toArray() {
+        Cell[][] cells = new Cell[size][size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                cells[y][x] = getCell(x, y);
+            }
+        }
+        return cells;
+    }
+
+    //-------------------------------------------------------------------------- UTIL METHODS
+
+    /**
+     * Reads the type code of a tile
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @return type code, EMPTY for tiles in unallocated chunks
+     */
+    private byte read(int x, int y) {
+        byte[] chunk = chunks[(y >> chunkShift) * chunksPerRow + (x >> chunkShift)];
+        if (chunk == null) {
+            return 0;
+        }
+        return chunk[((y & chunkMask) << chunkShift) | (x & chunkMask)];
+    }
+
+    /**
+     * Writes a type code to a tile, releasing any stored cell and threats of the previous cell
+     * Chunks are allocated on the first non-empty write
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @param code new type code
+     */
+    private void write(int x, int y, byte code) {
+        int chunkIndex = (y >> chunkShift) * chunksPerRow + (x >> chunkShift);
+        byte[] chunk = chunks[chunkIndex];
+        if (chunk == null) {
+            if (code == 0) {
+                return; // already empty
+            }
+            chunk = new byte[chunkSize * chunkSize];
+            chunks[chunkIndex] = chunk;
+            allocatedChunks++;
+        }
+
+        int offset = ((y & chunkMask) << chunkShift) | (x & chunkMask);
+        byte previous = chunk[offset];
+        if (CellType.fromCode(previous).isStateful()) {
+            stateful.remove(index(x, y));
+        }
+        if (previous == CellType.RANGED_MUTANT.code()) {
+            threats.remove(x, y);
+        }
+
+        chunk[offset] = code;
+    }
+
+    /**
+     * Converts coordinates to a row-major tile index
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @return tile index
+     */
+    public int index(int x, int y) {
+        return y * size + x;
+    }
+
+    /**
+     * Gets the grid size
+     *
+     * @return the size of the grid (width/height)
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the number of allocated chunks
+     *
+     * @return allocated chunk count
+     */
+    public int getAllocatedChunks() {
+        return allocatedChunks;
+    }
+
+    /**
+     * Estimates the heap memory held by the grid
+     * Counts the chunk table, allocated chunks and the stateful cell and threat maps (shared cells are free)
+     * The maps cost about 392 bytes empty (two 16 slot tables and the threat map), about as much as a 10x10 chunk
+     *
+     * @return estimated bytes
+     */
+    public long estimateBytes() {
+        return 16L + 4L * chunks.length + (long) allocatedChunks * (16 + chunkSize * chunkSize)
+                + 392L + 64L * stateful.size() + 48L * threats.size();
+    }
+
+    //-------------------------------------------------------------------------- RAW CHUNKS (save format)
+
+    /**
+     * Gets the chunk shift used for a map size
+     * The map size rounded up to a power of two, capped at CHUNK_SHIFT (a 10x10 map uses one 16x16 chunk)
+     *
+     * @param size map size (width/height)
+     * @return log2 of the chunk width/height
+     */
+    static int chunkShift(int size) {
+        return Math.min(CHUNK_SHIFT, 32 - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1));
+    }
+
+    /**
+     * Gets the chunk shift of this grid
+     *
+     * @return log2 of the chunk width/height
+     */
+    int getChunkShift() {
+        return chunkShift;
+    }
+
+    /**
+     * Gets the number of chunk slots (chunks per row squared)
+     *
+     * @return chunk slot count
+     */
+    int getChunkCount() {
+        return chunks.length;
+    }
+
+    /**
+     * Gets the stored codes of a chunk without copying, callers must not modify them
+     *
+     * @param chunkIndex row-major chunk index
+     * @return row-major type codes (chunk size squared), null if the chunk is entirely empty
+     */
+    byte[] chunkCodes(int chunkIndex) {
+        return chunks[chunkIndex];
+    }
+
+    /**
+     * Installs the codes of an empty chunk without side effects
+     * Only stateless codes may be installed, stateful tiles must be placed through setCell afterwards
+     *
+     * @param chunkIndex row-major chunk index
+     * @param codes row-major type codes (chunk size squared), owned by the grid afterwards
+     */
+    void loadChunk(int chunkIndex, byte[] codes) {
+        if (chunks[chunkIndex] == null) {
+            allocatedChunks++;
+        }
+        chunks[chunkIndex] = codes;
+    }
+}
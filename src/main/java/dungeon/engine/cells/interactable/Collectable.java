@@ -4,8 +4,12 @@ import dungeon.engine.Cell;
 import dungeon.engine.cells.Interaction;
 import dungeon.engine.Player;
 
+import java.io.Serial;
+
 // abstract class for gold + health potion cells (interactable)
 public abstract class Collectable extends Cell implements Interaction {
+    @Serial
+    private static final long serialVersionUID = -3529273210196116787L;
 
     /**
      * Creates a new collectable cell
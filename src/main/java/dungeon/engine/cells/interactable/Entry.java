@@ -4,8 +4,16 @@ import dungeon.engine.Cell;
 import dungeon.engine.cells.Interaction;
 import dungeon.engine.Player;
 
+import java.io.Serial;
+
 // entry cell (interactable)
 public class Entry extends Cell implements Interaction {
+    @Serial
+    private static final long serialVersionUID = -610384968944467648L;
+
+    // shared instance, cell carries no per-tile state
+    public static final Entry INSTANCE = new Entry();
+
     public Entry() {
         super('E', true);
     }
@@ -38,4 +46,10 @@ public class Entry extends Cell implements Interaction {
     public int getScore() {
         return 0;
     }
+
+    // resolves deserialized copies to the shared instance
+    @Serial
+    private Object readResolve() {
+        return INSTANCE;
+    }
 }
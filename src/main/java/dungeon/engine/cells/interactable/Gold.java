@@ -2,8 +2,16 @@ package dungeon.engine.cells.interactable;
 
 import dungeon.engine.Player;
 
+import java.io.Serial;
+
 // gold cell (collectable)
 public class Gold extends Collectable {
+    @Serial
+    private static final long serialVersionUID = -2235446745360291064L;
+
+    // shared instance, cell carries no per-tile state
+    public static final Gold INSTANCE = new Gold();
+
     public Gold() {
         super('G');
     }
@@ -17,4 +25,10 @@ public class Gold extends Collectable {
     public int getScore() {
         return 2;
     }
+
+    // resolves deserialized copies to the shared instance
+    @Serial
+    private Object readResolve() {
+        return INSTANCE;
+    }
 }
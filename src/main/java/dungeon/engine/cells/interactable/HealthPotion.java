@@ -2,8 +2,16 @@ package dungeon.engine.cells.interactable;
 
 import dungeon.engine.Player;
 
+import java.io.Serial;
+
 // health potion cell (collectable)
 public class HealthPotion extends Collectable {
+    @Serial
+    private static final long serialVersionUID = -4942988297755979612L;
+
+    // shared instance, cell carries no per-tile state
+    public static final HealthPotion INSTANCE = new HealthPotion();
+
     public HealthPotion() {
         super('H');
     }
@@ -17,4 +25,10 @@ public class HealthPotion extends Collectable {
     public int getHeal() {
         return 4;
     }
+
+    // resolves deserialized copies to the shared instance
+    @Serial
+    private Object readResolve() {
+        return INSTANCE;
+    }
 }
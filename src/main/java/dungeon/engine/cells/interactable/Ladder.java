@@ -4,8 +4,16 @@ import dungeon.engine.Cell;
 import dungeon.engine.cells.Interaction;
 import dungeon.engine.Player;
 
+import java.io.Serial;
+
 // ladder cell (interactable)
 public class Ladder extends Cell implements Interaction {
+    @Serial
+    private static final long serialVersionUID = -3138155085856453870L;
+
+    // shared instance, cell carries no per-tile state
+    public static final Ladder INSTANCE = new Ladder();
+
     public Ladder() {
         super('L', true);
     }
@@ -38,4 +46,10 @@ public class Ladder extends Cell implements Interaction {
     public int getScore() {
         return 0;
     }
+
+    // resolves deserialized copies to the shared instance
+    @Serial
+    private Object readResolve() {
+        return INSTANCE;
+    }
 }
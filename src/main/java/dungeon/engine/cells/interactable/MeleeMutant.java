@@ -2,8 +2,13 @@ package dungeon.engine.cells.interactable;
 
 import dungeon.engine.Player;
 
+import java.io.Serial;
+
 // Melee mutant cell (mutant)
 public class MeleeMutant extends Mutant {
+    @Serial
+    private static final long serialVersionUID = -5359673003127957759L;
+
     public MeleeMutant() {
         super('M', 2);
     }
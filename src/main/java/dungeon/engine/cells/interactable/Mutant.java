@@ -4,8 +4,13 @@ import dungeon.engine.Cell;
 import dungeon.engine.cells.Interaction;
 import dungeon.engine.Player;
 
+import java.io.Serial;
+
 // abstract class for melee and ranged mutant cells (interactable)
 public abstract class Mutant extends Cell implements Interaction {
+    @Serial
+    private static final long serialVersionUID = 7911727630761647096L;
+
     protected boolean defeated = false;
     protected final int damage;
 
@@ -28,6 +33,14 @@ public abstract class Mutant extends Cell implements Interaction {
         this.defeated = defeated;
     }
 
+    /**
+     * Checks if the mutant has been defeated
+     * @return true if defeated
+     */
+    public boolean isDefeated() {
+        return defeated;
+    }
+
     //-----------------------------------------------------------------INTERFACE OVERRIDES
     @Override
     public boolean cellRemoveOnUse() {
@@ -2,24 +2,37 @@ package dungeon.engine.cells.interactable;
 
 import dungeon.engine.Player;
 import dungeon.engine.Position;
+import dungeon.engine.SeededRandom;
 
+import java.io.Serial;
 import java.util.Random;
 
 // Ranged mutant cell (mutant)
 public class RangedMutant extends Mutant {
-    private final Random random = new Random();
+    @Serial
+    private static final long serialVersionUID = -5925036563538358735L;
+
+    // attack range (manhattan distance)
+    public static final int RANGE = 2;
+
+    private final Random random;
     private final Position position;
 
     // defaults
     public RangedMutant() {
-        super('R', 0); // 0 contact damage, damage occurs from ranged attacks
-        this.position = new Position(0, 0);
+        this(0, 0);
     }
 
     // constructor with positioning
     public RangedMutant(int x, int y) {
-        super('R', 0);
+        this(x, y, new SeededRandom());
+    }
+
+    // constructor with positioning and an injected random generator for attack rolls
+    public RangedMutant(int x, int y, Random random) {
+        super('R', 0); // 0 contact damage, damage occurs from ranged attacks
         this.position = new Position(x, y);
+        this.random = random;
     }
 
     // updates mutant x and y coords
@@ -29,9 +42,14 @@ public class RangedMutant extends Mutant {
 
     }
 
+    // gets the attack roll generator (saved with the game when it is a SeededRandom)
+    public Random getRandom() {
+        return random;
+    }
+
     public int tryRangedAttack(Player player) {
         // checking if player is within range (2)
-        if (position.isInRange(player.getPosition(), 2)) {
+        if (position.isInRange(player.getPosition(), RANGE)) {
             // 50% chance to deal 2 damage with random boolean
             if (random.nextBoolean()) {
                 return 2;
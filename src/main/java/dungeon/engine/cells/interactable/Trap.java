@@ -4,8 +4,16 @@ import dungeon.engine.Cell;
 import dungeon.engine.cells.Interaction;
 import dungeon.engine.Player;
 
+import java.io.Serial;
+
 // trap cell (interactable)
 public class Trap extends Cell implements Interaction {
+    @Serial
+    private static final long serialVersionUID = -2733040429697317686L;
+
+    // shared instance, cell carries no per-tile state
+    public static final Trap INSTANCE = new Trap();
+
     public Trap() {
         super('T', true);
     }
@@ -38,4 +46,10 @@ public class Trap extends Cell implements Interaction {
     public int getScore() {
         return 0;
     }
+
+    // resolves deserialized copies to the shared instance
+    @Serial
+    private Object readResolve() {
+        return INSTANCE;
+    }
 }
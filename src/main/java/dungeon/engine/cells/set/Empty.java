@@ -2,9 +2,23 @@ package dungeon.engine.cells.set;
 
 import dungeon.engine.Cell;
 
+import java.io.Serial;
+
 // empty cell
 public class Empty extends Cell {
+    @Serial
+    private static final long serialVersionUID = -3128280504678538573L;
+
+    // shared instance, cell carries no per-tile state
+    public static final Empty INSTANCE = new Empty();
+
     public Empty() {
         super(' ', true);
     }
+
+    // resolves deserialized copies to the shared instance
+    @Serial
+    private Object readResolve() {
+        return INSTANCE;
+    }
 }
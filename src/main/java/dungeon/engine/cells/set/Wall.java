@@ -2,9 +2,23 @@ package dungeon.engine.cells.set;
 
 import dungeon.engine.Cell;
 
+import java.io.Serial;
+
 // wall cell
 public class Wall extends Cell {
+    @Serial
+    private static final long serialVersionUID = 362104949187075468L;
+
+    // shared instance, cell carries no per-tile state
+    public static final Wall INSTANCE = new Wall();
+
     public Wall() {
         super('#', false);
     }
+
+    // resolves deserialized copies to the shared instance
+    @Serial
+    private Object readResolve() {
+        return INSTANCE;
+    }
 }
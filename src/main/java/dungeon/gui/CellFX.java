@@ -1,16 +1,13 @@
 package dungeon.gui;
 
 import dungeon.engine.*;
-import dungeon.engine.cells.set.Empty;
-import dungeon.engine.cells.set.Wall;
-import dungeon.engine.cells.interactable.Entry;
-import dungeon.engine.cells.interactable.*;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -18,32 +15,33 @@ import java.util.Map;
  * Visual cell representation for the JavaFX GUI
  * Handles:
  * - Cell rendering (with image and background colour)
+ * Cells are rendered from their packed cell type, no cell objects required
  */
 public class CellFX extends StackPane {
-    private Cell cell;
+    private CellType type;
     private final Map<String, Image> imageCache;
     private final double cellSize;
     private final String imagePath;
-    private final Map<Class<?>, Color> colourMap;
-    private final Map<Class<?>, String> imageMap;
+    private final Map<CellType, Color> colourMap;
+    private final Map<CellType, String> imageMap;
 
     /**
      * Creates a rendered cell with default sizing
      *
-     * @param cell to render
+     * @param type cell type to render
      */
-    public CellFX(Cell cell) {
-        this(cell, 30.0);
+    public CellFX(CellType type) {
+        this(type, 30.0);
     }
 
     /**
      * Creates a rendered cell with a set size
      *
-     * @param cell to render
+     * @param type cell type to render
      * @param cellSize size in pixels
      */
-    public CellFX(Cell cell, double cellSize) {
-        this.cell = cell;
+    public CellFX(CellType type, double cellSize) {
+        this.type = type;
         this.cellSize = cellSize;
         this.imageCache = new HashMap<>();
         this.imagePath = "/";
@@ -60,12 +58,12 @@ public class CellFX extends StackPane {
     }
 
     /**
-     * Updates cell reference and refreshes
+     * Updates cell type and refreshes
      *
-     * @param cell new cell to render
+     * @param type new cell type to render
      */
-    public void setCell(Cell cell) {
-        this.cell = cell;
+    public void setType(CellType type) {
+        this.type = type;
         updateCFX();
     }
 
@@ -106,11 +104,11 @@ public class CellFX extends StackPane {
      * @return colour of cell type
      */
     private Color getCellColour() {
-        if (cell == null) {
+        if (type == null) {
             return Color.WHITE;
         }
 
-        Color colour = colourMap.get(cell.getClass());
+        Color colour = colourMap.get(type);
         return colour != null ? colour : Color.WHITE;
     }
 
@@ -120,11 +118,11 @@ public class CellFX extends StackPane {
      * @return rendered image of cell type or null
      */
     private ImageView createCellImage() {
-        if (cell == null || cell instanceof Empty) {
+        if (type == null || type == CellType.EMPTY) {
             return null;
         }
 
-        String imageName = imageMap.get(cell.getClass());
+        String imageName = imageMap.get(type);
         if (imageName == null) {
             return null;
         }
@@ -190,12 +188,12 @@ public class CellFX extends StackPane {
     }
 
     /**
-     * Returns the current rendered cell
+     * Returns the current rendered cell type
      *
-     * @return current cell
+     * @return current cell type
      */
-    public Cell getCell() {
-        return cell;
+    public CellType getType() {
+        return type;
     }
 
     /**
@@ -222,37 +220,37 @@ public class CellFX extends StackPane {
     /**
      * Colour mapping initilisation
      *
-     * @return map associating cell class background colours
+     * @return map associating cell type background colours
      */
-    private Map<Class<?>, Color> initColourMap() {
-        Map<Class<?>, Color> map = new HashMap<>();
-        map.put(Wall.class, Color.BLACK);
-        map.put(Entry.class, Color.LIGHTGREY);
-        map.put(Ladder.class, Color.LIGHTGREEN);
-        map.put(Gold.class, Color.GOLD);
-        map.put(HealthPotion.class, Color.LIGHTPINK);
-        map.put(Trap.class, Color.CORAL);
-        map.put(MeleeMutant.class, Color.GREENYELLOW);
-        map.put(RangedMutant.class, Color.PALEVIOLETRED);
-        map.put(Empty.class, Color.WHITE);
+    private Map<CellType, Color> initColourMap() {
+        Map<CellType, Color> map = new EnumMap<>(CellType.class);
+        map.put(CellType.WALL, Color.BLACK);
+        map.put(CellType.ENTRY, Color.LIGHTGREY);
+        map.put(CellType.LADDER, Color.LIGHTGREEN);
+        map.put(CellType.GOLD, Color.GOLD);
+        map.put(CellType.HEALTH_POTION, Color.LIGHTPINK);
+        map.put(CellType.TRAP, Color.CORAL);
+        map.put(CellType.MELEE_MUTANT, Color.GREENYELLOW);
+        map.put(CellType.RANGED_MUTANT, Color.PALEVIOLETRED);
+        map.put(CellType.EMPTY, Color.WHITE);
         return map;
     }
 
     /**
      * Image mapping initilisation
      *
-     * @return map associating cell class images
+     * @return map associating cell type images
      */
-    private Map<Class<?>, String> initImageMap() {
-        Map<Class<?>, String> map = new HashMap<>();
-        map.put(Wall.class, "wall");
-        map.put(Entry.class, "entry");
-        map.put(Ladder.class, "ladder");
-        map.put(Gold.class, "gold");
-        map.put(HealthPotion.class, "healthPotion");
-        map.put(Trap.class, "trap");
-        map.put(MeleeMutant.class, "meleeMutant");
-        map.put(RangedMutant.class, "rangedMutant");
+    private Map<CellType, String> initImageMap() {
+        Map<CellType, String> map = new EnumMap<>(CellType.class);
+        map.put(CellType.WALL, "wall");
+        map.put(CellType.ENTRY, "entry");
+        map.put(CellType.LADDER, "ladder");
+        map.put(CellType.GOLD, "gold");
+        map.put(CellType.HEALTH_POTION, "healthPotion");
+        map.put(CellType.TRAP, "trap");
+        map.put(CellType.MELEE_MUTANT, "meleeMutant");
+        map.put(CellType.RANGED_MUTANT, "rangedMutant");
         return map;
     }
 }
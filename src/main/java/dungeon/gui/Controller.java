@@ -1,7 +1,6 @@
 package dungeon.gui;
 
 import dungeon.engine.*;
-import dungeon.engine.Cell;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
@@ -18,10 +17,13 @@ import java.util.Optional;
  * - UI updates and state changes
  * - Map rendering and player visualisation
  * - Game status outputs
- * - Save/load functionality
+ * - Save/load functionality (autosaved through the move journal)
  * - Game over conditions and display
  */
 public class Controller {
+    // largest map section displayed around the player
+    private static final int VIEW_SIZE = 15;
+
     @FXML private GridPane gridPane;
     @FXML private Label hpLabel;
     @FXML private Label stepsLabel;
@@ -47,7 +49,7 @@ public class Controller {
     @FXML
     public void initialize() {
         // pre-loading images
-        CellFX preloader = new CellFX(null);
+        CellFX preloader = new CellFX((CellType) null);
         preloader.preload();
 
         // checking if load game exists
@@ -58,6 +60,17 @@ public class Controller {
             askDifficulty();
         }
 
+        // finished games are logged for balance analysis
+        engine.setHistory(GameHistory.shared());
+
+        // continuous autosave, a crashed session can be loaded on the next start
+        // the base snapshot is written in the background, like handleSave
+        engine.enableJournalAsync(MoveJournal.DEFAULT_SNAPSHOT_INTERVAL).thenAccept(journalResult -> {
+            if (!journalResult.equals("Game saved!")) {
+                Platform.runLater(() -> status(journalResult));
+            }
+        });
+
         // stat labels
         hpLabel.setText("HP: 0");
         stepsLabel.setText("Steps: 0");
@@ -116,7 +129,7 @@ public class Controller {
                 }
             }
 
-            engine = new GameEngine(difficulty, new Score("md_highscores.dat"), savePath);
+            engine = new GameEngine(difficulty, ScoreService.shared(), savePath);
             status("Welcome to the MiniDungeon! New game started with difficulty " + difficulty + ".");
         }
 
@@ -124,7 +137,7 @@ public class Controller {
      * Attempts to load a saved game, fallbacks to new game creation
      */
     private void loadGame() {
-        engine = new GameEngine(0, new dungeon.engine.Score("md_highscores.dat"), savePath);
+        engine = new GameEngine(0, ScoreService.shared(), savePath);
         if (engine.loadGame()) {
             status("Game loaded!");
         } else {
@@ -144,7 +157,7 @@ public class Controller {
         gridPane.getChildren().clear();
 
         // get map and player pos
-        Cell[][] map = engine.getMap();
+        TileGrid tiles = engine.getTiles();
         Position playerPos = engine.getPlayer().getPosition();
 
         // cell size
@@ -157,16 +170,21 @@ public class Controller {
         scoreLabel.setText("Score: " + player.getScore());
         levelLabel.setText("Level: " + engine.getLevel());
 
-        // filling grid with cells
-        for(int i = 0; i < engine.getSize(); i++) {
-            for (int j = 0; j < engine.getSize(); j++) {
-                Cell cell = map[i][j];
+        // view window around the player (whole map for small maps)
+        int view = Math.min(engine.getSize(), VIEW_SIZE);
+        int startX = TileGrid.viewStart(playerPos.getX(), engine.getSize(), view);
+        int startY = TileGrid.viewStart(playerPos.getY(), engine.getSize(), view);
+        byte[] row = new byte[view];
 
+        // filling grid with cells, one row of tile codes at a time
+        for (int i = 0; i < view; i++) {
+            tiles.copyRow(startY + i, startX, row, view);
+            for (int j = 0; j < view; j++) {
                 // visual cells
-                CellFX cellFX = new CellFX(cell, cellSize);
+                CellFX cellFX = new CellFX(CellType.fromCode(row[j]), cellSize);
 
                 // marking player pos
-                if (i == playerPos.getY() && j == playerPos.getX()) {
+                if (startY + i == playerPos.getY() && startX + j == playerPos.getX()) {
                     cellFX.playerOverlay();
                 }
 
@@ -224,7 +242,12 @@ public class Controller {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Game Over");
         alert.setHeaderText(message);
-        alert.setContentText("Final score: " + engine.getPlayer().getScore());
+        String content = "Final score: " + engine.getPlayer().getScore();
+        double beaten = engine.getPercentBeaten();
+        if (!Double.isNaN(beaten)) {
+            content += String.format("%nYou beat %.0f%% of winning runs", beaten);
+        }
+        alert.setContentText(content);
         alert.showAndWait();
 
         updateHighScores();
@@ -245,10 +268,10 @@ public class Controller {
     // handles up button interaction
     @FXML
     private void handleUp() {
-        // string of result
-        String result = engine.moveUp();
-        // adding result to status display
-        status(result);
+        // result of move
+        MoveResult result = engine.move(Direction.UP);
+        // adding rendered result to status display
+        status(result.getMessage());
         // updating GUI
         updateGui();
     }
@@ -256,33 +279,35 @@ public class Controller {
     // handles down button interaction
     @FXML
     private void handleDown() {
-        String result = engine.moveDown();
-        status(result);
+        MoveResult result = engine.move(Direction.DOWN);
+        status(result.getMessage());
         updateGui();
     }
 
     // handles left button interaction
     @FXML
     private void handleLeft() {
-        String result = engine.moveLeft();
-        status(result);
+        MoveResult result = engine.move(Direction.LEFT);
+        status(result.getMessage());
         updateGui();
     }
 
     // handles right button interaction
     @FXML
     private void handleRight() {
-        String result = engine.moveRight();
-        status(result);
+        MoveResult result = engine.move(Direction.RIGHT);
+        status(result.getMessage());
         updateGui();
     }
 
-    // handles save button interaction
+    // handles save button interaction, the file is written in the background while play continues
     @FXML
     private void handleSave() {
-        String result = engine.saveGame();
-        status(result);
-        updateGui();
+        saveButton.setDisable(true);
+        engine.saveGameAsync().thenAccept(result -> Platform.runLater(() -> {
+            status(result);
+            saveButton.setDisable(engine.isGameOver());
+        }));
     }
 
     // handles help button interaction
@@ -324,7 +349,7 @@ public class Controller {
         Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
         alert.setTitle("Quit");
         alert.setHeaderText("Are you sure you want to quit the game?");
-        alert.setContentText("Warning: Progress will be lost unless game is saved.");
+        alert.setContentText("Progress is saved automatically and can be loaded on the next start.");
 
         ButtonType buttonTypeYes = new ButtonType("Yes");
         ButtonType buttonTypeNo = new ButtonType("No");
@@ -335,10 +360,16 @@ public class Controller {
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent()) {
             if (result.get() == buttonTypeYes) {
+                engine.closeJournal();
                 Platform.exit();
             } else if (result.get() == buttonTypeSave) {
-                engine.saveGame();
-                Platform.exit();
+                // exits once the save is on disk
+                disableControls();
+                status("Saving...");
+                engine.saveGameAsync().thenAccept(saveResult -> Platform.runLater(() -> {
+                    engine.closeJournal();
+                    Platform.exit();
+                }));
             }
         }
     }
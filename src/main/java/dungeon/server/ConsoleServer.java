@@ -0,0 +1,264 @@
+package dungeon.server;
+
+import dungeon.engine.ConsoleUI;
+import dungeon.engine.GameHistory;
+import dungeon.engine.ScoreHandler;
+import dungeon.engine.ScoreService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+
+/**
+ * Multi-user console server: each TCP connection plays its own console game (see ConsoleUI) on a virtual thread,
+ * for telnet or netcat clients
+ * Handles:
+ * - Asking each player for a name, their game saves to <directory>/<name>.dat and is offered again on their
+ *   next connection (a name can only play on one connection at a time)
+ * - One virtual thread per connection, an idle player costs a parked thread, a 128 byte input buffer and the
+ *   frame buffer, plus their game
+ * - Frames written in one go per command, with TCP_NODELAY so they are sent straight away
+ * - Closing every connection on stop, games end as if the player quit (autosaved by the move journal)
+ * Names are not authenticated, anyone who can connect can play (and overwrite) any name's save, so main binds
+ * the loopback address unless given another
+ */
+public final class ConsoleServer {
+    public static final int DEFAULT_PORT = 8222;
+
+    // player names are file names, kept to letters, digits, dashes and underscores
+    private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,32}");
+    private static final int MAX_NAME_ATTEMPTS = 3;
+
+    private final ServerSocket server;
+    private final Path directory;
+    private final ScoreHandler scores;
+    private final GameHistory history;
+
+    private final Set<String> playing = ConcurrentHashMap.newKeySet();
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong accepted = new AtomicLong();
+    private volatile boolean stopped;
+
+    /**
+     * Creates a server, not yet accepting connections
+     *
+     * @param address address to bind (port 0 picks a free port)
+     * @param directory save directory, created if missing
+     * @param scores score handler of every game
+     * @param history log finished games are appended to, null for none
+     * @throws IOException if the address cannot be bound or the directory created
+     */
+    public ConsoleServer(InetSocketAddress address, Path directory, ScoreHandler scores, GameHistory history)
+            throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.scores = scores;
+        this.history = history;
+        this.server = new ServerSocket();
+        server.bind(address, 256);
+    }
+
+    /**
+     * Starts accepting connections on a virtual thread
+     */
+    public void start() {
+        Thread.ofVirtual().name("console-accept").start(this::acceptLoop);
+    }
+
+    /**
+     * Stops accepting connections and closes every open one
+     */
+    public void stop() {
+        stopped = true;
+        try {
+            server.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+        for (Socket socket : connections) {
+            close(socket);
+        }
+    }
+
+    /**
+     * Gets the port the server is bound to
+     * @return port
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Gets the number of open connections
+     * @return connection count
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Gets the number of connections accepted since start
+     * @return connections accepted
+     */
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    /**
+     * Runs a server until the process is stopped, on the loopback address unless another is given
+     * Saves are kept in md_players, play with: telnet localhost 8222 (or nc localhost 8222)
+     *
+     * @param args optional port (default 8222), then optional bind address (any name can be played by anyone
+     *             who can reach it, only widen it on a trusted network)
+     * @throws IOException if the address cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        InetAddress address = args.length > 1 ? InetAddress.getByName(args[1]) : InetAddress.getLoopbackAddress();
+        ConsoleServer server = new ConsoleServer(new InetSocketAddress(address, port), Path.of("md_players"),
+                ScoreService.shared(), GameHistory.shared());
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        server.start();
+        System.out.println("Mini Dungeon console server on " + address.getHostAddress() + ":" + server.getPort()
+                + " (player names are not authenticated)");
+    }
+
+    //------------------------------------------------------------------------------------------- CONNECTIONS
+
+    /**
+     * Accepts connections until stopped, each served on its own virtual thread
+     */
+    private void acceptLoop() {
+        while (!stopped) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                if (!stopped) {
+                    System.err.println("Error accepting console connection: " + e.getMessage());
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10)); // out of file handles, wait for some
+                }
+                continue;
+            }
+            connections.add(socket);
+            if (stopped) { // stop ran between accept and add
+                close(socket);
+                connections.remove(socket);
+                return;
+            }
+            Thread.ofVirtual().name("console-", accepted.incrementAndGet()).start(() -> serve(socket));
+        }
+    }
+
+    /**
+     * Plays a console game on a connection, then closes it
+     * @param socket player connection
+     */
+    private void serve(Socket socket) {
+        String name = null;
+        try {
+            socket.setTcpNoDelay(true);
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream(); // written once per frame, no buffer needed
+
+            name = claimName(in, out);
+            if (name != null) {
+                new ConsoleUI(in, out, "\r\n", directory.resolve(name + ".dat").toString(), scores, history).start();
+            }
+        } catch (IOException e) {
+            // player went away
+        } finally {
+            if (name != null) {
+                playing.remove(name);
+            }
+            connections.remove(socket);
+            close(socket);
+        }
+    }
+
+    /**
+     * Asks for a player name until a valid one not in use is given
+     *
+     * @param in connection input, read a byte at a time so no command after the name is taken from ConsoleUI
+     * @param out connection output
+     * @return name reserved for this connection, null if the player left or gave no usable name
+     * @throws IOException if the connection fails
+     */
+    private String claimName(InputStream in, OutputStream out) throws IOException {
+        for (int attempt = 0; attempt < MAX_NAME_ATTEMPTS; attempt++) {
+            write(out, "Enter your name (letters, digits, - and _): ");
+            String name = readName(in);
+            if (name == null) {
+                return null;
+            }
+            if (!NAME_PATTERN.matcher(name).matches()) {
+                write(out, "Names can only use letters, digits, - and _ (up to 32)\r\n");
+            } else if (!playing.add(name)) {
+                write(out, name + " is already playing\r\n");
+            } else {
+                return name;
+            }
+        }
+        write(out, "Goodbye!\r\n");
+        return null;
+    }
+
+    /**
+     * Reads a name line, one byte at a time
+     *
+     * @param in connection input
+     * @return line without its line break (longer lines are cut short), null if the connection closed
+     * @throws IOException if reading fails
+     */
+    private static String readName(InputStream in) throws IOException {
+        StringBuilder name = new StringBuilder(32);
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                return null;
+            }
+            if (b != '\r' && name.length() <= 32) {
+                name.append((char) b);
+            }
+        }
+        return name.toString().trim().toLowerCase(Locale.ROOT); // one save per name on any file system
+    }
+
+    /**
+     * Writes text to a connection
+     *
+     * @param out connection output
+     * @param text text to write
+     * @throws IOException if writing fails
+     */
+    private static void write(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * Closes a connection, ignoring errors
+     * @param socket connection
+     */
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+    }
+}
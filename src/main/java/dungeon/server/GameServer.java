@@ -0,0 +1,441 @@
+package dungeon.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dungeon.engine.CellType;
+import dungeon.engine.Direction;
+import dungeon.engine.GameConfig;
+import dungeon.engine.GameEngine;
+import dungeon.engine.GameHistory;
+import dungeon.engine.MoveResult;
+import dungeon.engine.Position;
+import dungeon.engine.Score;
+import dungeon.engine.ScoreService;
+import dungeon.engine.SessionManager;
+import dungeon.engine.TileGrid;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local HTTP/JSON API for hosted games (com.sun.net.httpserver, one virtual thread per request)
+ * Handles:
+ * - POST   /sessions?difficulty=N                 new game, 201 with its state
+ * - GET    /sessions/{id}                         player stats and game state
+ * - DELETE /sessions/{id}                         ends a game
+ * - POST   /sessions/{id}/move/{up|down|left|right} moves the player, the move result and new state
+ * - GET    /sessions/{id}/map?view=N              map rows around the player as symbols ('P' = player)
+ * - POST   /sessions/{id}/save, /load              saves or loads the game's save file
+ * - GET    /scores                                 high score list
+ * Responses are compact JSON written by hand (see Json), errors are {"error":"..."} with 400, 404, 405 or 500
+ * Sessions are kept by a SessionManager, so idle games hibernate and revive on their next request
+ */
+public final class GameServer {
+    public static final int DEFAULT_PORT = 8221;
+
+    // map view limits, a view is built per request
+    private static final int DEFAULT_VIEW = 64;
+    private static final int MAX_VIEW = 256;
+
+    private static final String JSON_TYPE = "application/json; charset=utf-8";
+
+    static {
+        // the server writes headers and body separately, with Nagle's algorithm each response then waits
+        // for the client's delayed ACK (about 40 ms), read once when the first server in the process starts
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final SessionManager sessions;
+    private final ScoreService scores;
+
+    /**
+     * Creates a server, not yet accepting requests
+     *
+     * @param address address to bind (port 0 picks a free port)
+     * @param sessions hosted games
+     * @param scores score service the games submit to, read by /scores
+     * @throws IOException if the address cannot be bound
+     */
+    public GameServer(InetSocketAddress address, SessionManager sessions, ScoreService scores) throws IOException {
+        this.sessions = sessions;
+        this.scores = scores;
+        this.server = HttpServer.create(address, 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * Starts accepting requests
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, waits up to a second for requests in progress, then hibernates every live game
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        sessions.hibernateAll();
+    }
+
+    /**
+     * Gets the port the server is bound to
+     * @return port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Runs a server on the loopback address until the process is stopped
+     * Sessions are kept in md_sessions, hibernated past 256 MB of live games and on shutdown
+     *
+     * @param args optional port (default 8221)
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        SessionManager sessions = new SessionManager(Path.of("md_sessions"), GameConfig.DEFAULT, ScoreService.shared(),
+                256L << 20, Integer.MAX_VALUE, 16);
+        sessions.setHistory(GameHistory.shared());
+
+        GameServer server = new GameServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), sessions,
+                ScoreService.shared());
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        server.start();
+        System.out.println("Mini Dungeon server on http://localhost:" + server.getPort() + "/");
+    }
+
+    //------------------------------------------------------------------------------------------- ROUTING
+
+    /**
+     * Routes a request and sends its response, always closing the exchange
+     * Request bodies are not used, the exchange skips them on close so the connection is reused
+     * @param exchange request
+     */
+    private void handle(HttpExchange exchange) {
+        try (exchange) {
+            int status;
+            byte[] body;
+            try {
+                Response response = route(exchange.getRequestMethod(), exchange.getRequestURI().getPath(),
+                        exchange.getRequestURI().getRawQuery());
+                status = response.status;
+                body = response.body;
+            } catch (SessionManager.UnknownSessionException e) {
+                status = 404;
+                body = Json.error(e.getMessage());
+            } catch (BadRequest e) {
+                status = e.status;
+                body = Json.error(e.getMessage());
+            } catch (UncheckedIOException e) {
+                status = 500;
+                body = Json.error(e.getMessage());
+            } catch (RuntimeException e) { // a failure in the game, answered rather than resetting the connection
+                System.err.println("Error handling " + exchange.getRequestMethod() + " "
+                        + exchange.getRequestURI().getPath() + ": " + e);
+                status = 500;
+                body = Json.error("Internal error");
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            // client went away, nothing to answer
+        }
+    }
+
+    /**
+     * Runs a request
+     *
+     * @param method HTTP method
+     * @param path request path
+     * @param query raw query string, null if none
+     * @return response
+     */
+    private Response route(String method, String path, String query) {
+        String[] parts = path.split("/");
+        // parts[0] is the empty string before the leading slash
+        if (parts.length == 2 && parts[1].equals("scores")) {
+            requireMethod(method, "GET");
+            return ok(scoresJson());
+        }
+        if (parts.length < 2 || !parts[1].equals("sessions")) {
+            throw new BadRequest(404, "No such endpoint");
+        }
+
+        if (parts.length == 2) {
+            requireMethod(method, "POST");
+            String id = sessions.create(intParam(query, "difficulty", 3, 0, 10));
+            return new Response(201, sessions.view(id, engine -> stateJson(id, engine)));
+        }
+
+        String id = parts[2];
+        if (parts.length == 3) {
+            if (method.equals("DELETE")) {
+                if (!sessions.end(id)) {
+                    throw new SessionManager.UnknownSessionException("No such session");
+                }
+                return ok(new Json(32).beginObject().field("ended", id).endObject().toBytes());
+            }
+            requireMethod(method, "GET");
+            return ok(sessions.view(id, engine -> stateJson(id, engine)));
+        }
+
+        switch (parts[3]) {
+            case "move" -> {
+                requireMethod(method, "POST");
+                if (parts.length != 5) {
+                    throw new BadRequest(404, "No such endpoint");
+                }
+                Direction direction = direction(parts[4]);
+                return ok(sessions.view(id, engine -> moveJson(id, engine, engine.move(direction))));
+            }
+            case "map" -> {
+                requireMethod(method, "GET");
+                int view = intParam(query, "view", DEFAULT_VIEW, 1, MAX_VIEW);
+                return ok(sessions.view(id, engine -> mapJson(engine, view)));
+            }
+            case "save" -> {
+                requireMethod(method, "POST");
+                String status = sessions.view(id, GameEngine::saveGame);
+                return ok(new Json(64).beginObject().field("status", status).endObject().toBytes());
+            }
+            case "load" -> {
+                requireMethod(method, "POST");
+                return ok(sessions.view(id, engine -> {
+                    boolean loaded = engine.loadGame();
+                    Json json = new Json(256).beginObject().field("loaded", loaded).name("state");
+                    return writeState(json, id, engine).endObject().toBytes();
+                }));
+            }
+            default -> throw new BadRequest(404, "No such endpoint");
+        }
+    }
+
+    //------------------------------------------------------------------------------------------- RESPONSES
+
+    /**
+     * Writes the game state of a session
+     *
+     * @param id session id
+     * @param engine game
+     * @return JSON object
+     */
+    private static byte[] stateJson(String id, GameEngine engine) {
+        return writeState(new Json(256), id, engine).toBytes();
+    }
+
+    /**
+     * Writes a move result and the game state after it
+     *
+     * @param id session id
+     * @param engine game
+     * @param result move result
+     * @return JSON object
+     */
+    private static byte[] moveJson(String id, GameEngine engine, MoveResult result) {
+        Json json = new Json(384).beginObject()
+                .field("outcome", result.getOutcome().name())
+                .field("message", result.getMessage())
+                .field("rangedDamage", result.getRangedDamage())
+                .field("newLevel", result.getNewLevel())
+                .field("win", result.isWin())
+                .field("newHighScore", result.isNewHighScore())
+                .name("state");
+        return writeState(json, id, engine).endObject().toBytes();
+    }
+
+    /**
+     * Writes the game state object
+     *
+     * @param json writer
+     * @param id session id
+     * @param engine game
+     * @return the writer
+     */
+    private static Json writeState(Json json, String id, GameEngine engine) {
+        Position position = engine.getPlayer().getPosition();
+        json.beginObject()
+                .field("id", id)
+                .field("level", engine.getLevel())
+                .field("difficulty", engine.getDifficulty())
+                .field("seed", Long.toString(engine.getSeed())) // 64 bits do not fit a JSON number for most clients
+                .field("size", engine.getSize())
+                .field("hp", engine.getPlayer().getHp())
+                .field("steps", engine.getPlayer().getSteps())
+                .field("maxSteps", engine.getConfig().getMaxSteps())
+                .field("score", engine.getPlayer().getScore())
+                .field("x", position.getX())
+                .field("y", position.getY())
+                .field("gameOver", engine.isGameOver())
+                .field("deathType", engine.getDeathType());
+        double beaten = engine.getPercentBeaten();
+        if (!Double.isNaN(beaten)) {
+            json.name("percentBeaten").value(beaten);
+        }
+        return json.endObject();
+    }
+
+    /**
+     * Writes a window of the map centred on the player
+     *
+     * @param engine game
+     * @param view window size, cut to the map size
+     * @return JSON object with the window origin and its rows
+     */
+    private static byte[] mapJson(GameEngine engine, int view) {
+        TileGrid tiles = engine.getTiles();
+        int size = tiles.getSize();
+        int width = Math.min(view, size);
+        Position position = engine.getPlayer().getPosition();
+        int startX = TileGrid.viewStart(position.getX(), size, width);
+        int startY = TileGrid.viewStart(position.getY(), size, width);
+
+        Json json = new Json(64 + width * (width + 3)).beginObject()
+                .field("x", startX)
+                .field("y", startY)
+                .field("size", size)
+                .name("rows").beginArray();
+        byte[] codes = new byte[width];
+        char[] row = new char[width];
+        for (int y = startY; y < startY + width; y++) {
+            tiles.copyRow(y, startX, codes, width);
+            for (int i = 0; i < width; i++) {
+                row[i] = CellType.fromCode(codes[i]).symbol();
+            }
+            if (y == position.getY()) {
+                row[position.getX() - startX] = 'P';
+            }
+            json.value(new String(row));
+        }
+        return json.endArray().endObject().toBytes();
+    }
+
+    /**
+     * Writes the high score list
+     * @return JSON object with the entries in rank order
+     */
+    private byte[] scoresJson() {
+        ScoreService.Snapshot snapshot = scores.snapshot();
+        Json json = new Json(32 + snapshot.size() * 96).beginObject().name("scores").beginArray();
+        for (int i = 0; i < snapshot.size(); i++) {
+            Score.ScoreEntry entry = snapshot.get(i);
+            json.beginObject()
+                    .field("rank", i + 1)
+                    .field("score", entry.getScore())
+                    .field("difficulty", entry.getDifficulty())
+                    .field("date", entry.getDate())
+                    .field("time", entry.getEpochMillis())
+                    .endObject();
+        }
+        return json.endArray().endObject().toBytes();
+    }
+
+    //------------------------------------------------------------------------------------------- HELPERS
+
+    /**
+     * Parses a direction path segment
+     *
+     * @param name up, down, left or right
+     * @return direction
+     */
+    private static Direction direction(String name) {
+        return switch (name) {
+            case "up" -> Direction.UP;
+            case "down" -> Direction.DOWN;
+            case "left" -> Direction.LEFT;
+            case "right" -> Direction.RIGHT;
+            default -> throw new BadRequest(400, "Direction must be up, down, left or right");
+        };
+    }
+
+    /**
+     * Reads an integer query parameter
+     *
+     * @param query raw query string, null if none
+     * @param name parameter name
+     * @param fallback value when the parameter is missing
+     * @param min lowest value allowed
+     * @param max highest value allowed
+     * @return parameter value
+     */
+    private static int intParam(String query, String name, int fallback, int min, int max) {
+        if (query == null) {
+            return fallback;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals == name.length() && pair.startsWith(name)) {
+                try {
+                    int value = Integer.parseInt(pair.substring(equals + 1));
+                    if (value >= min && value <= max) {
+                        return value;
+                    }
+                } catch (NumberFormatException e) {
+                    // reported below
+                }
+                throw new BadRequest(400, name + " must be a number from " + min + " to " + max);
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * Checks the request method
+     *
+     * @param method HTTP method
+     * @param expected method the endpoint takes
+     */
+    private static void requireMethod(String method, String expected) {
+        if (!method.equals(expected)) {
+            throw new BadRequest(405, "Method must be " + expected);
+        }
+    }
+
+    /**
+     * Creates a 200 response
+     *
+     * @param body JSON body
+     * @return response
+     */
+    private static Response ok(byte[] body) {
+        return new Response(200, body);
+    }
+
+    /**
+     * Status and body of a response
+     */
+    private record Response(int status, byte[] body) {
+    }
+
+    /**
+     * Request the server refuses, with the status to answer with
+     */
+    private static final class BadRequest extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        BadRequest(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package dungeon.server;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact JSON writer for server responses, written by hand without reflection
+ * Values follow each other in call order, commas are added between members and elements
+ * Not thread-safe, one writer per response
+ */
+final class Json {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final StringBuilder out;
+    private boolean comma; // a value was written at this level, the next one needs a comma
+
+    /**
+     * Creates a writer
+     * @param capacity expected length in characters
+     */
+    Json(int capacity) {
+        this.out = new StringBuilder(capacity);
+    }
+
+    /**
+     * Starts an object
+     * @return this writer
+     */
+    Json beginObject() {
+        separate();
+        out.append('{');
+        comma = false;
+        return this;
+    }
+
+    /**
+     * Ends an object
+     * @return this writer
+     */
+    Json endObject() {
+        out.append('}');
+        comma = true;
+        return this;
+    }
+
+    /**
+     * Starts an array
+     * @return this writer
+     */
+    Json beginArray() {
+        separate();
+        out.append('[');
+        comma = false;
+        return this;
+    }
+
+    /**
+     * Ends an array
+     * @return this writer
+     */
+    Json endArray() {
+        out.append(']');
+        comma = true;
+        return this;
+    }
+
+    /**
+     * Writes a member name, followed by its value
+     *
+     * @param name member name
+     * @return this writer
+     */
+    Json name(String name) {
+        separate();
+        string(name);
+        out.append(':');
+        comma = false;
+        return this;
+    }
+
+    /**
+     * Writes a string value
+     *
+     * @param value string, null for null
+     * @return this writer
+     */
+    Json value(String value) {
+        separate();
+        if (value == null) {
+            out.append("null");
+        } else {
+            string(value);
+        }
+        comma = true;
+        return this;
+    }
+
+    /**
+     * Writes a number value
+     *
+     * @param value number
+     * @return this writer
+     */
+    Json value(long value) {
+        separate();
+        out.append(value);
+        comma = true;
+        return this;
+    }
+
+    /**
+     * Writes a number value, NaN and infinities as null
+     *
+     * @param value number
+     * @return this writer
+     */
+    Json value(double value) {
+        separate();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.append("null");
+        } else {
+            out.append(value);
+        }
+        comma = true;
+        return this;
+    }
+
+    /**
+     * Writes a boolean value
+     *
+     * @param value boolean
+     * @return this writer
+     */
+    Json value(boolean value) {
+        separate();
+        out.append(value);
+        comma = true;
+        return this;
+    }
+
+    /**
+     * Writes a string member
+     *
+     * @param name member name
+     * @param value string, null for null
+     * @return this writer
+     */
+    Json field(String name, String value) {
+        return name(name).value(value);
+    }
+
+    /**
+     * Writes a number member
+     *
+     * @param name member name
+     * @param value number
+     * @return this writer
+     */
+    Json field(String name, long value) {
+        return name(name).value(value);
+    }
+
+    /**
+     * Writes a boolean member
+     *
+     * @param name member name
+     * @param value boolean
+     * @return this writer
+     */
+    Json field(String name, boolean value) {
+        return name(name).value(value);
+    }
+
+    /**
+     * Gets the written JSON
+     * @return UTF-8 bytes
+     */
+    byte[] toBytes() {
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    /**
+     * Adds a comma if a value came before at this level
+     */
+    private void separate() {
+        if (comma) {
+            out.append(',');
+        }
+    }
+
+    /**
+     * Writes a quoted, escaped string
+     * @param value string
+     */
+    private void string(String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Writes a JSON error body
+     *
+     * @param message error message
+     * @return UTF-8 bytes
+     */
+    static byte[] error(String message) {
+        return new Json(64).beginObject().field("error", message).endObject().toBytes();
+    }
+}
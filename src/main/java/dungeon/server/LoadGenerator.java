@@ -0,0 +1,328 @@
+package dungeon.server;
+
+import dungeon.engine.GameConfig;
+import dungeon.engine.Score;
+import dungeon.engine.ScoreService;
+import dungeon.engine.SessionManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * Load generator for the game server: each worker (a virtual thread on its own keep-alive connection) starts a game
+ * and sends moves back to back, starting a new game whenever one ends, then reports moves per second and latency
+ * percentiles
+ * Requests are written by hand over a socket, so the generator costs little next to the server it measures
+ * Run against a running server with: LoadGenerator localhost:8221 [workers] [seconds]
+ * or against a server in the same process with: LoadGenerator embedded [workers] [seconds]
+ * (sessions and scores in a temp directory, removed after)
+ */
+public final class LoadGenerator {
+    private static final String[] DIRECTIONS = {"up", "down", "left", "right"};
+
+    // latencies kept per worker, the most recent ones once a worker has sent more moves
+    private static final int SAMPLE_MASK = (1 << 16) - 1;
+
+    private LoadGenerator() {
+    }
+
+    /**
+     * Result of a load run
+     *
+     * @param moves moves answered with 200
+     * @param errors requests that failed or were answered with an error status
+     * @param seconds length of the run
+     * @param p50Micros median move latency in microseconds
+     * @param p99Micros 99th percentile move latency in microseconds
+     */
+    public record Result(long moves, long errors, double seconds, long p50Micros, long p99Micros) {
+        /**
+         * Gets the move throughput
+         * @return moves per second
+         */
+        public double movesPerSecond() {
+            return moves / seconds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d moves in %.1fs: %.0f moves/s, p50 %d us, p99 %d us, %d errors",
+                    moves, seconds, movesPerSecond(), p50Micros, p99Micros, errors);
+        }
+    }
+
+    /**
+     * Sends moves to a server from several workers for a time
+     *
+     * @param server server address
+     * @param workers concurrent games, one connection each
+     * @param duration how long to send moves for
+     * @return moves, errors and latencies
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public static Result run(InetSocketAddress server, int workers, Duration duration) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+
+        Worker[] running = new Worker[workers];
+        List<Thread> threads = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            Worker worker = new Worker(server, deadline);
+            running[i] = worker;
+            threads.add(Thread.ofVirtual().name("load-", i).start(worker));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long moves = 0;
+        long errors = 0;
+        int sampleCount = 0;
+        for (Worker worker : running) {
+            moves += worker.moves;
+            errors += worker.errors;
+            sampleCount += worker.sampleCount();
+        }
+        long[] samples = new long[sampleCount];
+        int offset = 0;
+        for (Worker worker : running) {
+            System.arraycopy(worker.samples, 0, samples, offset, worker.sampleCount());
+            offset += worker.sampleCount();
+        }
+        Arrays.sort(samples);
+        return new Result(moves, errors, seconds, percentile(samples, 0.50), percentile(samples, 0.99));
+    }
+
+    /**
+     * Runs a load test from the command line
+     *
+     * @param args host:port or embedded, then optional workers (default 64) and seconds (default 10)
+     * @throws Exception if the embedded server cannot start or the run is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        String target = args.length > 0 ? args[0] : "embedded";
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        if (!target.equals("embedded")) {
+            int colon = target.lastIndexOf(':');
+            InetSocketAddress server = colon < 0
+                    ? new InetSocketAddress(target, GameServer.DEFAULT_PORT)
+                    : new InetSocketAddress(target.substring(0, colon), Integer.parseInt(target.substring(colon + 1)));
+            System.out.println(run(server, workers, Duration.ofSeconds(seconds)));
+            return;
+        }
+
+        Path dir = Files.createTempDirectory("md-load");
+        ScoreService scores = new ScoreService(new Score(dir.resolve("scores.dat").toString()));
+        SessionManager sessions = new SessionManager(dir.resolve("sessions"), GameConfig.DEFAULT, scores,
+                256L << 20, Integer.MAX_VALUE, 16);
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        GameServer server = new GameServer(new InetSocketAddress(loopback, 0), sessions, scores);
+        server.start();
+        try {
+            System.out.println(run(new InetSocketAddress(loopback, server.getPort()), workers,
+                    Duration.ofSeconds(seconds)));
+        } finally {
+            server.stop();
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets a percentile of sorted samples
+     *
+     * @param sorted samples in ascending order (nanoseconds)
+     * @param fraction percentile as a fraction
+     * @return percentile in microseconds, 0 without samples
+     */
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))] / 1000;
+    }
+
+    /**
+     * One simulated player on its own connection, moving at random until the deadline
+     */
+    private static final class Worker implements Runnable {
+        private final InetSocketAddress server;
+        private final long deadline;
+        private final long[] samples = new long[SAMPLE_MASK + 1];
+        private long moves;
+        private long errors;
+
+        // connection, opened again after an error
+        private Socket socket;
+        private OutputStream out;
+        private InputStream in;
+        private int status; // status of the last response
+
+        Worker(InetSocketAddress server, long deadline) {
+            this.server = server;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            String session = null;
+            while (System.nanoTime() < deadline) {
+                try {
+                    if (socket == null) {
+                        connect();
+                    }
+                    if (session == null) {
+                        session = create();
+                        continue;
+                    }
+
+                    long start = System.nanoTime();
+                    String body = send("POST", "/sessions/" + session + "/move/" + DIRECTIONS[random.nextInt(4)]);
+                    long elapsed = System.nanoTime() - start;
+                    if (status != 200) {
+                        errors++;
+                        session = null;
+                        continue;
+                    }
+                    samples[(int) (moves & SAMPLE_MASK)] = elapsed;
+                    moves++;
+                    if (body.contains("\"gameOver\":true")) {
+                        send("DELETE", "/sessions/" + session);
+                        session = null;
+                    }
+                } catch (IOException e) {
+                    errors++;
+                    session = null;
+                    disconnect();
+                }
+            }
+            try {
+                if (session != null && socket != null) {
+                    send("DELETE", "/sessions/" + session);
+                }
+            } catch (IOException e) {
+                // left to the server to clean up
+            }
+            disconnect();
+        }
+
+        /**
+         * Starts a game
+         * @return session id, null if the server refused
+         * @throws IOException if the request fails
+         */
+        private String create() throws IOException {
+            String body = send("POST", "/sessions");
+            if (status != 201) {
+                errors++;
+                return null;
+            }
+            int start = body.indexOf("\"id\":\"") + 6;
+            return body.substring(start, body.indexOf('"', start));
+        }
+
+        /**
+         * Sends a request without a body and reads the response
+         *
+         * @param method HTTP method
+         * @param path request path
+         * @return response body
+         * @throws IOException if the connection fails or the response cannot be read
+         */
+        private String send(String method, String path) throws IOException {
+            out.write((method + ' ' + path + " HTTP/1.1\r\nHost: localhost\r\nContent-Length: 0\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            String line = readLine();
+            status = Integer.parseInt(line.substring(9, 12)); // HTTP/1.1 200 OK
+            int length = 0;
+            while (!(line = readLine()).isEmpty()) {
+                if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    length = Integer.parseInt(line.substring(15).trim());
+                }
+            }
+            byte[] body = in.readNBytes(length);
+            if (body.length < length) {
+                throw new EOFException("Connection closed mid response");
+            }
+            return new String(body, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Reads a header line
+         * @return line without the line break
+         * @throws IOException if the connection closes
+         */
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder(64);
+            int c;
+            while ((c = in.read()) != '\n') {
+                if (c < 0) {
+                    throw new EOFException("Connection closed mid response");
+                }
+                if (c != '\r') {
+                    line.append((char) c);
+                }
+            }
+            return line.toString();
+        }
+
+        /**
+         * Opens the connection
+         * @throws IOException if the server cannot be reached
+         */
+        private void connect() throws IOException {
+            socket = new Socket(server.getAddress(), server.getPort());
+            socket.setTcpNoDelay(true);
+            out = new BufferedOutputStream(socket.getOutputStream());
+            in = new BufferedInputStream(socket.getInputStream());
+        }
+
+        /**
+         * Closes the connection, if open
+         */
+        private void disconnect() {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // closing anyway
+                }
+                socket = null;
+            }
+        }
+
+        /**
+         * Gets the number of latencies kept
+         * @return samples in use
+         */
+        private int sampleCount() {
+            return (int) Math.min(moves, samples.length);
+        }
+    }
+}
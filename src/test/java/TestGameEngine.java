@@ -3,12 +3,46 @@ import dungeon.engine.cells.set.Empty;
 import dungeon.engine.cells.set.Wall;
 import dungeon.engine.cells.interactable.Entry;
 import dungeon.engine.cells.interactable.*;
+import dungeon.server.ConsoleServer;
+import dungeon.server.GameServer;
+import dungeon.server.LoadGenerator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -24,6 +58,7 @@ import static org.junit.jupiter.api.Assertions.*;
  * - Game over conditions
  * - Score handling
  * - Save / load functionality
+ * - Hosted sessions, the HTTP server and the console server
  */
 public class TestGameEngine {
     private GameEngine engine;
@@ -56,45 +91,35 @@ public class TestGameEngine {
      */
     private void createControl(GameEngine engine) {
         Level level = engine.getCurrentLevel();
-        Cell[][] map = engine.getMap();
 
         for (int y = 0; y < 10; y++) {
             for (int x = 0; x < 10; x++) {
                 if (x == 0 || x == 9 || y == 0 || y == 9) {
-                    map[y][x] = new Wall();
-                    map[y][x].cellSetPos();
+                    level.setCell(new Position(x, y), new Wall());
                 } else {
-                    map[y][x] = new Empty();
-                    map[y][x].cellSetPos();
+                    level.setCell(new Position(x, y), new Empty());
                 }
             }
         }
 
+        // moving the ladder into a corner, away from the tiles walked by tests
+        level.setLadderPos(new Position(8, 8));
+
         // placing cells at known locations
-        map[8][1] = new Entry();// Entry at bottom left
-        map[8][1].cellSetPos();
+        level.setCell(new Position(1, 8), new Entry()); // Entry at bottom left
 
-        map[7][1] = new Gold(); // Gold above entry
-        map[7][1].cellSetPos();
+        level.setCell(new Position(1, 7), new Gold()); // Gold above entry
 
-        map[6][1] = new Trap(); // Trap above gold
-        map[6][1].cellSetPos();
+        level.setCell(new Position(1, 6), new Trap()); // Trap above gold
 
-        map[5][1] = new MeleeMutant(); // Melee Mutant above trap
-        map[5][1].cellSetPos();
+        level.setCell(new Position(1, 5), new MeleeMutant()); // Melee Mutant above trap
 
-        map[5][2] = new HealthPotion(); // Health potion to the right of the melee mutant
-        map[5][2].cellSetPos();
+        level.setCell(new Position(2, 5), new HealthPotion()); // Health potion to the right of the melee mutant
 
-        map[5][5] = new RangedMutant(); // Ranged Mutant three cells right of the health potion
-        map[5][5].cellSetPos();
-        // pos for attack calculations
-        if (map[5][5] instanceof RangedMutant rangedMutant) {
-            rangedMutant.setPosition(5, 5);
-        }
+        // Ranged Mutant three cells right of the health potion, with pos for attack calculations
+        level.setCell(new Position(5, 5), new RangedMutant(5, 5));
 
-        map[5][6] = new Ladder(); // Ladder to the right of the ranged mutant
-        map[5][6].cellSetPos();
+        level.setCell(new Position(6, 5), new Ladder()); // Ladder to the right of the ranged mutant
 
         // resetting player pos to entry
         engine.getPlayer().startPos(1, 8);
@@ -211,6 +236,92 @@ public class TestGameEngine {
         assertEquals(oldPos.getY(), newPos.getY());
     }
 
+    /**
+     * Tests direction-based movement matches the wrapper methods
+     */
+    @Test
+    void testDirectionMove() {
+        Position start = new Position(controlEngine.getPlayer().getPosition());
+
+        // moving up onto gold with the direction API
+        MoveResult result = controlEngine.move(Direction.UP);
+        assertTrue(result.getMessage().startsWith("Moved up one step."), "Direction move should report the step");
+        assertEquals(start.getY() - 1, controlEngine.getPlayer().getPosition().getY());
+
+        // moving into the left wall
+        result = controlEngine.move(Direction.LEFT);
+        assertEquals("Moved left hit a wall.", result.getMessage(), "Wall collision should be reported");
+        assertEquals(start.getX(), controlEngine.getPlayer().getPosition().getX(), "Player should not move into a wall");
+    }
+
+    /**
+     * Tests move result outcome codes and rendered messages
+     */
+    @Test
+    void testMoveResult() {
+        // gold interaction
+        MoveResult result = controlEngine.move(Direction.UP);
+        assertEquals(MoveResult.Outcome.MOVED, result.getOutcome(), "Gold pickup should be a regular move");
+        assertEquals(CellType.GOLD, result.getInteracted(), "Interaction type should be gold");
+        assertEquals("Moved up one step. You found some gold! Score increased by 2.", result.getMessage());
+
+        // wall collision
+        result = controlEngine.move(Direction.LEFT);
+        assertTrue(result.isBlocked(), "Wall collision should be blocked");
+        assertEquals(MoveResult.Outcome.BLOCKED, result.getOutcome());
+
+        // level change via ladder
+        controlEngine.getPlayer().startPos(5, 5);
+        result = controlEngine.move(Direction.RIGHT);
+        assertEquals(MoveResult.Outcome.LEVEL_CHANGE, result.getOutcome(), "Ladder should change level");
+        assertEquals(2, result.getNewLevel(), "New level should be 2");
+        assertTrue(result.getMessage().contains("level 2"), "Message should mention the new level");
+
+        // death by steps
+        GameEngine stepsEngine = new GameEngine(0);
+        createWalkMap(stepsEngine);
+        stepsEngine.getPlayer().startPos(5, 5);
+        for (int i = 0; i < 99; i++) {
+            stepsEngine.move(i % 2 == 0 ? Direction.LEFT : Direction.RIGHT);
+        }
+        result = stepsEngine.move(Direction.LEFT);
+        assertEquals(MoveResult.Outcome.DEATH, result.getOutcome(), "Final step should end the game");
+        assertEquals(1, result.getDeathType(), "Death type should be max steps");
+    }
+
+    /**
+     * Tests plain moves (no interaction or damage) allocate nothing in steady state
+     */
+    @Test
+    void testMoveAllocationFree() {
+        GameEngine walkEngine = new GameEngine(0);
+        createWalkMap(walkEngine);
+        walkEngine.getPlayer().startPos(5, 5);
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+
+        // warming up the move path
+        for (int i = 0; i < 20_000; i++) {
+            walkEngine.move(Direction.LEFT);
+            walkEngine.move(Direction.RIGHT);
+            walkEngine.move(Direction.UP);
+            walkEngine.move(Direction.DOWN);
+        }
+
+        int moves = 200_000;
+        long start = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < moves / 2; i++) {
+            walkEngine.move(Direction.UP);
+            walkEngine.move(Direction.DOWN);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - start;
+
+        // any per-move object would cost at least 16 bytes per move, one-off JVM noise stays far below 1 byte per move
+        assertTrue(allocated < moves, "Plain moves should not allocate, allocated " + allocated + " bytes over " + moves + " moves");
+    }
+
     /**
      * Tests step incrementation
      */
@@ -405,8 +516,7 @@ public class TestGameEngine {
         controlEngine.getPlayer().setHp(8);
         controlEngine.moveLeft(); // moving away from cell
 
-        controlEngine.getMap()[5][2] = new HealthPotion(); // placing health potion
-        controlEngine.getMap()[5][2].cellSetPos();
+        controlEngine.getCurrentLevel().setCell(new Position(2, 5), new HealthPotion()); // placing health potion
 
         controlEngine.moveRight(); // moving to health potion
         assertEquals(10, controlEngine.getPlayer().getHp(), "HP should be capped at 10");
@@ -500,6 +610,54 @@ public class TestGameEngine {
         assertTrue(result.contains("win"), "Should show win message");
     }
 
+    /**
+     * Tests threat map range checks match a full map scan under fixed random generators
+     * Includes mutant removal part way through to verify incremental threat updates
+     */
+    @Test
+    void testThreatMap() {
+        Level scanLevel = new Level(1, 0, 10, new Random(1));
+        Level threatLevel = new Level(1, 0, 10, new Random(1));
+        int[][] mutants = {{2, 2}, {3, 3}, {7, 2}, {5, 6}, {8, 8}};
+
+        // identical mutants with identically seeded attack rolls on both levels
+        for (int i = 0; i < mutants.length; i++) {
+            int x = mutants[i][0];
+            int y = mutants[i][1];
+            scanLevel.setCell(new Position(x, y), new RangedMutant(x, y, new Random(i)));
+            threatLevel.setCell(new Position(x, y), new RangedMutant(x, y, new Random(i)));
+        }
+
+        Player scanPlayer = new Player(10, 100);
+        Player threatPlayer = new Player(10, 100);
+
+        for (int pass = 0; pass < 2; pass++) {
+            for (int y = 1; y < 9; y++) {
+                for (int x = 1; x < 9; x++) {
+                    scanPlayer.startPos(x, y);
+                    threatPlayer.startPos(x, y);
+
+                    // reference: checking every tile for ranged mutants
+                    int expected = 0;
+                    TileGrid tiles = scanLevel.getTiles();
+                    for (int index = tiles.nextIndexOf(CellType.RANGED_MUTANT, 0); index >= 0;
+                         index = tiles.nextIndexOf(CellType.RANGED_MUTANT, index + 1)) {
+                        expected += ((RangedMutant) tiles.getStateful(index)).tryRangedAttack(scanPlayer);
+                    }
+
+                    assertEquals(expected, threatLevel.checkRange(threatPlayer), "Ranged damage should match at " + x + ", " + y);
+                }
+            }
+
+            // defeating a mutant on both levels
+            scanLevel.setCell(new Position(3, 3), Empty.INSTANCE);
+            threatLevel.setCell(new Position(3, 3), Empty.INSTANCE);
+        }
+
+        // no threats remain next to the removed mutant's tile once out of range of all others
+        assertNull(threatLevel.getTiles().getThreats(3, 5), "Removed mutant should no longer threaten its range");
+    }
+
     //------------------------------------------------------------------------------------------ GAME MANAGEMENT TESTING
 
     /**
@@ -507,6 +665,11 @@ public class TestGameEngine {
      */
     @Test
     void testGameOver() {
+        // clearing the tile above the player so a random ladder or potion cannot interfere
+        Position position = engine.getPlayer().getPosition();
+        engine.getCurrentLevel().setCell(new Position(position.getX(), position.getY() - 1), Empty.INSTANCE);
+        engine.getCurrentLevel().setLadderPos(new Position(8, 1));
+
         // setting hp to 0 to test player death
         engine.getPlayer().hurt(engine.getPlayer().getHp());
 
@@ -607,8 +770,505 @@ public class TestGameEngine {
             if (testScoreFile.exists()) {
                 testScoreFile.delete();
             }
+            new File(testScorePath + ".sketch").delete();
         }
     }
+
+    /**
+     * Tests high scores are stored as fixed records, updated in place and migrated from serialized files
+     */
+    @Test
+    void testScoreRecords() throws Exception {
+        Path scorePath = Path.of("test_md_records.dat");
+        Files.deleteIfExists(scorePath);
+
+        Score records = new Score(scorePath.toString(), 3);
+        records.addScore(10);
+        records.addScore(15);
+        records.addScore(7);
+        byte[] full = Files.readAllBytes(scorePath);
+        assertEquals(16 + 3 * 32, full.length, "Score file should be a header and one record per slot");
+
+        // rejected scores never touch the file
+        assertFalse(records.addScore(7), "Tie with the lowest entry should not qualify");
+        assertArrayEquals(full, Files.readAllBytes(scorePath), "Rejected score should not change the file");
+
+        // a new high score rewrites only the record of the entry it pushes out
+        assertTrue(records.addScore(20), "Highest score should qualify");
+        byte[] updated = Files.readAllBytes(scorePath);
+        int first = Arrays.mismatch(full, updated);
+        int last = full.length - 1;
+        while (full[last] == updated[last]) {
+            last--;
+        }
+        assertTrue(last - first < 32, "Only one record should change");
+        assertEquals(records.formatScores(), new Score(scorePath.toString(), 3).formatScores(), "Records should load in rank order");
+
+        // serialized score files are migrated
+        ArrayList<Score.ScoreEntry> legacy = new ArrayList<>(List.of(new Score.ScoreEntry(12), new Score.ScoreEntry(30)));
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(scorePath.toString()))) {
+            out.writeObject(legacy);
+        }
+        Score migrated = new Score(scorePath.toString());
+        assertTrue(migrated.formatScores().startsWith("#1 Score: 30"), "Legacy scores should load sorted");
+        assertEquals(16 + 5 * 32, Files.size(scorePath), "Legacy file should be rewritten as records");
+        assertEquals(migrated.formatScores(), new Score(scorePath.toString()).formatScores(), "Migrated scores should reload");
+
+        Files.deleteIfExists(scorePath);
+        Files.deleteIfExists(Path.of(scorePath + ".sketch"));
+        Files.deleteIfExists(Path.of(scorePath + ".sketch.lock"));
+    }
+
+    /**
+     * Tests score entries keep time, difficulty and seed, and version 1 record files are migrated
+     */
+    @Test
+    void testScoreEntryDetails() throws Exception {
+        Path scorePath = Path.of("test_md_entries.dat");
+        Files.deleteIfExists(scorePath);
+
+        long before = System.currentTimeMillis();
+        Score details = new Score(scorePath.toString(), 3);
+        details.addScore(40, 4, 1234L);
+        details.addScore(25);
+        Score.ScoreEntry top = new Score(scorePath.toString(), 3).getEntry(0);
+        assertEquals(40, top.getScore(), "Highest score should rank first");
+        assertEquals(4, top.getDifficulty(), "Difficulty should be stored");
+        assertEquals(1234L, top.getSeed(), "Seed should be stored");
+        assertTrue(top.getEpochMillis() >= before, "Time should be stored as epoch millis");
+        assertEquals(Score.UNKNOWN_DIFFICULTY, details.getEntry(1).getDifficulty(), "Score without details should have no difficulty");
+        assertEquals("#1 Score: 40 Date: " + Score.DATE_FORMAT.format(Instant.ofEpochMilli(top.getEpochMillis())),
+                details.formatScores().lines().findFirst().orElseThrow(), "Date should be formatted when displayed");
+
+        // version 1 records (score and dd/MM/yyyy date) are rewritten as version 3
+        ByteBuffer v1 = ByteBuffer.allocate(16 + 2 * 16)
+                .putInt(0x4D444853).putShort((short) 1).putShort((short) 16).putInt(2).putInt(0);
+        v1.putInt(9).put("01/02/2024".getBytes(StandardCharsets.US_ASCII)).putShort((short) 0);
+        v1.putInt(11).put("05/06/2025".getBytes(StandardCharsets.US_ASCII)).putShort((short) 0);
+        Files.write(scorePath, v1.array());
+        Score migrated = new Score(scorePath.toString(), 2);
+        assertEquals("#1 Score: 11 Date: 05/06/2025\n#2 Score: 9 Date: 01/02/2024", migrated.formatScores(),
+                "Version 1 dates should survive migration");
+        assertEquals(16 + 2 * 32, Files.size(scorePath), "Version 1 file should be rewritten");
+        assertEquals(migrated.formatScores(), new Score(scorePath.toString(), 2).formatScores(), "Migrated scores should reload");
+
+        Files.deleteIfExists(scorePath);
+        Files.deleteIfExists(Path.of(scorePath + ".sketch"));
+        Files.deleteIfExists(Path.of(scorePath + ".sketch.lock"));
+    }
+
+    /**
+     * Tests leaderboard queries by difficulty (pages, ranks, date ranges), page caching and the per difficulty
+     * top scores kept beyond the high score list
+     */
+    @Test
+    void testLeaderboard() throws Exception {
+        Path scorePath = Path.of("test_md_board.dat");
+        Files.deleteIfExists(scorePath);
+
+        // score file with known times: difficulty 2 gets 50, 40, 30 (days 3, 1, 2), difficulty 7 gets 45 and 20
+        long day = 86_400_000L;
+        ByteBuffer file = ByteBuffer.allocate(16 + 5 * 24)
+                .putInt(0x4D444853).putShort((short) 2).putShort((short) 24).putInt(5).putInt(0);
+        file.putInt(40).putInt(2).putLong(day).putLong(1L);
+        file.putInt(45).putInt(7).putLong(day).putLong(2L);
+        file.putInt(30).putInt(2).putLong(2 * day).putLong(3L);
+        file.putInt(50).putInt(2).putLong(3 * day).putLong(4L);
+        file.putInt(20).putInt(7).putLong(day).putLong(6L);
+        Files.write(scorePath, file.array());
+
+        Score score = new Score(scorePath.toString()); // production capacity
+        Leaderboard board = score.getLeaderboard();
+        assertEquals(5, board.getCapacity(), "Leaderboard should keep as many scores per difficulty as the list");
+        assertEquals(Set.of(2, 7), board.difficulties(), "Each difficulty should have an index");
+        assertEquals(3, board.size(2), "Difficulty 2 should hold its own scores");
+        assertEquals(List.of(50, 40), board.top(2, 0, 2).stream().map(Score.ScoreEntry::getScore).toList(), "First page should hold the top scores");
+        assertEquals(30, board.top(2, 1, 2).get(0).getScore(), "Second page should continue the ranking");
+        assertTrue(board.top(2, 2, 2).isEmpty(), "Pages past the end should be empty");
+        assertEquals(2, board.top(7, 0, 10).size(), "Difficulty 7 should not rank against difficulty 2");
+
+        assertEquals(1, board.rank(7, 45), "Only score of a difficulty should rank first");
+        assertEquals(2, board.rank(2, 45), "Rank should count higher scores of the difficulty only");
+        assertEquals(2, board.rank(2, 40), "Equal scores should share a rank");
+
+        assertEquals(40, board.best(2, day, 2 * day).getScore(), "Best of days 1-2 should skip the day 3 score");
+        assertEquals(3L, board.best(2, 2 * day, 2 * day).getSeed(), "Single day range should find its score");
+        assertNull(board.best(2, 4 * day, 5 * day), "Empty range should have no best score");
+
+        // cached pages are kept until an entry lands on or before them
+        String second = board.formatPage(2, 1, 2);
+        assertTrue(second.startsWith("#3 Score: 30 Date: "), "Formatted pages should continue the ranks");
+        assertSame(second, board.formatPage(2, 1, 2), "Unchanged page should come from the cache");
+        String first = board.formatPage(2, 0, 2);
+        assertTrue(score.addScore(35, 2, 5L), "New score should be added");
+        assertSame(first, board.formatPage(2, 0, 2), "Page before the new entry should stay cached");
+        assertEquals("#3 Score: 35", board.formatPage(2, 1, 2).split(" Date")[0], "Page with the new entry should be rebuilt");
+        assertEquals(35, board.best(2, System.currentTimeMillis() - 60_000, Long.MAX_VALUE).getScore(),
+                "Date ranges should include new entries");
+        assertEquals(List.of(45, 20), board.top(7, 0, 5).stream().map(Score.ScoreEntry::getScore).toList(),
+                "Score pushed out of the list by another difficulty should stay on the leaderboard");
+
+        // a busy difficulty fills the list, the others keep their top scores on the leaderboard
+        for (int i = 0; i < 6; i++) {
+            assertTrue(score.addScore(100 + i, 9, i), "Higher score should enter the list");
+        }
+        assertEquals(List.of(105, 104, 103, 102, 101), board.top(9, 0, 10).stream().map(Score.ScoreEntry::getScore).toList(),
+                "Difficulty should keep only its top capacity scores");
+        assertTrue(score.getEntries().stream().allMatch(e -> e.getDifficulty() == 9), "List should hold difficulty 9 only");
+        assertEquals(List.of(50, 40, 35, 30), board.top(2, 0, 10).stream().map(Score.ScoreEntry::getScore).toList(),
+                "Scores pushed out of the list by other difficulties should stay on the leaderboard");
+        assertEquals(45, board.top(7, 0, 1).get(0).getScore(), "Other difficulties should keep their scores");
+
+        // runs too low for the list still rank on their difficulty, through the score service too
+        assertFalse(score.addScore(25, 2, 7L), "Low score should not enter the full list");
+        assertFalse(new ScoreService(score).addScore(60, 2, 8L), "Low score should be rejected by the service");
+        assertEquals(List.of(60, 50, 40, 35, 30), board.top(2, 0, 10).stream().map(Score.ScoreEntry::getScore).toList(),
+                "Accepted runs should rank on their difficulty, keeping the top capacity");
+        assertEquals(2, board.rank(2, 50), "Rank should count the scores kept beyond the list");
+
+        // reading the file again (another game wrote it) adds no duplicates
+        assertTrue(new Score(scorePath.toString()).addScore(106, 9, 9L), "Other game's score should be added");
+        score.saveScores();
+        assertEquals(105, board.top(9, 0, 2).get(1).getScore(), "File entries should be added once");
+        assertEquals(5, board.size(9), "Reloaded entries should stay within capacity");
+
+        Files.deleteIfExists(scorePath);
+        Files.deleteIfExists(Path.of(scorePath + ".sketch"));
+        Files.deleteIfExists(Path.of(scorePath + ".sketch.lock"));
+    }
+
+    /**
+     * Tests games sharing a score file keep each other's scores, within one JVM and across several JVMs
+     */
+    @Test
+    void testSharedScoreFile() throws Exception {
+        Path scorePath = Path.of("test_md_shared.dat");
+        Files.deleteIfExists(scorePath);
+
+        // two instances loaded before either adds a score
+        Score first = new Score(scorePath.toString(), 4);
+        Score second = new Score(scorePath.toString(), 4);
+        assertTrue(first.addScore(10), "First game's score should be added");
+        assertTrue(second.addScore(5), "Second game's score should be added");
+        assertTrue(first.addScore(8), "Score from a stale list should be added");
+        assertEquals("#1 Score: 10\n#2 Score: 8\n#3 Score: 5", new Score(scorePath.toString(), 4).formatScores()
+                .replaceAll(" Date: \\S+", ""), "No game should overwrite another's score");
+        SaveService.shared().flush(); // sketch of the 3 wins above
+        Files.deleteIfExists(scorePath);
+
+        // several JVMs adding distinct scores at the same time, the table holds all of them
+        int processes = 4;
+        int perProcess = 25;
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> writers = new ArrayList<>();
+        for (int p = 0; p < processes; p++) {
+            writers.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), ScoreWriter.class.getName(),
+                    scorePath.toString(), String.valueOf(processes * perProcess), String.valueOf(p * 1000 + 1),
+                    String.valueOf(perProcess)).inheritIO().start());
+        }
+        for (Process writer : writers) {
+            assertTrue(writer.waitFor(60, TimeUnit.SECONDS), "Score writer should finish");
+            assertEquals(0, writer.exitValue(), "Score writer should add every score");
+        }
+
+        Score shared = new Score(scorePath.toString(), processes * perProcess);
+        assertEquals(processes * perProcess, shared.getEntryCount(), "No score should be lost");
+        Set<Integer> found = new HashSet<>();
+        for (int i = 0; i < shared.getEntryCount(); i++) {
+            found.add(shared.getEntry(i).getScore());
+        }
+        for (int p = 0; p < processes; p++) {
+            for (int i = 0; i < perProcess; i++) {
+                assertTrue(found.contains(p * 1000 + 1 + i), "Score " + (p * 1000 + 1 + i) + " should be kept");
+            }
+        }
+        assertEquals(3 + processes * perProcess, shared.getSketches().snapshot().count(Score.UNKNOWN_DIFFICULTY),
+                "Sketch writes queued by each process should be finished before it exits");
+
+        Files.deleteIfExists(scorePath);
+        Files.deleteIfExists(Path.of(scorePath + ".sketch"));
+        Files.deleteIfExists(Path.of(scorePath + ".sketch.lock"));
+    }
+
+    /**
+     * Tests the shared score service keeps the right top scores under many concurrent submitters and readers
+     */
+    @Test
+    void testScoreServiceConcurrency() throws Exception {
+        Path scorePath = Path.of("test_md_service.dat");
+        Files.deleteIfExists(scorePath);
+
+        int capacity = 20;
+        int threads = 200;
+        int perThread = 50;
+        ScoreService service = new ScoreService(new Score(scorePath.toString(), capacity));
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> readError = new AtomicReference<>();
+
+        // readers never block and always see a sorted list
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            readers.add(Thread.ofPlatform().start(() -> {
+                while (!done.get()) {
+                    ScoreService.Snapshot snapshot = service.snapshot();
+                    for (int i = 1; i < snapshot.size(); i++) {
+                        if (snapshot.get(i - 1).getScore() < snapshot.get(i).getScore()) {
+                            readError.set("Snapshot out of order: " + snapshot);
+                        }
+                    }
+                    if (snapshot.size() > capacity) {
+                        readError.set("Snapshot over capacity: " + snapshot);
+                    }
+                }
+            }));
+        }
+
+        // submitters on virtual threads, every score distinct
+        List<Thread> submitters = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            submitters.add(Thread.ofVirtual().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    service.addScore(i * threads + thread + 1, thread % 11, thread);
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(readError.get(), "Readers should only see valid snapshots");
+
+        // the top scores of every submission, in memory and on disk
+        int total = threads * perThread;
+        ScoreService.Snapshot snapshot = service.snapshot();
+        assertEquals(capacity, snapshot.size(), "List should be full");
+        for (int i = 0; i < capacity; i++) {
+            assertEquals(total - i, snapshot.get(i).getScore(), "Rank " + (i + 1) + " should hold the right score");
+        }
+        assertEquals(service.formatScores(), new Score(scorePath.toString(), capacity).formatScores(), "File should match the service");
+
+        Files.deleteIfExists(scorePath);
+        Files.deleteIfExists(Path.of(scorePath + ".sketch"));
+        Files.deleteIfExists(Path.of(scorePath + ".sketch.lock"));
+    }
+
+    /**
+     * Tests the score sketch gives percentile ranks within its error, merges, encodes and persists across instances
+     */
+    @Test
+    void testScoreSketch() throws Exception {
+        // exact buckets for small scores
+        ScoreSketch small = new ScoreSketch();
+        for (int score = 0; score < 20; score++) {
+            small.add(3, score);
+        }
+        assertEquals(50.0, small.percentBeaten(3, 10), 1e-9, "Small scores should be ranked exactly");
+        assertEquals(0.0, small.percentBeaten(4, 10), "Difficulty without runs should be beaten by nothing");
+        assertEquals(0.0, small.percentBeaten(3, 0), "Lowest score should beat nothing");
+
+        // uniform scores over a wide range stay within the relative bucket width
+        ScoreSketch wide = new ScoreSketch();
+        Random random = new Random(21);
+        int[] values = new int[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1 + random.nextInt(100_000);
+            wide.add(5, values[i]);
+        }
+        Arrays.sort(values);
+        for (int score : new int[]{50, 1_000, 25_000, 50_000, 99_000}) {
+            int below = 0;
+            while (below < values.length && values[below] < score) {
+                below++;
+            }
+            double exact = 100.0 * below / values.length;
+            assertEquals(exact, wide.percentBeaten(5, score), Math.max(0.5, exact * 0.0625),
+                    "Rank of " + score + " should be within the sketch error");
+        }
+
+        // merging sums counts, encoding round-trips
+        ScoreSketch merged = small.copy();
+        merged.merge(wide);
+        assertEquals(20, merged.count(3), "Merged sketch should keep the first difficulty");
+        assertEquals(values.length, merged.count(5), "Merged sketch should keep the second difficulty");
+        ScoreSketch decoded = ScoreSketch.decode(merged.encode());
+        assertEquals(merged.percentBeaten(5, 30_000), decoded.percentBeaten(5, 30_000), "Decoded sketch should rank the same");
+        assertEquals(20, decoded.count(3), "Decoded sketch should keep counts");
+        assertThrows(IOException.class, () -> ScoreSketch.decode(new byte[]{1, 2, 3}), "Invalid data should not decode");
+
+        // wins recorded by two instances on one file, including ones not making the list
+        Path scorePath = Path.of("test_md_sketch.dat");
+        Path sketchPath = Path.of(scorePath + ".sketch");
+        Files.deleteIfExists(scorePath);
+        Files.deleteIfExists(sketchPath);
+
+        Score first = new Score(scorePath.toString(), 2);
+        Score second = new Score(scorePath.toString(), 2);
+        for (int score = 1; score <= 10; score++) {
+            first.addScore(score, 2, 1L);
+            second.addScore(score + 10, 2, 1L);
+        }
+        assertEquals(2, new Score(scorePath.toString(), 2).getEntryCount(), "Only the top scores should be kept");
+        SaveService.shared().flush(); // the sketch is written in the background
+        Score reloaded = new Score(scorePath.toString(), 2);
+        assertEquals(20, reloaded.getSketches().snapshot().count(2), "Every win should be in the sketch file");
+        assertFalse(Files.exists(Path.of(sketchPath + ".tmp")), "Sketch should be replaced through a temp file");
+        assertEquals(50.0, reloaded.percentBeaten(11, 2), 1e-9, "Score should beat the runs of both instances");
+
+        // runs from another host
+        ScoreSketch remote = new ScoreSketch();
+        for (int i = 0; i < 20; i++) {
+            remote.add(2, 1);
+        }
+        reloaded.getSketches().merge(remote);
+        SaveService.shared().flush();
+        assertEquals(40, new Score(scorePath.toString(), 2).getSketches().snapshot().count(2), "Merged runs should be persisted");
+
+        // an unreadable file is replaced with the wins known in memory, not an empty sketch
+        Files.write(sketchPath, new byte[]{1, 2, 3});
+        reloaded.getSketches().record(2, 5);
+        SaveService.shared().flush();
+        assertEquals(41, new Score(scorePath.toString(), 2).getSketches().snapshot().count(2), "Known wins should be kept");
+
+        // engines report the rank of a win only
+        ScoreService service = new ScoreService(new Score(scorePath.toString(), 2));
+        assertEquals(reloaded.percentBeaten(11, 2), service.percentBeaten(11, 2), 1e-9, "Service should rank from the sketch");
+        GameEngine lost = new GameEngine(3, service, testSavePath);
+        assertTrue(Double.isNaN(lost.getPercentBeaten()), "Unfinished game should have no rank");
+
+        Files.deleteIfExists(scorePath);
+        Files.deleteIfExists(sketchPath);
+        Files.deleteIfExists(Path.of(sketchPath + ".lock"));
+    }
+
+    /**
+     * Tests score files on several nodes (local directories) converge through replica files, and merging is
+     * idempotent and commutative
+     */
+    @Test
+    void testScoreReplication() throws Exception {
+        Path root = Files.createTempDirectory("md-nodes");
+        int nodes = 3;
+        Score[] lists = new Score[nodes];
+        Path[] replicas = new Path[nodes];
+        for (int n = 0; n < nodes; n++) {
+            Path dir = Files.createDirectories(root.resolve("node-" + n));
+            lists[n] = new Score(dir.resolve("md_highscores.dat").toString(), 5);
+            replicas[n] = dir.resolve("replica.mdr");
+        }
+
+        // node 1 starts from a copy of node 0's file, so both hold the same entries
+        lists[0].addScore(50, 2, 1L);
+        lists[0].addScore(30, 2, 2L);
+        Files.copy(root.resolve("node-0/md_highscores.dat"), root.resolve("node-1/md_highscores.dat"));
+        lists[1] = new Score(root.resolve("node-1/md_highscores.dat").toString(), 5);
+        assertEquals(lists[0].getEntry(0).getId(), lists[1].getEntry(0).getId(), "Copied entries should keep their ids");
+
+        // equal scores on different nodes are different entries
+        lists[0].addScore(40, 3, 3L);
+        lists[1].addScore(40, 3, 3L);
+        lists[1].addScore(10, 1, 4L);
+        lists[2].addScore(60, 4, 5L);
+        lists[2].addScore(35, 4, 6L);
+        lists[2].addScore(5, 4, 7L);
+        for (int n = 0; n < nodes; n++) {
+            lists[n].exportReplica(replicas[n]);
+        }
+
+        // streaming merge: same output in any order, and merging the output again changes nothing
+        Path merged = root.resolve("merged.mdr");
+        Path reversed = root.resolve("reversed.mdr");
+        assertEquals(5, ScoreReplica.merge(List.of(replicas[0], replicas[1], replicas[2]), merged, 5), "Merge should fill the list");
+        ScoreReplica.merge(List.of(replicas[2], replicas[1], replicas[0]), reversed, 5);
+        assertArrayEquals(Files.readAllBytes(merged), Files.readAllBytes(reversed), "Merge order should not matter");
+        Path again = root.resolve("again.mdr");
+        ScoreReplica.merge(List.of(merged, replicas[0], merged, replicas[2]), again, 5);
+        assertArrayEquals(Files.readAllBytes(merged), Files.readAllBytes(again), "Merging entries twice should change nothing");
+
+        List<Integer> expected = new ArrayList<>();
+        try (ScoreReplica.Reader in = new ScoreReplica.Reader(merged)) {
+            for (Score.ScoreEntry entry = in.next(); entry != null; entry = in.next()) {
+                expected.add(entry.getScore());
+            }
+        }
+        assertEquals(List.of(60, 50, 40, 40, 35), expected, "Merge should keep the best entries once each");
+
+        // every node merges the others' replicas in its own order and ends with the same list
+        for (int n = 0; n < nodes; n++) {
+            for (int k = 1; k < nodes; k++) {
+                lists[n].mergeReplica(replicas[(n + (n % 2 == 0 ? k : nodes - k)) % nodes]);
+            }
+        }
+        for (int n = 0; n < nodes; n++) {
+            List<Long> ids = new ArrayList<>();
+            for (Score.ScoreEntry entry : new Score(root.resolve("node-" + n + "/md_highscores.dat").toString(), 5).getEntries()) {
+                ids.add(entry.getId());
+            }
+            List<Long> mergedIds = new ArrayList<>();
+            try (ScoreReplica.Reader in = new ScoreReplica.Reader(merged)) {
+                for (Score.ScoreEntry entry = in.next(); entry != null; entry = in.next()) {
+                    mergedIds.add(entry.getId());
+                }
+            }
+            assertEquals(mergedIds, ids, "Node " + n + " should converge on the merged list");
+            assertEquals(0, lists[n].mergeReplica(merged), "Merging a known replica should add nothing");
+        }
+
+        // deltas only carry recent entries
+        long now = System.currentTimeMillis();
+        assertEquals(0, lists[0].exportReplica(replicas[0], now + 60_000), "Delta from the future should be empty");
+
+        // large replicas stream through the merge, copies dropped
+        Path bigA = root.resolve("big-a.mdr");
+        Path bigB = root.resolve("big-b.mdr");
+        try (ScoreReplica.Writer a = new ScoreReplica.Writer(bigA); ScoreReplica.Writer b = new ScoreReplica.Writer(bigB)) {
+            for (int i = 200_000; i > 0; i--) {
+                Score.ScoreEntry entry = new Score.ScoreEntry(i, 0L, 1, 0L, i);
+                a.add(entry);
+                if (i % 2 == 0) {
+                    b.add(entry);
+                }
+            }
+            a.commit();
+            b.commit();
+        }
+        assertEquals(200_000, ScoreReplica.merge(List.of(bigA, bigB), merged, Integer.MAX_VALUE), "Copies should be merged once");
+        assertThrows(IOException.class, () -> ScoreReplica.merge(List.of(root.resolve("node-0/md_highscores.dat")), again, 5),
+                "Score files are not replicas");
+
+        try (var files = Files.walk(root)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Score writer process for testSharedScoreFile
+     * Arguments: score file, table size, first score, score count
+     */
+    public static class ScoreWriter {
+        public static void main(String[] args) {
+            Score score = new Score(args[0], Integer.parseInt(args[1]));
+            int first = Integer.parseInt(args[2]);
+            for (int i = 0; i < Integer.parseInt(args[3]); i++) {
+                if (!score.addScore(first + i)) {
+                    System.exit(1);
+                }
+            }
+        }
+    }
+
     //------------------------------------------------------------------------------------- MAP GENERATION TESTING
 
     /**
@@ -677,6 +1337,283 @@ public class TestGameEngine {
         assertEquals(entryPos.getY(), position.getY(), "Player Y incorrect, should be equal to entry Y");
     }
 
+    /**
+     * Tests packed tile storage keeps stateful cells and reduces stateless cells to type codes
+     */
+    @Test
+    void testTileGrid() {
+        TileGrid tiles = controlEngine.getTiles();
+
+        // stateful cells keep the same instance (mutant state survives)
+        Cell mutant = tiles.getCell(1, 5);
+        assertSame(mutant, tiles.getCell(1, 5), "Stateful cell should be stored in the side table");
+
+        // stateless cells are stored as type codes
+        assertEquals(CellType.WALL, tiles.getType(0, 0), "Perimeter should be wall tiles");
+        assertEquals(CellType.GOLD, tiles.getType(1, 7), "Gold tile should be stored as a gold code");
+        assertEquals('G', tiles.getSymbol(1, 7), "Gold symbol should be G");
+
+        // replacing a stateful tile drops the stored cell
+        controlEngine.getCurrentLevel().setCell(new Position(1, 5), new Empty());
+        assertInstanceOf(Empty.class, tiles.getCell(1, 5), "Replaced tile should be empty");
+        assertNull(tiles.getStateful(tiles.index(1, 5)), "Side table entry should be removed");
+    }
+
+    /**
+     * Tests stateless cells are shared and stateful cells are allocated per tile
+     */
+    @Test
+    void testCellRegistry() throws Exception {
+        // stateless cells share one instance
+        assertSame(Wall.INSTANCE, CellType.WALL.cell(), "Wall should use the shared instance");
+        assertSame(controlEngine.getTiles().getCell(0, 0), engine.getTiles().getCell(0, 0), "Walls should be shared between levels");
+
+        // stateful cells are new instances
+        assertNotSame(CellType.MELEE_MUTANT.cell(), CellType.MELEE_MUTANT.cell(), "Mutants should be allocated per tile");
+
+        // deserialization resolves to the shared instance
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(Gold.INSTANCE);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertSame(Gold.INSTANCE, in.readObject(), "Deserialized gold should resolve to the shared instance");
+        }
+    }
+
+    /**
+     * Tests game configuration for hp, steps, map size and spawn counts
+     */
+    @Test
+    void testGameConfig() {
+        GameConfig config = GameConfig.DEFAULT.withMapSize(12).withMaxHp(20).withMaxSteps(50).withSpawns(1, 0, 0, 0, 2);
+        GameEngine configEngine = new GameEngine(3, new Score("test_md_scores.dat"), testSavePath, config);
+
+        assertEquals(12, configEngine.getSize(), "Map size should come from config");
+        assertEquals(20, configEngine.getPlayer().getHp(), "Player hp should come from config");
+
+        // counting spawns
+        TileGrid tiles = configEngine.getTiles();
+        int goldCount = 0;
+        int rMutantCount = 0;
+        for (int y = 0; y < 12; y++) {
+            for (int x = 0; x < 12; x++) {
+                if (tiles.getType(x, y) == CellType.GOLD) goldCount++;
+                if (tiles.getType(x, y) == CellType.RANGED_MUTANT) rMutantCount++;
+            }
+        }
+        assertEquals(1, goldCount, "Gold count should come from config");
+        assertEquals(6, rMutantCount, "Ranged mutants should be 2 per difficulty point");
+
+        assertThrows(IllegalArgumentException.class, () -> GameConfig.DEFAULT.withMapSize(GameConfig.MAX_MAP_SIZE + 1));
+    }
+
+    /**
+     * Tests very large maps only allocate the chunks that hold non-empty tiles
+     */
+    @Test
+    void testLargeMap() {
+        int size = GameConfig.MAX_MAP_SIZE;
+        GameConfig config = GameConfig.DEFAULT.withMapSize(size);
+        GameEngine largeEngine = new GameEngine(3, new Score("test_md_scores.dat"), testSavePath, config);
+        TileGrid tiles = largeEngine.getTiles();
+
+        // walls on far edges
+        assertEquals(CellType.WALL, tiles.getType(size - 1, size - 1), "Far corner should be a wall");
+        assertEquals(CellType.WALL, tiles.getType(size / 2, 0), "Top edge should be a wall");
+
+        // only perimeter chunks plus a few item chunks are allocated
+        int chunksPerRow = (size + TileGrid.CHUNK_SIZE - 1) / TileGrid.CHUNK_SIZE;
+        assertTrue(tiles.getAllocatedChunks() < chunksPerRow * 4 + 50, "Mostly empty map should not allocate interior chunks");
+
+        // player starts at entry and can move
+        assertEquals(size - 2, largeEngine.getPlayer().getPosition().getY(), "Player should start at the bottom left entry");
+        largeEngine.move(Direction.RIGHT);
+        assertEquals(1, largeEngine.getPlayer().getSteps(), "Player should move on a large map");
+    }
+
+    /**
+     * Tests bulk row copies and scans across chunk boundaries, and small maps sized to one small chunk
+     */
+    @Test
+    void testChunkedRows() {
+        TileGrid tiles = new TileGrid(150);
+        tiles.setType(63, 5, CellType.GOLD);
+        tiles.setType(64, 5, CellType.TRAP);
+        tiles.setType(149, 140, CellType.GOLD);
+
+        // row copy spanning two chunks plus an unallocated one
+        byte[] row = new byte[100];
+        tiles.copyRow(5, 50, row, 100);
+        assertEquals(CellType.GOLD.code(), row[13], "Gold should be copied from the first chunk");
+        assertEquals(CellType.TRAP.code(), row[14], "Trap should be copied from the second chunk");
+        assertEquals(CellType.EMPTY.code(), row[99], "Unallocated chunk should copy as empty");
+
+        // scans skip to matching tiles in row-major order
+        int first = tiles.nextIndexOf(CellType.GOLD, 0);
+        assertEquals(tiles.index(63, 5), first, "First gold should be found");
+        assertEquals(tiles.index(149, 140), tiles.nextIndexOf(CellType.GOLD, first + 1), "Second gold should be found");
+        assertEquals(-1, tiles.nextIndexOf(CellType.GOLD, tiles.index(149, 140) + 1), "No gold should remain");
+
+        // a 10x10 map fits one 16x16 chunk: header, one chunk slot, 16 + 256 bytes of chunk and the empty maps
+        TileGrid small = new TileGrid(10);
+        small.fillPerimeter(CellType.WALL);
+        small.setType(8, 8, CellType.GOLD);
+        assertEquals(1, small.getAllocatedChunks(), "Small map should use one chunk");
+        assertEquals(16 + 4 + 16 + 16 * 16 + 392, small.estimateBytes(), "Small map chunk should be sized to the map");
+        byte[] smallRow = new byte[10];
+        small.copyRow(8, smallRow);
+        assertEquals(CellType.GOLD.code(), smallRow[8], "Small chunk rows should copy");
+        assertEquals(small.index(8, 8), small.nextIndexOf(CellType.GOLD, 0), "Small chunk should be scanned");
+    }
+
+    /**
+     * Tests the next level is generated in the background and swapped in on the ladder move
+     */
+    @Test
+    void testLevelPreload() throws InterruptedException {
+        LevelPreloader preloader = controlEngine.getPreloader();
+
+        // waiting for the generation started when level 1 was entered
+        for (int i = 0; i < 500 && !preloader.isReady(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(preloader.isReady(), "Next level should be generated in the background");
+
+        // ladder move takes the ready level
+        controlEngine.getPlayer().startPos(5, 5);
+        controlEngine.moveRight();
+        assertEquals(2, controlEngine.getLevel(), "Player should be on level 2");
+        assertEquals(2, controlEngine.getCurrentLevel().getDifficulty(), "Preloaded level should use the new difficulty");
+        assertEquals(1, preloader.getHits(), "Ready level should count as a hit");
+        assertEquals(0, preloader.getMisses(), "No level should have been generated synchronously");
+
+        // a level that was never requested is generated on the calling thread
+        Level level = preloader.take(controlEngine.getSeed(), 2, 5, GameConfig.DEFAULT);
+        assertEquals(5, level.getDifficulty(), "Fallback level should use the requested difficulty");
+        assertEquals(1, preloader.getMisses(), "Fallback generation should count as a miss");
+        assertEquals(0.5, preloader.getHitRate(), 1e-9, "Hit rate should be hits over levels taken");
+    }
+
+    /**
+     * Tests games with the same master seed are identical, including ranged attack rolls
+     */
+    @Test
+    void testSeededGames() {
+        GameEngine first = new GameEngine(5, new Score("test_md_scores.dat"), testSavePath, GameConfig.DEFAULT, 42L);
+        GameEngine second = new GameEngine(5, new Score("test_md_scores.dat"), testSavePath, GameConfig.DEFAULT, 42L);
+        assertArrayEquals(tileCodes(first.getTiles()), tileCodes(second.getTiles()), "Same seed should give the same layout");
+
+        // same moves give the same results and damage
+        Random moves = new Random(1);
+        for (int i = 0; i < 80 && !first.isGameOver(); i++) {
+            Direction direction = Direction.values()[moves.nextInt(4)];
+            assertEquals(first.move(direction).getMessage(), second.move(direction).getMessage(), "Move results should match");
+            assertEquals(first.getPlayer().getHp(), second.getPlayer().getHp(), "Player hp should match");
+        }
+
+        // seeded generation does not depend on the JVM (java.util.Random and fixed seed derivation)
+        Level level = new Level(1, 3, GameConfig.DEFAULT, Seeds.levelSeed(42L, 1));
+        Level again = new Level(1, 3, GameConfig.DEFAULT, Seeds.levelSeed(42L, 1));
+        assertEquals(level.getLadderPos().getX(), again.getLadderPos().getX(), "Ladder x should match");
+        assertEquals(level.getLadderPos().getY(), again.getLadderPos().getY(), "Ladder y should match");
+        assertEquals(2949826092126892291L, Seeds.levelSeed(42L, 1), "Level seed derivation should be fixed");
+
+        Level other = new Level(1, 3, GameConfig.DEFAULT, Seeds.levelSeed(43L, 1));
+        assertFalse(Arrays.equals(tileCodes(level.getTiles()), tileCodes(other.getTiles())), "Different seeds should give different layouts");
+    }
+
+    /**
+     * Tests the level cache hands out independent copies and evicts the least recently used level
+     */
+    @Test
+    void testLevelCache() throws InterruptedException {
+        LevelCache cache = new LevelCache(2, Long.MAX_VALUE);
+        GameConfig config = GameConfig.DEFAULT;
+
+        Level generated = cache.get(1L, 1, 3, config);
+        Level copy = cache.get(1L, 1, 3, config);
+        assertEquals(1, cache.getMisses(), "First lookup should generate");
+        assertEquals(1, cache.getHits(), "Second lookup should hit");
+        assertNotSame(generated, copy, "Each lookup should get its own level");
+        assertArrayEquals(tileCodes(generated.getTiles()), tileCodes(copy.getTiles()), "Copy should match the generated level");
+
+        // playing a copy does not change the cached level
+        Position ladder = copy.getLadderPos();
+        copy.setCell(ladder, Empty.INSTANCE);
+        assertEquals(CellType.LADDER, cache.get(1L, 1, 3, config).getTiles().getType(ladder.getX(), ladder.getY()), "Cached level should be untouched");
+
+        // seed 2 is least recently used when seed 3 is added
+        cache.get(2L, 1, 3, config);
+        cache.get(1L, 1, 3, config);
+        cache.get(3L, 1, 3, config);
+        assertEquals(2, cache.size(), "Cache should stay within its entry limit");
+        long misses = cache.getMisses();
+        cache.get(1L, 1, 3, config);
+        assertEquals(misses, cache.getMisses(), "Recently used level should stay cached");
+        cache.get(2L, 1, 3, config);
+        assertEquals(misses + 1, cache.getMisses(), "Least recently used level should be evicted");
+
+        // key includes difficulty and configuration
+        cache.get(1L, 1, 4, config);
+        cache.get(1L, 1, 3, config.withMapSize(20));
+        assertEquals(misses + 3, cache.getMisses(), "Different difficulty or size should not hit");
+
+        // seeded games share levels through the shared cache, copies keep the mutants' attack generators
+        LevelCache shared = LevelCache.shared();
+        shared.clear();
+        GameEngine seededFirst = new GameEngine(3, new Score("test_md_scores.dat"), testSavePath, config, 99L);
+        GameEngine seededCopy = new GameEngine(3, new Score("test_md_scores.dat"), testSavePath, config, 99L);
+        assertTrue(shared.getHits() > 0, "Same seed should be copied from the cache");
+        assertArrayEquals(SaveCodec.encode(seededFirst), SaveCodec.encode(seededCopy), "Copied game should match the generated one");
+
+        // random-seed games never repeat a level, they skip the cache
+        // (counted once the seeded games' next levels are preloaded, those preloads look up the cache too)
+        for (int i = 0; i < 500 && !(seededFirst.getPreloader().isReady() && seededCopy.getPreloader().isReady()); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(seededFirst.getPreloader().isReady() && seededCopy.getPreloader().isReady(),
+                "Seeded games should preload their next level");
+        long lookups = shared.getHits() + shared.getMisses();
+        int cached = shared.size();
+        GameEngine random = new GameEngine(3, new Score("test_md_scores.dat"), testSavePath);
+        random.getPreloader().take(random.getSeed(), 2, 5, config);
+        assertEquals(lookups, shared.getHits() + shared.getMisses(), "Random-seed games should not look up the cache");
+        assertEquals(cached, shared.size(), "Random-seed games should not evict cached levels");
+    }
+
+    /**
+     * Tests item placement fills every free tile on dense maps and fails cleanly when items do not fit
+     */
+    @Test
+    void testItemPlacement() {
+        // 3x3 interior: entry, ladder and 7 gold fill every tile
+        GameConfig full = GameConfig.DEFAULT.withMapSize(5).withSpawns(7, 0, 0, 0, 0);
+        Level fullLevel = new Level(1, 0, full, new Random(7));
+        TileGrid tiles = fullLevel.getTiles();
+        int gold = 0;
+        for (int y = 1; y <= 3; y++) {
+            for (int x = 1; x <= 3; x++) {
+                assertNotEquals(CellType.EMPTY, tiles.getType(x, y), "Interior tile should be filled");
+                if (tiles.getType(x, y) == CellType.GOLD) gold++;
+            }
+        }
+        assertEquals(7, gold, "All gold should be placed");
+
+        // sparse placement keeps items distinct on a large map
+        GameConfig sparse = GameConfig.DEFAULT.withMapSize(1000).withSpawns(500, 0, 0, 0, 0);
+        TileGrid sparseTiles = new Level(1, 0, sparse, new Random(7)).getTiles();
+        int placed = 0;
+        for (int index = sparseTiles.nextIndexOf(CellType.GOLD, 0); index >= 0; index = sparseTiles.nextIndexOf(CellType.GOLD, index + 1)) {
+            placed++;
+        }
+        assertEquals(500, placed, "Every gold should land on its own tile");
+
+        // one item more than the free tiles
+        GameConfig overfull = GameConfig.DEFAULT.withMapSize(5).withSpawns(8, 0, 0, 0, 0);
+        assertThrows(IllegalStateException.class, () -> new Level(1, 0, overfull, new Random(7)), "Overfull map should fail");
+    }
+
 
     //------------------------------------------------------------------------------------- SAVE/LOAD TESTING
 
@@ -716,6 +1653,393 @@ public class TestGameEngine {
         assertEquals(basePos.getY(), loadEngine.getPlayer().getPosition().getY(), "Player Y position should be preserved on load");
     }
 
+    /**
+     * Tests the binary save format keeps the full game state, including mutant attack rolls
+     */
+    @Test
+    void testSaveCodec() throws Exception {
+        GameEngine saveEngine = new GameEngine(5, new Score("test_md_scores.dat"), testSavePath, GameConfig.DEFAULT, 42L);
+        Random moves = new Random(3);
+        for (int i = 0; i < 10; i++) {
+            saveEngine.move(Direction.values()[moves.nextInt(4)]);
+        }
+
+        byte[] data = SaveCodec.encode(saveEngine);
+        assertTrue(data.length < 512, "Default game should save in a few hundred bytes, was " + data.length);
+
+        GameEngine loadEngine = new GameEngine(0, new Score("test_md_scores.dat"), testSavePath);
+        SaveCodec.decode(data, loadEngine);
+        assertArrayEquals(tileCodes(saveEngine.getTiles()), tileCodes(loadEngine.getTiles()), "Tiles should be restored");
+        assertEquals(saveEngine.getSeed(), loadEngine.getSeed(), "Seed should be restored");
+        assertEquals(saveEngine.getPlayer().getSteps(), loadEngine.getPlayer().getSteps(), "Steps should be restored");
+        assertEquals(saveEngine.getDifficulty(), loadEngine.getDifficulty(), "Difficulty should be restored");
+
+        // both games continue identically, mutant generators were restored mid-sequence
+        for (int i = 0; i < 60 && !saveEngine.isGameOver(); i++) {
+            Direction direction = Direction.values()[moves.nextInt(4)];
+            assertEquals(saveEngine.move(direction).getMessage(), loadEngine.move(direction).getMessage(), "Loaded game should play the same");
+        }
+        assertEquals(saveEngine.getPlayer().getHp(), loadEngine.getPlayer().getHp(), "Hp should match after playing on");
+
+        // corrupted payload and unknown versions are rejected
+        byte[] corrupt = data.clone();
+        corrupt[corrupt.length - 1] ^= 1;
+        assertThrows(IOException.class, () -> SaveCodec.decode(corrupt, loadEngine), "Checksum mismatch should fail");
+        byte[] future = data.clone();
+        future[5] = 99;
+        assertThrows(IOException.class, () -> SaveCodec.decode(future, loadEngine), "Newer versions should fail");
+        assertThrows(IOException.class, () -> SaveCodec.decode(Arrays.copyOf(data, 40), loadEngine), "Truncated saves should fail");
+
+        // version 1 save (64x64 chunks) of the legacy fixture game still loads into a 16x16 chunk
+        byte[] v1;
+        try (InputStream in = TestGameEngine.class.getResourceAsStream("/save_v1.dat")) {
+            assertNotNull(in, "Version 1 save fixture should be on the test class path");
+            v1 = in.readAllBytes();
+        }
+        GameEngine v1Engine = new GameEngine(0, new Score("test_md_scores.dat"), testSavePath);
+        SaveCodec.decode(v1, v1Engine);
+        assertEquals(7, v1Engine.getPlayer().getScore(), "Score should be restored from version 1");
+        assertEquals(2, v1Engine.getPlayer().getPosition().getX(), "Position should be restored from version 1");
+        assertEquals(CellType.LADDER, v1Engine.getTiles().getType(5, 4), "Tiles should be restored from version 1");
+        assertEquals(CellType.RANGED_MUTANT, v1Engine.getTiles().getType(7, 2), "Mutants should be restored from version 1");
+        assertEquals(CellType.WALL, v1Engine.getTiles().getType(9, 9), "Walls should be restored from version 1");
+        assertEquals(CellType.EMPTY, v1Engine.getTiles().getType(1, 1), "Empty tiles should stay empty");
+        GameEngine v2Engine = new GameEngine(0, new Score("test_md_scores.dat"), testSavePath);
+        SaveCodec.decode(SaveCodec.encode(v1Engine), v2Engine);
+        assertArrayEquals(tileCodes(v1Engine.getTiles()), tileCodes(v2Engine.getTiles()), "Saving again should keep the tiles");
+    }
+
+    /**
+     * Tests SeededRandom matches java.util.Random and can resume from a saved state
+     */
+    @Test
+    void testSeededRandom() {
+        Random expected = new Random(99);
+        SeededRandom random = new SeededRandom(99);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(expected.nextInt(1000), random.nextInt(1000), "Sequence should match java.util.Random");
+        }
+        assertEquals(expected.nextLong(), random.nextLong(), "Longs should match java.util.Random");
+
+        SeededRandom resumed = new SeededRandom();
+        resumed.setState(random.getState());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(random.nextBoolean(), resumed.nextBoolean(), "Restored state should continue the sequence");
+        }
+    }
+
+    /**
+     * Tests the game history log rolls over segments, keeps every record and computes aggregates
+     */
+    @Test
+    void testGameHistory() throws Exception {
+        Path historyDir = Files.createTempDirectory("md-history");
+
+        // 2500 games over segments of 1000: every 4th a win, deaths alternate between no hp and max steps
+        GameHistory history = new GameHistory(historyDir, 1000);
+        for (int i = 0; i < 2500; i++) {
+            boolean win = i % 4 == 0;
+            history.append(new GameRecord(win ? 20 : -1, win ? -1 : i % 2, 2, 10 + i % 10, 5, i % 11, i, i));
+        }
+        history.close();
+        assertEquals(3, history.segments().size(), "Full segments should roll over");
+        assertEquals(2500, history.count(), "Every game should be counted");
+
+        HistoryStats stats = history.scan();
+        assertEquals(2500, stats.getGames(), "Scan should cover every segment");
+        assertEquals(0.25, stats.getWinRate(), 1e-9, "Win rate should match the games");
+        assertEquals(14.5, stats.getMeanSteps(), 1e-9, "Mean steps should match the games");
+        assertEquals(20.0, stats.getMeanWinScore(), 1e-9, "Mean winning score should match the games");
+        assertEquals(1250, stats.getDeaths(1), "Max steps deaths should be counted");
+        assertEquals(625, stats.getDeaths(0), "No hp deaths should be counted");
+        assertEquals(2500, stats.getGames(0) + stats.getGames(1) + stats.getGames(2) + stats.getGames(3) + stats.getGames(4)
+                + stats.getGames(5) + stats.getGames(6) + stats.getGames(7) + stats.getGames(8) + stats.getGames(9)
+                + stats.getGames(10), "Games should be counted per difficulty");
+
+        // records come back in order, and a reopened log appends after them
+        List<GameRecord> records = history.records();
+        assertEquals(1234L, records.get(1234).getSeed(), "Records should keep their order across segments");
+        assertEquals(15, records.get(5).getSteps(), "Record fields should survive the round trip");
+        GameHistory reopened = new GameHistory(historyDir, 1000);
+        reopened.append(new GameRecord(30, -1, 2, 40, 9, 5, 7L, 0L));
+        reopened.close();
+        assertEquals(2501, reopened.count(), "Reopened log should append to the last segment");
+        assertEquals(3, reopened.segments().size(), "Last segment should be reused while it has room");
+
+        // a finished engine game is appended once
+        GameEngine engine = new GameEngine(3, new Score("test_md_scores.dat"), testSavePath);
+        createWalkMap(engine);
+        engine.getPlayer().startPos(5, 5);
+        engine.setHistory(reopened);
+        engine.getPlayer().setHp(1);
+        engine.getPlayer().hurt(1);
+        engine.moveRight();
+        int steps = engine.getPlayer().getSteps();
+        engine.moveRight();
+        reopened.close();
+        GameRecord last = reopened.records().get(2501);
+        assertEquals(2502, reopened.count(), "Finished game should be appended once");
+        assertEquals(0, last.getDeathType(), "Death type should be recorded");
+        assertEquals(steps, last.getSteps(), "Steps should be recorded at the end of the game");
+
+        for (Path segment : reopened.segments()) {
+            Files.delete(segment);
+        }
+        Files.delete(historyDir);
+    }
+
+    /**
+     * Tests saves written with Java serialization still load and are rewritten in the binary format, including a
+     * save written by the original classes (src/test/resources/legacy_save.dat)
+     */
+    @Test
+    void testLegacySaveMigration() throws Exception {
+        GameEngine oldEngine = new GameEngine(3, new Score("test_md_scores.dat"), testSavePath);
+        oldEngine.getPlayer().addScore(7);
+        oldEngine.moveRight();
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(testSavePath))) {
+            out.writeObject(oldEngine);
+        }
+
+        GameEngine loadEngine = new GameEngine(0, new Score("test_md_scores.dat"), testSavePath);
+        assertTrue(loadEngine.loadGame(), "Legacy save should load");
+        assertEquals(oldEngine.getPlayer().getScore(), loadEngine.getPlayer().getScore(), "Score should be migrated");
+        assertArrayEquals(tileCodes(oldEngine.getTiles()), tileCodes(loadEngine.getTiles()), "Tiles should be migrated");
+
+        loadEngine.saveGame();
+        byte[] data = Files.readAllBytes(Path.of(testSavePath));
+        assertTrue(SaveCodec.isBinary(data), "Saving again should write the binary format");
+
+        // difficulty 4 game serialized by the original classes after two moves, with 7 gold collected
+        try (InputStream in = TestGameEngine.class.getResourceAsStream("/legacy_save.dat")) {
+            assertNotNull(in, "Legacy save fixture should be on the test class path");
+            Files.write(Path.of(testSavePath), in.readAllBytes());
+        }
+        GameEngine fixtureEngine = new GameEngine(0, new Score("test_md_scores.dat"), testSavePath);
+        assertTrue(fixtureEngine.loadGame(), "Save written by the original classes should load");
+        assertEquals(10, fixtureEngine.getSize(), "Map size should be migrated");
+        assertEquals(1, fixtureEngine.getLevel(), "Level should be migrated");
+        assertEquals(7, fixtureEngine.getPlayer().getScore(), "Score should be migrated");
+        assertEquals(10, fixtureEngine.getPlayer().getHp(), "HP should be migrated");
+        assertEquals(1, fixtureEngine.getPlayer().getSteps(), "Steps should be migrated");
+        assertEquals(2, fixtureEngine.getPlayer().getPosition().getX(), "Position should be migrated");
+        assertEquals(8, fixtureEngine.getPlayer().getPosition().getY(), "Position should be migrated");
+
+        StringBuilder map = new StringBuilder();
+        byte[] row = new byte[10];
+        for (int y = 0; y < 10; y++) {
+            fixtureEngine.getTiles().copyRow(y, row);
+            for (byte code : row) {
+                map.append(CellType.fromCode(code).symbol());
+            }
+            map.append('\n');
+        }
+        assertEquals("""
+                ##########
+                #  RRG MG#
+                # G   HR #
+                #      T #
+                #G  GL   #
+                #   M    #
+                #  R HT  #
+                #      T #
+                #E  T TM #
+                ##########
+                """, map.toString(), "Tiles should be migrated");
+    }
+
+    /**
+     * Tests journaled moves are replayed on load, and snapshots are taken every few moves
+     */
+    @Test
+    void testMoveJournal() throws Exception {
+        Path journalPath = MoveJournal.pathFor(testSavePath);
+        Files.deleteIfExists(journalPath);
+
+        GameEngine saveEngine = new GameEngine(3, new Score("test_md_scores.dat"), testSavePath);
+        createWalkMap(saveEngine);
+        saveEngine.getPlayer().startPos(5, 5);
+        assertEquals("Game saved!", saveEngine.enableJournal(4), "Journaling should save a base snapshot");
+
+        // 4 moves trigger a snapshot, the next 3 are only in the journal (blocked moves are not journaled)
+        Direction[] moves = {Direction.LEFT, Direction.RIGHT, Direction.UP, Direction.DOWN, Direction.RIGHT, Direction.RIGHT, Direction.UP};
+        for (Direction direction : moves) {
+            saveEngine.move(direction);
+        }
+        SaveService.shared().flush(); // snapshots are written in the background
+        assertEquals(16 + 3, Files.size(journalPath), "Journal should hold the moves since the last snapshot");
+        saveEngine.getPlayer().startPos(5, 1);
+        saveEngine.move(Direction.UP); // into the wall
+        assertEquals(16 + 3, Files.size(journalPath), "Blocked moves should not be journaled");
+        saveEngine.getPlayer().startPos(7, 4);
+
+        // crash: nothing closed, the next engine loads snapshot + journal
+        GameEngine loadEngine = new GameEngine(0, new Score("test_md_scores.dat"), testSavePath);
+        assertTrue(loadEngine.loadGame(), "Journaled game should load");
+        assertEquals(7, loadEngine.getPlayer().getSteps(), "Journaled moves should be replayed");
+        assertEquals(7, loadEngine.getPlayer().getPosition().getX(), "Replay should end at the last position (x)");
+        assertEquals(4, loadEngine.getPlayer().getPosition().getY(), "Replay should end at the last position (y)");
+
+        // a journal written for another snapshot is ignored
+        saveEngine.closeJournal();
+        saveEngine.saveGame();
+        GameEngine staleEngine = new GameEngine(0, new Score("test_md_scores.dat"), testSavePath);
+        assertTrue(staleEngine.loadGame(), "Save with a stale journal should load");
+        assertEquals(7, staleEngine.getPlayer().getSteps(), "Stale journal moves should not be replayed again");
+
+        // moves made before the base snapshot is on disk are journaled after it
+        GameEngine asyncEngine = new GameEngine(3, new Score("test_md_scores.dat"), testSavePath);
+        createWalkMap(asyncEngine);
+        asyncEngine.getPlayer().startPos(5, 5);
+        CompletableFuture<String> enabled = asyncEngine.enableJournalAsync(100);
+        asyncEngine.move(Direction.LEFT);
+        asyncEngine.move(Direction.UP);
+        assertEquals("Game saved!", enabled.join(), "Base snapshot should be saved in the background");
+        SaveService.shared().flush();
+        GameEngine asyncLoad = new GameEngine(0, new Score("test_md_scores.dat"), testSavePath);
+        assertTrue(asyncLoad.loadGame(), "Game journaled from an async base should load");
+        assertEquals(2, asyncLoad.getPlayer().getSteps(), "Moves made while the base was written should be replayed");
+        asyncEngine.closeJournal();
+
+        // snapshots queued back to back each keep the moves made after them
+        Path directPath = Path.of("test_md_direct.journal");
+        MoveJournal direct = new MoveJournal(directPath, 100);
+        GameEngine snapshotEngine = new GameEngine(3, new Score("test_md_scores.dat"), testSavePath);
+        byte[] older = SaveCodec.encode(snapshotEngine);
+        snapshotEngine.getPlayer().addScore(1);
+        byte[] newer = SaveCodec.encode(snapshotEngine);
+        for (int i = 0; i < 4; i++) {
+            direct.append(Direction.LEFT);
+        }
+        long olderMark = direct.getMark();
+        direct.append(Direction.UP);
+        direct.append(Direction.UP);
+        long newerMark = direct.getMark(); // taken before the older snapshot is rebased
+        direct.rebase(older, olderMark);
+        direct.rebase(newer, newerMark);
+        direct.append(Direction.RIGHT);
+        direct.rebase(older, olderMark); // older than the base, ignored
+        direct.close();
+        assertEquals(List.of(Direction.RIGHT), Arrays.asList(MoveJournal.read(directPath, newer)),
+                "Newer snapshot should only keep the moves made after it");
+        Files.delete(directPath);
+
+        GameEngine queuedEngine = new GameEngine(3, new Score("test_md_scores.dat"), testSavePath);
+        createWalkMap(queuedEngine);
+        queuedEngine.getPlayer().startPos(5, 5);
+        queuedEngine.enableJournal(2);
+        queuedEngine.move(Direction.LEFT);
+        queuedEngine.move(Direction.UP); // queues a journal snapshot
+        CompletableFuture<String> queuedSave = queuedEngine.saveGameAsync();
+        queuedEngine.move(Direction.RIGHT);
+        assertEquals("Game saved!", queuedSave.join(), "Manual save behind a journal snapshot should be written");
+        SaveService.shared().flush();
+        GameEngine queuedLoad = new GameEngine(0, new Score("test_md_scores.dat"), testSavePath);
+        assertTrue(queuedLoad.loadGame(), "Game saved behind a journal snapshot should load");
+        assertEquals(3, queuedLoad.getPlayer().getSteps(), "Move after the manual save should be replayed once");
+        assertEquals(5, queuedLoad.getPlayer().getPosition().getX(), "Replayed moves should apply to the manual save");
+        queuedEngine.closeJournal();
+
+        // a finished game removes its journal, and the save only if the journal wrote it
+        GameEngine autoEngine = new GameEngine(3, new Score("test_md_scores.dat"), testSavePath);
+        createWalkMap(autoEngine);
+        autoEngine.getPlayer().startPos(5, 5);
+        autoEngine.enableJournal(100);
+        autoEngine.getPlayer().setHp(1);
+        autoEngine.getCurrentLevel().setCell(new Position(4, 5), new Trap());
+        autoEngine.move(Direction.LEFT);
+        assertTrue(autoEngine.isGameOver(), "Trap should end the game");
+        SaveService.shared().flush();
+        assertFalse(Files.exists(journalPath), "Finished game should remove its journal");
+        assertFalse(Files.exists(Path.of(testSavePath)), "Finished game should remove its autosave");
+
+        GameEngine manualEngine = new GameEngine(3, new Score("test_md_scores.dat"), testSavePath);
+        createWalkMap(manualEngine);
+        manualEngine.getPlayer().startPos(5, 5);
+        manualEngine.enableJournal(100);
+        manualEngine.move(Direction.LEFT);
+        assertEquals("Game saved!", manualEngine.saveGame(), "Manual save should be written");
+        manualEngine.getPlayer().setHp(1);
+        manualEngine.getCurrentLevel().setCell(new Position(3, 5), new Trap());
+        manualEngine.move(Direction.LEFT);
+        assertTrue(manualEngine.isGameOver(), "Trap should end the game");
+        SaveService.shared().flush();
+        assertFalse(Files.exists(journalPath), "Finished game should remove its journal");
+        assertTrue(Files.exists(Path.of(testSavePath)), "Finished game should keep a save the player asked for");
+
+        Files.deleteIfExists(journalPath);
+    }
+
+    /**
+     * Tests background saves snapshot the game when requested and replace the file atomically
+     */
+    @Test
+    void testAsyncSave() throws Exception {
+        GameEngine saveEngine = new GameEngine(3, new Score("test_md_scores.dat"), testSavePath);
+        createWalkMap(saveEngine);
+        saveEngine.getPlayer().startPos(5, 5);
+
+        // play continues while saving, the save holds the state it was requested in
+        CompletableFuture<String> saved = saveEngine.saveGameAsync();
+        saveEngine.move(Direction.LEFT);
+        assertEquals("Game saved!", saved.get(5, TimeUnit.SECONDS), "Background save should succeed");
+        assertFalse(Files.exists(Path.of(testSavePath + ".tmp")), "Temp file should be moved into place");
+
+        GameEngine loadEngine = new GameEngine(0, new Score("test_md_scores.dat"), testSavePath);
+        assertTrue(loadEngine.loadGame(), "Background save should load");
+        assertEquals(5, loadEngine.getPlayer().getPosition().getX(), "Save should hold the state when requested");
+        assertEquals(0, loadEngine.getPlayer().getSteps(), "Moves after the request should not be saved");
+
+        // failures are reported through the future
+        GameEngine badEngine = new GameEngine(3, new Score("test_md_scores.dat"), "md_missing_dir/save.dat");
+        assertTrue(badEngine.saveGameAsync().get(5, TimeUnit.SECONDS).startsWith("Error saving game"), "Failed save should report an error");
+    }
+
+    /**
+     * Tests save slots are listed from the index alone and decoded only when loaded
+     */
+    @Test
+    void testSaveSlots() throws Exception {
+        Path directory = Files.createTempDirectory("md-slots");
+        SaveSlots slots = new SaveSlots(directory);
+
+        GameEngine first = new GameEngine(2, new Score("test_md_scores.dat"), testSavePath, GameConfig.DEFAULT, 11L);
+        first.getPlayer().addScore(5);
+        GameEngine second = new GameEngine(6, new Score("test_md_scores.dat"), testSavePath, GameConfig.DEFAULT, 12L);
+        second.getPlayer().hurt(3);
+        assertEquals("Game saved to slot 1!", slots.save(1, first).get(5, TimeUnit.SECONDS), "Slot save should succeed");
+        slots.save(4, second).get(5, TimeUnit.SECONDS);
+
+        // listing reads only the index, even with a slot file gone
+        Files.delete(slots.slotPath(4));
+        SaveSlots reopened = new SaveSlots(directory);
+        List<SaveSlot> listed = reopened.list();
+        assertEquals(2, listed.size(), "Both slots should be listed from the index");
+        assertEquals(1, listed.get(0).getSlot(), "Slots should be listed in order");
+        assertEquals(5, listed.get(0).getScore(), "Index should hold the score");
+        assertEquals(2, listed.get(0).getDifficulty(), "Index should hold the difficulty");
+        assertEquals(second.getPlayer().getHp(), listed.get(1).getHp(), "Index should hold the hp");
+
+        GameEngine loadEngine = new GameEngine(0, new Score("test_md_scores.dat"), testSavePath);
+        assertTrue(reopened.load(1, loadEngine), "Slot should load");
+        assertEquals(11L, loadEngine.getSeed(), "Loaded slot should be the saved game");
+        assertEquals(5, loadEngine.getPlayer().getScore(), "Loaded slot should keep the score");
+        assertFalse(reopened.load(4, loadEngine), "Slot without a save file should fail to load");
+
+        // a corrupt index is rebuilt from the slot files
+        Files.write(reopened.indexPath(), new byte[] {1, 2, 3});
+        assertEquals(1, new SaveSlots(directory).list().size(), "Index should be rebuilt from the remaining slot files");
+        reopened.rebuildIndex();
+        assertEquals(1, reopened.list().size(), "Rebuilt index should drop slots without a save file");
+
+        reopened.delete(1).get(5, TimeUnit.SECONDS);
+        assertTrue(reopened.list().isEmpty(), "Deleted slot should not be listed");
+        assertFalse(Files.exists(reopened.slotPath(1)), "Deleted slot file should be removed");
+
+        Files.deleteIfExists(reopened.indexPath());
+        Files.delete(directory);
+    }
+
     /**
      * Tests graceful invalid load handling
      */
@@ -740,8 +2064,302 @@ public class TestGameEngine {
         assertFalse(loadResult, "Loading a file that doesn't exist should fail");
     }
 
+    /**
+     * Tests sessions are served from the warm pool, hibernated past the limits and revived unchanged
+     */
+    @Test
+    void testSessionManager() throws Exception {
+        Path dir = Files.createTempDirectory("md-sessions");
+        Score scores = new Score(dir.resolve("scores.dat").toString(), 3);
+        SessionManager sessions = new SessionManager(dir, GameConfig.DEFAULT, scores, Long.MAX_VALUE, 3, 2);
+
+        // pooled first levels are the levels a game with the same seed generates
+        sessions.prefill(3);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (sessions.getPoolSize(3) < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, sessions.getPoolSize(3), "Pool should fill in the background");
+        String pooled = sessions.create(3);
+        assertEquals(1, sessions.getPoolHits(), "Session should come from the pool");
+        long seed = sessions.view(pooled, GameEngine::getSeed);
+        GameEngine fresh = new GameEngine(3, scores, dir.resolve("fresh.sav").toString(), GameConfig.DEFAULT, seed);
+        assertArrayEquals(SaveCodec.encode(fresh), sessions.view(pooled, SaveCodec::encode), "Pooled session should match a new game");
+
+        // past the live limit the least recently used sessions are hibernated
+        List<String> ids = new ArrayList<>(List.of(pooled));
+        for (int i = 0; i < 4; i++) {
+            ids.add(sessions.create(3));
+        }
+        assertEquals(3, sessions.getLiveCount(), "Live sessions should stay within the limit");
+        assertEquals(2, sessions.getHibernations(), "Oldest sessions should be hibernated");
+        assertTrue(Files.exists(sessions.sessionPath(ids.get(0))), "Hibernated session should be on disk");
+        assertTrue(sessions.getBytesPerSession() > 0, "Live sessions should have a memory estimate");
+
+        // a hibernated session revives on its next move, unchanged
+        String first = ids.get(0);
+        byte[] before = Files.readAllBytes(sessions.sessionPath(first));
+        assertArrayEquals(before, sessions.view(first, SaveCodec::encode), "Revived session should match its hibernated state");
+        assertEquals(1, sessions.getRevivals(), "Session should be revived once");
+        assertNotNull(sessions.move(first, Direction.UP), "Revived session should move");
+        assertEquals(3, sessions.getLiveCount(), "Reviving should hibernate another session");
+
+        // unknown, invalid and ended sessions
+        assertThrows(SessionManager.UnknownSessionException.class, () -> sessions.move("missing", Direction.UP), "Unknown session should fail");
+        assertThrows(SessionManager.UnknownSessionException.class, () -> sessions.move("../scores", Direction.UP), "Path ids should be rejected");
+        assertTrue(sessions.end(ids.get(1)), "Session should end");
+        assertFalse(sessions.exists(ids.get(1)), "Ended session should be gone");
+        assertFalse(Files.exists(sessions.sessionPath(ids.get(1))), "Ended session file should be deleted");
+
+        // moves from many threads on more sessions than fit in memory
+        SessionManager busy = new SessionManager(dir.resolve("busy"), GameConfig.DEFAULT, scores, Long.MAX_VALUE, 4, 0);
+        List<String> busyIds = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            busyIds.add(busy.create(i % 11));
+        }
+        Direction[] directions = Direction.values();
+        List<Thread> players = new ArrayList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t;
+            players.add(Thread.ofVirtual().start(() -> {
+                try {
+                    for (int i = 0; i < 200; i++) {
+                        busy.move(busyIds.get((offset * 7 + i) % busyIds.size()), directions[(offset + i) % directions.length]);
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }));
+        }
+        for (Thread player : players) {
+            player.join();
+        }
+        assertNull(failure.get(), "Concurrent moves should not fail");
+        assertTrue(busy.getLiveCount() <= 4, "Live sessions should stay within the limit");
+        assertEquals(busy.getLiveCount(), busy.hibernateAll(), "Every live session should hibernate");
+        assertEquals(0, busy.getLiveCount(), "No session should be live");
+        assertEquals(0, busy.getLiveBytes(), "Live memory should return to zero");
+
+        // byte limit, new sessions count at least half a session with its next level preloaded
+        long perSession = sessions.view(ids.get(2), GameEngine::estimateBytes);
+        SessionManager small = new SessionManager(dir.resolve("small"), GameConfig.DEFAULT, scores, perSession * 3 / 2, 100, 0);
+        for (int i = 0; i < 4; i++) {
+            small.create(3);
+        }
+        assertTrue(small.getLiveBytes() <= perSession * 3 / 2, "Live memory should stay within the limit");
+        assertTrue(small.getHibernations() >= 1, "Sessions over the memory limit should be hibernated");
+
+        try (var files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    void testGameServer() throws Exception {
+        Path dir = Files.createTempDirectory("md-server");
+        ScoreService scores = new ScoreService(new Score(dir.resolve("scores.dat").toString(), 3));
+        SessionManager sessions = new SessionManager(dir.resolve("sessions"), GameConfig.DEFAULT, scores, Long.MAX_VALUE, 2, 2);
+        GameServer server = new GameServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), sessions, scores);
+        server.start();
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = "http://localhost:" + server.getPort();
+        try {
+            // new session, its state and map
+            HttpResponse<String> created = send(client, "POST", base + "/sessions?difficulty=4");
+            assertEquals(201, created.statusCode(), "Session should be created");
+            assertEquals("application/json; charset=utf-8", created.headers().firstValue("Content-Type").orElse(""), "Responses should be JSON");
+            String id = jsonString(created.body(), "id");
+            assertTrue(sessions.exists(id), "Session should be hosted");
+            assertTrue(created.body().contains("\"difficulty\":4"), "State should have the difficulty");
+            assertTrue(created.body().contains("\"hp\":10") && created.body().contains("\"steps\":0"), "State should have the player stats");
+            assertEquals(sessions.view(id, engine -> Long.toString(engine.getSeed())), jsonString(created.body(), "seed"), "State should have the seed as a string");
+
+            String map = send(client, "GET", base + "/sessions/" + id + "/map").body();
+            assertEquals(10, map.split("\",\"").length, "Map should have a row per tile row");
+            assertEquals(1, map.chars().filter(c -> c == 'P').count(), "Map should show the player once");
+            assertEquals(4, send(client, "GET", base + "/sessions/" + id + "/map?view=4").body().split("\",\"").length, "Map view should be cut to size");
+
+            // moves match the engine, a hibernated session answers the same
+            String move = send(client, "POST", base + "/sessions/" + id + "/move/up").body();
+            assertTrue(move.startsWith("{\"outcome\":\""), "Move should report its outcome");
+            int steps = sessions.view(id, engine -> engine.getPlayer().getSteps());
+            assertTrue(move.contains("\"steps\":" + steps + ","), "Move should report the new steps");
+            String state = send(client, "GET", base + "/sessions/" + id).body();
+            sessions.hibernate(id);
+            assertEquals(state, send(client, "GET", base + "/sessions/" + id).body(), "Hibernated session should report the same state");
+
+            // save and load through the session's own save file
+            assertTrue(send(client, "POST", base + "/sessions/" + id + "/save").body().contains("Game saved!"), "Game should save");
+            assertTrue(Files.exists(sessions.savePath(id)), "Save should be in the session directory");
+            send(client, "POST", base + "/sessions/" + id + "/move/down");
+            String loaded = send(client, "POST", base + "/sessions/" + id + "/load").body();
+            assertTrue(loaded.startsWith("{\"loaded\":true"), "Game should load");
+            assertTrue(loaded.endsWith(state + "}"), "Loaded game should be back at the saved state");
+
+            // errors
+            assertEquals(404, send(client, "GET", base + "/sessions/missing").statusCode(), "Unknown session should be 404");
+            assertEquals(404, send(client, "GET", base + "/nothing").statusCode(), "Unknown path should be 404");
+            assertEquals(400, send(client, "POST", base + "/sessions/" + id + "/move/north").statusCode(), "Bad direction should be 400");
+            assertEquals(400, send(client, "POST", base + "/sessions?difficulty=11").statusCode(), "Bad difficulty should be 400");
+            assertEquals(405, send(client, "GET", base + "/sessions/" + id + "/move/up").statusCode(), "Wrong method should be 405");
+            assertTrue(send(client, "GET", base + "/sessions/missing").body().startsWith("{\"error\":"), "Errors should be JSON");
+
+            // scores and ending
+            scores.addScore(42, 4, 7L);
+            assertTrue(send(client, "GET", base + "/scores").body().startsWith("{\"scores\":[{\"rank\":1,\"score\":42,\"difficulty\":4"), "Scores should be listed");
+            assertEquals(200, send(client, "DELETE", base + "/sessions/" + id).statusCode(), "Session should end");
+            assertFalse(sessions.exists(id), "Ended session should be gone");
+            assertFalse(Files.exists(sessions.savePath(id)), "Ended session save should be deleted");
+            assertEquals(404, send(client, "DELETE", base + "/sessions/" + id).statusCode(), "Ended session should be 404");
+
+            // load generator against the server
+            LoadGenerator.Result result = LoadGenerator.run(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()), 4, Duration.ofMillis(500));
+            assertTrue(result.moves() > 0, "Load generator should make moves");
+            assertEquals(0, result.errors(), "Load generator should not see errors");
+        } finally {
+            server.stop();
+        }
+
+        try (var files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    void testConsoleServer() throws Exception {
+        Path dir = Files.createTempDirectory("md-console");
+        Score scores = new Score(dir.resolve("scores.dat").toString(), 3);
+
+        // console over streams, output written with the given line separator
+        String savePath = dir.resolve("streams.dat").toString();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new ConsoleUI(new ByteArrayInputStream("3\nu\nh\nq\n".getBytes(StandardCharsets.UTF_8)), output, "\r\n", savePath, scores, null).start();
+        String text = output.toString(StandardCharsets.UTF_8);
+        assertTrue(text.contains("HP: 10\r\n") && text.contains("---Help---") && text.endsWith("Thanks for playing! (until next time...)\r\n"), "Game should be played over the streams");
+        assertEquals(-1, text.replace("\r\n", "").indexOf('\n'), "Every line should end with the given separator");
+        assertTrue(Files.exists(Path.of(savePath)), "Game should be autosaved");
+
+        // input ending at the load prompt leaves the save as it was
+        byte[] saved = Files.readAllBytes(Path.of(savePath));
+        new ConsoleUI(new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream(), "\n", savePath, scores, null).start();
+        assertArrayEquals(saved, Files.readAllBytes(Path.of(savePath)), "Leaving at the load prompt should keep the save");
+
+        ConsoleServer server = new ConsoleServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), dir.resolve("players"), scores, null);
+        server.start();
+        try (Socket alice = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+             Socket other = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            alice.setSoTimeout(10_000);
+            other.setSoTimeout(10_000);
+
+            // a player per connection, names in use are refused
+            alice.getOutputStream().write("Alice\r\n3\r\n".getBytes(StandardCharsets.US_ASCII));
+            assertTrue(readUntil(alice.getInputStream(), "Enter command: ").contains("HP: 10\r\n"), "Connection should get a game");
+            readUntil(other.getInputStream(), "Enter your name");
+            other.getOutputStream().write("alice\n".getBytes(StandardCharsets.US_ASCII));
+            assertTrue(readUntil(other.getInputStream(), "Enter your name").contains("alice is already playing"), "Name in use should be refused");
+            other.getOutputStream().write("bob\n\n".getBytes(StandardCharsets.US_ASCII));
+            readUntil(other.getInputStream(), "Enter command: ");
+            assertEquals(2, server.getConnectionCount(), "Both players should be connected");
+
+            // commands answered with a frame, quitting closes the connection
+            alice.getOutputStream().write("u\n".getBytes(StandardCharsets.US_ASCII));
+            assertTrue(readUntil(alice.getInputStream(), "Enter command: ").contains("Steps: "), "Move should be answered with a frame");
+            alice.getOutputStream().write("q\n".getBytes(StandardCharsets.US_ASCII));
+            assertTrue(readUntil(alice.getInputStream(), null).endsWith("Thanks for playing! (until next time...)\r\n"), "Quitting should end the game");
+            assertTrue(Files.exists(dir.resolve("players").resolve("alice.dat")), "Game should be saved under the player name");
+        }
+
+        // the save is offered again on the next connection, stopping closes it
+        try (Socket again = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            again.setSoTimeout(10_000);
+            again.getOutputStream().write("alice\n".getBytes(StandardCharsets.US_ASCII));
+            assertTrue(readUntil(again.getInputStream(), "(y/n): ").contains("A saved game was found"), "Save should be offered again");
+            server.stop();
+            readUntil(again.getInputStream(), null);
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (server.getConnectionCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, server.getConnectionCount(), "Stopping should close every connection");
+        assertEquals(3, server.getAccepted(), "Every connection should be served");
+
+        try (var files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
     //------------------------------------------------------------------------------------- HELPERS
 
+    /**
+     * Reads from a connection until a marker arrives or the connection closes
+     *
+     * @param in connection input
+     * @param marker text to read up to, null to read until closed
+     * @return text read
+     */
+    private static String readUntil(InputStream in, String marker) throws IOException {
+        StringBuilder text = new StringBuilder();
+        byte[] buffer = new byte[4096];
+        while (marker == null || text.indexOf(marker) < 0) {
+            int read = in.read(buffer);
+            if (read < 0) {
+                break;
+            }
+            text.append(new String(buffer, 0, read, StandardCharsets.UTF_8));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Sends a request without a body to the test server
+     *
+     * @param client HTTP client
+     * @param method HTTP method
+     * @param uri request URI
+     * @return response with the body as a string
+     */
+    private static HttpResponse<String> send(HttpClient client, String method, String uri) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(uri)).method(method, HttpRequest.BodyPublishers.noBody()).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Reads a string member from a JSON response
+     *
+     * @param json JSON object
+     * @param name member name
+     * @return member value
+     */
+    private static String jsonString(String json, String name) {
+        int start = json.indexOf("\"" + name + "\":\"") + name.length() + 4;
+        return json.substring(start, json.indexOf('"', start));
+    }
+
+    /**
+     * Copies every tile type code of a grid, row by row
+     *
+     * @param tiles grid to copy
+     * @return row-major type codes
+     */
+    private static byte[] tileCodes(TileGrid tiles) {
+        int size = tiles.getSize();
+        byte[] codes = new byte[size * size];
+        byte[] row = new byte[size];
+        for (int y = 0; y < size; y++) {
+            tiles.copyRow(y, row);
+            System.arraycopy(row, 0, codes, y * size, size);
+        }
+        return codes;
+    }
+
     /**
      * Controlled map creation with no cells for max step calculations
      *
@@ -749,20 +2367,20 @@ public class TestGameEngine {
      */
     private void createWalkMap(GameEngine engine) {
         Level level = engine.getCurrentLevel();
-        Cell[][] map = level.getMap();
 
         // creating an open map with boundary walls
         for (int y = 0; y < 10; y++) {
             for (int x = 0; x < 10; x++) {
                 if (x == 0 || x == 9 || y == 0 || y == 9) {
-                    map[y][x] = new Wall();
-                    map[y][x].cellSetPos();
+                    level.setCell(new Position(x, y), new Wall());
                 } else {
-                    map[y][x] = new Empty();
-                    map[y][x].cellSetPos();
+                    level.setCell(new Position(x, y), new Empty());
                 }
             }
         }
+
+        // moving the ladder into a corner, away from the tiles walked by tests
+        level.setLadderPos(new Position(8, 8));
     }
 }
 